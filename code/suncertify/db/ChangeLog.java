@@ -0,0 +1,115 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.db;
+
+import java.util.Set;
+
+/**
+ * Remembers which record was changed by each of the most recent commits. The
+ * log is bounded; once it is full, the oldest entries are forgotten to make
+ * room for the new ones, after which the changes made before them can no
+ * longer be told apart from the records that did not change.
+ * 
+ * <p>
+ * This class is not thread-safe; the {@code SnapshotRegistry} guards it with
+ * the same lock it stamps the commits with, so an entry is appended in the
+ * same step its commit becomes visible.
+ * 
+ * @author rsmall
+ */
+class ChangeLog {
+
+	/** Sequence number of the commit of each entry; a ring buffer. */
+	private final long[] sequences;
+
+	/** Record number of the record changed by each entry; a ring buffer. */
+	private final int[] recordNumbers;
+
+	/** Index of the oldest entry. */
+	private int first;
+
+	/** Number of entries held. */
+	private int size;
+
+	/**
+	 * Highest sequence number among the entries that have been forgotten; the
+	 * changes made by commits up to and including it are no longer known.
+	 */
+	private long forgottenThrough;
+
+	/**
+	 * Constructs a new {@code ChangeLog} holding at most {@code capacity}
+	 * entries.
+	 * 
+	 * @param capacity
+	 *            Maximum number of entries held.
+	 */
+	ChangeLog(final int capacity) {
+		sequences = new long[capacity];
+		recordNumbers = new int[capacity];
+	}
+
+	/**
+	 * Records that the commit stamped with {@code sequence} changed the record
+	 * specified by {@code recNo}, forgetting the oldest entry if the log is
+	 * full. The entries must be appended in the order of their sequence
+	 * numbers.
+	 * 
+	 * @param sequence
+	 *            Sequence number the commit was stamped with.
+	 * 
+	 * @param recNo
+	 *            Record number of the record that was changed.
+	 */
+	void append(final long sequence, final int recNo) {
+		if (size == sequences.length) {
+			forgottenThrough = sequences[first];
+			first = (first + 1) % sequences.length;
+			size--;
+		}
+
+		final int index = (first + size) % sequences.length;
+		sequences[index] = sequence;
+		recordNumbers[index] = recNo;
+		size++;
+	}
+
+	/**
+	 * Adds the record numbers of the records changed by the commits stamped
+	 * after {@code since} and up to and including {@code until} to
+	 * {@code changed}.
+	 * 
+	 * @param since
+	 *            Sequence number the changes are wanted after.
+	 * 
+	 * @param until
+	 *            Sequence number the changes are wanted up to.
+	 * 
+	 * @param changed
+	 *            Receives the record numbers of the changed records.
+	 * 
+	 * @return {@code true} if every such change is still known;
+	 *         {@code false} if some have been forgotten, in which case
+	 *         {@code changed} is left incomplete.
+	 */
+	boolean collect(final long since, final long until,
+			final Set<Integer> changed) {
+		if (since < forgottenThrough) {
+			return false;
+		}
+
+		/* The entries are ordered, so only the newest ones need be visited. */
+		for (int i = size - 1; i >= 0; i--) {
+			final int index = (first + i) % sequences.length;
+			if (sequences[index] <= since) {
+				break;
+			}
+			if (sequences[index] <= until) {
+				changed.add(recordNumbers[index]);
+			}
+		}
+		return true;
+	}
+}
@@ -4,6 +4,10 @@
  */
 package suncertify.db;
 
+import java.util.Comparator;
+import java.util.List;
+import java.util.SortedMap;
+
 /**
  * Adapts the DB interface to be more consistent with regards to the locking
  * process and adds some new functionality.
@@ -17,7 +21,21 @@ package suncertify.db;
  * 
  * <p>
  * The new functionality allows a client to determine when the data should be
- * {@link #save() saved}.
+ * {@link #save() saved} and to update a record without locking it, as long as
+ * the record has not been modified since it was last read; see
+ * {@link #compareAndUpdate(int, long, String[]) compareAndUpdate}. Several
+ * records can also be modified as a single unit through a
+ * {@link #beginTransaction() transaction}, every record can be
+ * {@link #exportRecords() exported} in its raw form, a {@link RecordListener}
+ * can be notified of every change as it is committed, the records changed
+ * since a given commit can be {@link #changesSince(long) fetched} and the
+ * matches of a search can be {@link #select(String[], boolean[]) selected}
+ * with only the fields that are needed. The fields can be
+ * {@link #createIndex(int, Comparator) indexed}, as they are or
+ * {@link #createFoldedIndex(int) regardless of case}, to answer the
+ * {@link FieldCondition}s on them without scanning every record, and the
+ * text of a field can be {@link #search(int[], String, float, int) searched}
+ * for, forgiving misspellings.
  * 
  * @author rsmall
  */
@@ -45,6 +63,354 @@ public interface DBAdapter extends DB {
 	public void unlock(final int recNo, final long lockCookie)
 			throws IllegalStateException, SecurityException;
 
+	/**
+	 * Returns the version of the record specified by {@code recNo}. The
+	 * version changes every time the record is modified, so a client can read
+	 * the version prior to {@link #read(int) reading} the record and later use
+	 * it to {@link #compareAndUpdate(int, long, String[]) update} the record
+	 * only if nobody else has modified it in the meantime.
+	 * 
+	 * @param recNo
+	 *            Record number of the record whose version will be retrieved.
+	 * 
+	 * @return Current version of the record specified by {@code recNo}.
+	 * 
+	 * @throws RecordNotFoundException
+	 *             If the record specified by {@code recNo} does not exist.
+	 */
+	public long getVersion(final int recNo) throws RecordNotFoundException;
+
+	/**
+	 * Updates the fields belonging to the record specified by {@code recNo}
+	 * if, and only if, the record's version still equals
+	 * {@code expectedVersion} and no client currently holds a lock on the
+	 * record. The check and the update are performed as a single atomic step,
+	 * so the client does not need to {@link #lock(int) lock} the record.
+	 * 
+	 * <p>
+	 * <b>Example:</b> Below is an example of a method that will update a
+	 * record without locking it, falling back to locking the record when the
+	 * optimistic update fails.
+	 * 
+	 * <pre>
+	 * void updateRecord(final int recNo, final String[] fields, final DBAdapter db) {
+	 * 
+	 * 	final long version = db.getVersion(recNo);
+	 * 	// inspect db.read(recNo) elided
+	 * 
+	 * 	if (!db.compareAndUpdate(recNo, version, fields)) {
+	 * 		// lock, read, update and unlock elided
+	 * 	}
+	 * }
+	 * </pre>
+	 * 
+	 * @param recNo
+	 *            Record number of the record to update.
+	 * 
+	 * @param expectedVersion
+	 *            Version the record is expected to have, as returned by
+	 *            {@link #getVersion(int) getVersion}.
+	 * 
+	 * @param data
+	 *            The fields that will be assigned to the record. Each element
+	 *            in the array will identify a unique field associated with the
+	 *            record as determined by the database.
+	 * 
+	 * @return {@code true} if the record was updated; {@code false} if the
+	 *         record has been modified since {@code expectedVersion} or is
+	 *         currently locked.
+	 * 
+	 * @throws RecordNotFoundException
+	 *             If the record specified by {@code recNo} does not exist.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code fields} is {@code null}, does not have the correct
+	 *             number of fields, contains a {@code null} field or has a
+	 *             field that exceeds the size its maximum character limit.
+	 */
+	public boolean compareAndUpdate(final int recNo,
+			final long expectedVersion, final String[] data)
+			throws RecordNotFoundException, IllegalArgumentException;
+
+	/**
+	 * Returns an array of at most {@code limit} record numbers that match
+	 * {@code criteria}, in ascending order, starting with the record specified
+	 * by {@code from}. A record is considered a match as described by
+	 * {@link #find(String[]) find}. This allows the matches of a broad search
+	 * to be fetched a page at a time: the next page starts right after the
+	 * last record number returned. Each page is read as of the time it is
+	 * fetched.
+	 * 
+	 * @param criteria
+	 *            Criteria to use when searching for records.
+	 * 
+	 * @param from
+	 *            Record number to start searching at.
+	 * 
+	 * @param limit
+	 *            Maximum number of record numbers to return.
+	 * 
+	 * @return An array of the record numbers that match {@code criteria}.
+	 *         Fewer than {@code limit} are only returned once there are no
+	 *         more matches.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code criteria} is {@code null} or does not have the same
+	 *             number of elements as a record has fields, {@code from} is
+	 *             negative or {@code limit} is less than one.
+	 */
+	public int[] find(final String[] criteria, final int from, final int limit)
+			throws IllegalArgumentException;
+
+	/**
+	 * Returns the records that match {@code criteria}, holding only the fields
+	 * selected by {@code columns}. A record is considered a match as described
+	 * by {@link #find(String[]) find}. Unlike {@code find}, the records are
+	 * read in the same pass they are matched in, so each record is returned as
+	 * it was when it matched; no record can be deleted or modified in between.
+	 * 
+	 * @param criteria
+	 *            Criteria to use when searching for records.
+	 * 
+	 * @param columns
+	 *            {@code true} for each field to return; the other fields are
+	 *            left {@code null}.
+	 * 
+	 * @return Maps the record number of each match to its fields, ordered by
+	 *         record number.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code criteria} or {@code columns} is {@code null} or
+	 *             does not have the same number of elements as a record has
+	 *             fields.
+	 */
+	public SortedMap<Integer, String[]> select(final String[] criteria,
+			final boolean[] columns) throws IllegalArgumentException;
+
+	/**
+	 * Returns the records that meet every one of {@code conditions}, holding
+	 * only the fields selected by {@code columns}. The records are read in the
+	 * same pass they are matched in, as by
+	 * {@link #select(String[], boolean[]) select}.
+	 * 
+	 * <p>
+	 * The conditions on the {@link #createIndex(int, Comparator) indexed}
+	 * fields are answered through their indexes, most selective first, as
+	 * judged by the number of distinct values each index holds; when no index
+	 * is selective enough, every record is scanned instead.
+	 * 
+	 * @param conditions
+	 *            Conditions the records must meet; every record meets an
+	 *            empty array.
+	 * 
+	 * @param columns
+	 *            {@code true} for each field to return; the other fields are
+	 *            left {@code null}.
+	 * 
+	 * @return Maps the record number of each match to its fields, ordered by
+	 *         record number.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code conditions} or {@code columns} is {@code null},
+	 *             {@code conditions} contains {@code null} or a condition on a
+	 *             field that does not exist, or {@code columns} does not have
+	 *             the same number of elements as a record has fields.
+	 */
+	public SortedMap<Integer, String[]> select(
+			final FieldCondition[] conditions, final boolean[] columns)
+			throws IllegalArgumentException;
+
+	/**
+	 * Hands each record that meets every one of {@code conditions}, holding
+	 * only the fields selected by {@code columns}, to {@code collector}, as
+	 * by {@link #select(FieldCondition[], boolean[]) select}. The search stops
+	 * as soon as the collector asks it to, so a search that needs only the
+	 * first matches reads no more records than it must, and only the matches
+	 * the collector keeps are held.
+	 * 
+	 * @param conditions
+	 *            Conditions the records must meet; every record meets an
+	 *            empty array.
+	 * 
+	 * @param columns
+	 *            {@code true} for each field to return; the other fields are
+	 *            left {@code null}.
+	 * 
+	 * @param collector
+	 *            Receives the matches, in ascending order of record number.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code conditions}, {@code columns} or {@code collector}
+	 *             is {@code null}, {@code conditions} contains {@code null} or
+	 *             a condition on a field that does not exist, or
+	 *             {@code columns} does not have the same number of elements
+	 *             as a record has fields.
+	 */
+	public void select(final FieldCondition[] conditions,
+			final boolean[] columns, final RecordCollector collector)
+			throws IllegalArgumentException;
+
+	/**
+	 * Creates an index of the field identified by {@code field}, which is kept
+	 * up to date as the records are modified, replacing any index the field
+	 * already has. The values of the field are compared in {@code order} by
+	 * every {@link FieldCondition} on the field, whether or not the index is
+	 * used to answer it; a numeric field can be given an order that compares
+	 * the numbers the values represent.
+	 * 
+	 * @param field
+	 *            Index of the field within a record.
+	 * 
+	 * @param order
+	 *            Order the values of the field are compared in; {@code null}
+	 *            for their natural order.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the field does not exist.
+	 */
+	public void createIndex(final int field, final Comparator<String> order)
+			throws IllegalArgumentException;
+
+	/**
+	 * Creates a folded index of the field identified by {@code field}, which
+	 * is kept up to date as the records are modified, replacing any folded
+	 * index the field already has. The folded index allows the
+	 * {@link FieldCondition#folded() folded} conditions on the field, which
+	 * ignore case and surplus whitespace, to be answered without scanning
+	 * every record.
+	 * 
+	 * @param field
+	 *            Index of the field within a record.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the field does not exist.
+	 */
+	public void createFoldedIndex(final int field)
+			throws IllegalArgumentException;
+
+	/**
+	 * Creates a text index of the field identified by {@code field}, which is
+	 * kept up to date as the records are modified, replacing any text index
+	 * the field already has. The text index allows the field to be
+	 * {@link #search(int[], String, float, int) searched} for pieces of text
+	 * without scanning every record.
+	 * 
+	 * @param field
+	 *            Index of the field within a record.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the field does not exist.
+	 */
+	public void createTextIndex(final int field)
+			throws IllegalArgumentException;
+
+	/**
+	 * Returns the records holding {@code text}, or a value that resembles it,
+	 * in any of the fields identified by {@code fields}, regardless of case.
+	 * The records are read as they were at a single point in time and are
+	 * ranked best match first: those holding the text come before those that
+	 * only resemble it (see {@link TextMatch#getScore()}).
+	 * 
+	 * <p>
+	 * Two values resemble each other as much as the runs of three characters
+	 * they share, out of those found in either, so a misspelt or partial value
+	 * is still found. The fields with a {@link #createTextIndex(int) text
+	 * index} are searched without scanning every record, as long as the text
+	 * is at least three characters long.
+	 * 
+	 * @param fields
+	 *            Indexes of the fields to search.
+	 * 
+	 * @param text
+	 *            Text to search for.
+	 * 
+	 * @param minSimilarity
+	 *            Similarity, greater than zero and at most one, that a field
+	 *            which does not hold {@code text} must reach for its record to
+	 *            match.
+	 * 
+	 * @param limit
+	 *            Maximum number of records returned.
+	 * 
+	 * @return The matches, best first.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code fields} or {@code text} is {@code null}, a field
+	 *             does not exist, {@code minSimilarity} is out of range or
+	 *             {@code limit} is less than one.
+	 */
+	public List<TextMatch> search(final int[] fields, final String text,
+			final float minSimilarity, final int limit)
+			throws IllegalArgumentException;
+
+	/**
+	 * Begins a new {@link Transaction}, allowing several records to be
+	 * modified as a single unit. The records do not need to be locked by the
+	 * client; the transaction locks them itself when it is committed.
+	 * 
+	 * @return A new {@code Transaction} with no modifications recorded.
+	 */
+	public Transaction beginTransaction();
+
+	/**
+	 * Returns an image of every record, laid out exactly as the records are
+	 * stored in the database file, as of the latest commit. The image is only
+	 * rebuilt once the records have changed; until then, every call returns
+	 * the same image.
+	 * 
+	 * <p>
+	 * The image reflects the records as they are held in memory, which
+	 * includes the modifications that have not been {@link #save() saved}
+	 * yet.
+	 * 
+	 * @return Image of every record.
+	 */
+	public RecordImage exportRecords();
+
+	/**
+	 * Returns the records changed by the commits made after the commit with
+	 * sequence number {@code sequence}, as of the latest commit. The sequence
+	 * numbers are those of {@link RecordImage#getSequence()},
+	 * {@link RecordChange#getSequence()} and
+	 * {@link RecordDelta#getSequence()}, so a client holding any of them can
+	 * catch up on what it missed by reading only the records that changed.
+	 * 
+	 * <p>
+	 * Only a bounded number of the most recent changes are remembered. If
+	 * {@code sequence} is older than that, was handed out before the database
+	 * was last opened, or is negative, every record is returned in a
+	 * {@link RecordDelta#isFull() full} delta instead.
+	 * 
+	 * @param sequence
+	 *            Commit sequence number the changes are wanted after.
+	 * 
+	 * @return The records changed since {@code sequence}.
+	 */
+	public RecordDelta changesSince(final long sequence);
+
+	/**
+	 * Adds {@code listener} to be notified of every change committed to the
+	 * records from now on, whether it was made through this {@code DBAdapter}
+	 * or a {@link Transaction}.
+	 * 
+	 * @param listener
+	 *            Listener to add.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code listener} is {@code null}.
+	 */
+	public void addRecordListener(final RecordListener listener)
+			throws IllegalArgumentException;
+
+	/**
+	 * Removes {@code listener}, which will no longer be notified of changes.
+	 * Removing a listener that has not been added has no effect.
+	 * 
+	 * @param listener
+	 *            Listener to remove.
+	 */
+	public void removeRecordListener(final RecordListener listener);
+
 	/**
 	 * Saves the changes made to the database.
 	 * 
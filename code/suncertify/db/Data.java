@@ -5,6 +5,12 @@
 package suncertify.db;
 
 import java.io.File;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * Provides access to a flat-file database system.
@@ -133,6 +139,40 @@ public class Data implements DBAdapter {
 		recordAccess.update(recNo, data);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getVersion(final int recNo) throws RecordNotFoundException {
+		return recordAccess.getVersion(recNo);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean compareAndUpdate(final int recNo,
+			final long expectedVersion, final String[] data)
+			throws RecordNotFoundException, IllegalArgumentException {
+
+		/*
+		 * A client holding the lock on the record is entitled to modify it at
+		 * any time, so the record must not be updated underneath it. Briefly
+		 * taking the lock ourselves, without waiting, ensures that.
+		 */
+		final long cookie = recordLocker.tryLock(recNo);
+		if (cookie == RecordLocker.NOT_LOCKED) {
+			return false;
+		}
+
+		try {
+			return recordAccess.compareAndUpdate(recNo, expectedVersion, data);
+
+		} finally {
+			recordLocker.unlock(recNo, cookie);
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -151,6 +191,81 @@ public class Data implements DBAdapter {
 		return recordAccess.find(criteria);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int[] find(final String[] criteria, final int from, final int limit)
+			throws IllegalArgumentException {
+		return recordAccess.find(criteria, from, limit);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SortedMap<Integer, String[]> select(final String[] criteria,
+			final boolean[] columns) throws IllegalArgumentException {
+		return recordAccess.select(criteria, columns);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SortedMap<Integer, String[]> select(
+			final FieldCondition[] conditions, final boolean[] columns)
+			throws IllegalArgumentException {
+		return recordAccess.select(conditions, columns);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void select(final FieldCondition[] conditions,
+			final boolean[] columns, final RecordCollector collector)
+			throws IllegalArgumentException {
+		recordAccess.select(conditions, columns, collector);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void createIndex(final int field, final Comparator<String> order)
+			throws IllegalArgumentException {
+		recordAccess.createIndex(field, order);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void createFoldedIndex(final int field)
+			throws IllegalArgumentException {
+		recordAccess.createFoldedIndex(field);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void createTextIndex(final int field)
+			throws IllegalArgumentException {
+		recordAccess.createTextIndex(field);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<TextMatch> search(final int[] fields, final String text,
+			final float minSimilarity, final int limit)
+			throws IllegalArgumentException {
+		return recordAccess.search(fields, text, minSimilarity, limit);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -159,6 +274,47 @@ public class Data implements DBAdapter {
 		return recordAccess.create(data);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public RecordImage exportRecords() {
+		return recordAccess.exportImage();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public RecordDelta changesSince(final long sequence) {
+		return recordAccess.changesSince(sequence);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void addRecordListener(final RecordListener listener)
+			throws IllegalArgumentException {
+		recordAccess.addRecordListener(listener);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeRecordListener(final RecordListener listener) {
+		recordAccess.removeRecordListener(listener);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Transaction beginTransaction() {
+		return new DataTransaction();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -209,4 +365,115 @@ public class Data implements DBAdapter {
 			throws IllegalStateException, SecurityException {
 		recordLocker.unlock(recNo, lockCookie);
 	}
+
+	/**
+	 * {@code Transaction} that records the modifications in memory and applies
+	 * them to the {@code recordAccess} when committed.
+	 */
+	private class DataTransaction implements Transaction {
+
+		/**
+		 * Maps the record number of each record to modify to its new fields,
+		 * or to {@code null} if the record is to be deleted. Sorted so that
+		 * the records are always locked in ascending order.
+		 */
+		private final SortedMap<Integer, String[]> changes =
+				new TreeMap<Integer, String[]>();
+
+		/** Maps the record number of a record to its expected version. */
+		private final Map<Integer, Long> expectedVersions =
+				new HashMap<Integer, Long>();
+
+		/** Indicates if this transaction has been committed or rolled back. */
+		private boolean isFinished;
+
+		/**
+		 * Ensures that the transaction has not been finished.
+		 * 
+		 * @throws IllegalStateException
+		 *             If the transaction has been committed or rolled back.
+		 */
+		private void checkNotFinished() {
+			if (isFinished) {
+				throw new IllegalStateException("transaction has finished");
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void update(final int recNo, final String[] data)
+				throws IllegalStateException {
+			checkNotFinished();
+			changes.put(recNo, data);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void update(final int recNo, final long expectedVersion,
+				final String[] data) throws IllegalStateException {
+			update(recNo, data);
+			expectedVersions.put(recNo, expectedVersion);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void delete(final int recNo) throws IllegalStateException {
+			checkNotFinished();
+			changes.put(recNo, null);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean commit() throws RecordNotFoundException,
+				DBIOException, IllegalArgumentException, IllegalStateException {
+			checkNotFinished();
+			isFinished = true;
+
+			if (changes.isEmpty()) {
+				return true;
+			}
+
+			/*
+			 * Clients holding the lock on one of the records are entitled to
+			 * modify it at any time, so every record is locked for the
+			 * duration of the commit. The records are locked in ascending
+			 * order to prevent deadlocks between transactions. A record the
+			 * caller has already locked is left locked once the commit is
+			 * done, so only the locks acquired here are released.
+			 */
+			final Map<Integer, Long> cookies = new TreeMap<Integer, Long>();
+			try {
+				for (final int recNo : changes.keySet()) {
+					if (!recordLocker.isLockedByCaller(recNo)) {
+						cookies.put(recNo, recordLocker.lock(recNo));
+					}
+				}
+				return recordAccess.commit(changes, expectedVersions);
+
+			} finally {
+				for (final Map.Entry<Integer, Long> cookie : cookies.entrySet()) {
+					recordLocker.unlock(cookie.getKey(), cookie.getValue());
+				}
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void rollback() throws IllegalStateException {
+			checkNotFinished();
+			isFinished = true;
+			changes.clear();
+			expectedVersions.clear();
+		}
+	}
 }
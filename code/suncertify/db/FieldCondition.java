@@ -0,0 +1,370 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.db;
+
+import java.util.Comparator;
+
+/**
+ * A condition a single field of a record must meet for the record to be
+ * {@link DBAdapter#select(FieldCondition[], boolean[]) selected}. The values
+ * are compared in the order the field was {@link DBAdapter#createIndex(int,
+ * Comparator) indexed} with, or in their natural order if the field has no
+ * index. A {@link #folded() folded} condition compares the values regardless
+ * of case and of surplus whitespace, through the field's
+ * {@link DBAdapter#createFoldedIndex(int) folded index} if it has one.
+ * 
+ * <p>
+ * {@code FieldCondition} objects are immutable.
+ * 
+ * @author rsmall
+ */
+public final class FieldCondition {
+
+	/** How the field is compared with the values of the condition. */
+	public enum Operator {
+
+		/** The field equals the value. */
+		EQUALS,
+
+		/** The field starts with the value. */
+		PREFIX,
+
+		/** The field lies between a lower and an upper bound. */
+		RANGE,
+
+		/** The field equals one of the values. */
+		IN
+	}
+
+	/** Index of the field within a record. */
+	private final int field;
+
+	/** How the field is compared with the values. */
+	private final Operator operator;
+
+	/**
+	 * Values the field is compared with; the lower and upper bound of a
+	 * range, either of which is {@code null} if the range is open at that end.
+	 */
+	private final String[] values;
+
+	/** Indicates a range includes its lower bound. */
+	private final boolean isLowInclusive;
+
+	/** Indicates a range includes its upper bound. */
+	private final boolean isHighInclusive;
+
+	/** Indicates the field and the values are compared once folded. */
+	private final boolean isFolded;
+
+	/**
+	 * Constructs a new {@code FieldCondition}.
+	 * 
+	 * @param field
+	 *            Index of the field within a record.
+	 * 
+	 * @param operator
+	 *            How the field is compared with the values.
+	 * 
+	 * @param values
+	 *            Values the field is compared with.
+	 * 
+	 * @param isLowInclusive
+	 *            {@code true} if a range includes its lower bound.
+	 * 
+	 * @param isHighInclusive
+	 *            {@code true} if a range includes its upper bound.
+	 * 
+	 * @param isFolded
+	 *            {@code true} if the field and the values are compared once
+	 *            folded; the values must already have been.
+	 */
+	private FieldCondition(final int field, final Operator operator,
+			final String[] values, final boolean isLowInclusive,
+			final boolean isHighInclusive, final boolean isFolded) {
+		if (field < 0) {
+			throw new IllegalArgumentException("field cannot be negative");
+		}
+
+		this.field = field;
+		this.operator = operator;
+		this.values = values;
+		this.isLowInclusive = isLowInclusive;
+		this.isHighInclusive = isHighInclusive;
+		this.isFolded = isFolded;
+	}
+
+	/**
+	 * Returns a condition met by the records whose field equals
+	 * {@code value}.
+	 * 
+	 * @param field
+	 *            Index of the field within a record.
+	 * 
+	 * @param value
+	 *            Value the field must equal.
+	 * 
+	 * @return The condition.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code field} is negative or {@code value} is
+	 *             {@code null}.
+	 */
+	public static FieldCondition equalTo(final int field, final String value) {
+		if (value == null) {
+			throw new IllegalArgumentException("value cannot be null");
+		}
+		return new FieldCondition(field, Operator.EQUALS,
+				new String[] {value}, true, true, false);
+	}
+
+	/**
+	 * Returns a condition met by the records whose field starts with
+	 * {@code prefix}. This comparison ignores the order the field was indexed
+	 * with, and is case sensitive unless the condition is {@link #folded()
+	 * folded}.
+	 * 
+	 * @param field
+	 *            Index of the field within a record.
+	 * 
+	 * @param prefix
+	 *            Value the field must start with.
+	 * 
+	 * @return The condition.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code field} is negative or {@code prefix} is
+	 *             {@code null}.
+	 */
+	public static FieldCondition startsWith(final int field,
+			final String prefix) {
+		if (prefix == null) {
+			throw new IllegalArgumentException("prefix cannot be null");
+		}
+		return new FieldCondition(field, Operator.PREFIX,
+				new String[] {prefix}, true, true, false);
+	}
+
+	/**
+	 * Returns a condition met by the records whose field lies between
+	 * {@code low} and {@code high}.
+	 * 
+	 * @param field
+	 *            Index of the field within a record.
+	 * 
+	 * @param low
+	 *            Lower bound of the field; {@code null} if there is none.
+	 * 
+	 * @param isLowInclusive
+	 *            {@code true} if the field may equal {@code low}.
+	 * 
+	 * @param high
+	 *            Upper bound of the field; {@code null} if there is none.
+	 * 
+	 * @param isHighInclusive
+	 *            {@code true} if the field may equal {@code high}.
+	 * 
+	 * @return The condition.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code field} is negative.
+	 */
+	public static FieldCondition between(final int field, final String low,
+			final boolean isLowInclusive, final String high,
+			final boolean isHighInclusive) {
+		return new FieldCondition(field, Operator.RANGE, new String[] {low,
+				high}, isLowInclusive, isHighInclusive, false);
+	}
+
+	/**
+	 * Returns a condition met by the records whose field equals one of
+	 * {@code values}.
+	 * 
+	 * @param field
+	 *            Index of the field within a record.
+	 * 
+	 * @param values
+	 *            Values the field may equal.
+	 * 
+	 * @return The condition.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code field} is negative or {@code values} is
+	 *             {@code null} or contains {@code null}.
+	 */
+	public static FieldCondition in(final int field, final String... values) {
+		if (values == null) {
+			throw new IllegalArgumentException("values cannot be null");
+		}
+		for (final String value : values) {
+			if (value == null) {
+				throw new IllegalArgumentException("values cannot be null");
+			}
+		}
+		return new FieldCondition(field, Operator.IN, values.clone(), true,
+				true, false);
+	}
+
+	/**
+	 * Returns a condition like this one that compares the field and its
+	 * values regardless of case and of surplus whitespace: whitespace at
+	 * either end is ignored, any run of whitespace within a value equals a
+	 * single space, and the values are compared in the natural order of their
+	 * lower case form, whatever order the field was indexed with.
+	 * 
+	 * @return The folded condition; this condition if it already is.
+	 */
+	public FieldCondition folded() {
+		if (isFolded) {
+			return this;
+		}
+
+		final String[] keys = new String[values.length];
+		for (int i = 0; i < values.length; i++) {
+			keys[i] = (values[i] == null) ? null : KeyFolding.fold(values[i]);
+		}
+		return new FieldCondition(field, operator, keys, isLowInclusive,
+				isHighInclusive, true);
+	}
+
+	/**
+	 * Returns {@code true} if the field and the values are compared
+	 * regardless of case and of surplus whitespace.
+	 * 
+	 * @return {@code true} if the condition is folded.
+	 */
+	public boolean isFolded() {
+		return isFolded;
+	}
+
+	/**
+	 * Returns the index of the field within a record.
+	 * 
+	 * @return Index of the field.
+	 */
+	public int getField() {
+		return field;
+	}
+
+	/**
+	 * Returns how the field is compared with the values.
+	 * 
+	 * @return Operator of the condition.
+	 */
+	public Operator getOperator() {
+		return operator;
+	}
+
+	/**
+	 * Returns the values the field is compared with. The values of a range are
+	 * its lower and upper bound.
+	 * 
+	 * @return Values of the condition.
+	 */
+	String[] getValues() {
+		return values;
+	}
+
+	/**
+	 * Returns {@code true} if a range includes its lower bound.
+	 * 
+	 * @return {@code true} if the lower bound is inclusive.
+	 */
+	boolean isLowInclusive() {
+		return isLowInclusive;
+	}
+
+	/**
+	 * Returns {@code true} if a range includes its upper bound.
+	 * 
+	 * @return {@code true} if the upper bound is inclusive.
+	 */
+	boolean isHighInclusive() {
+		return isHighInclusive;
+	}
+
+	/**
+	 * Determines if {@code value} meets this condition.
+	 * 
+	 * @param value
+	 *            Value of the field.
+	 * 
+	 * @param order
+	 *            Order the values are compared in; {@code null} for their
+	 *            natural order. Ignored if the condition is folded.
+	 * 
+	 * @return {@code true} if the value meets the condition.
+	 */
+	boolean matches(final String value, final Comparator<String> order) {
+		if (isFolded) {
+			return matchesKey(KeyFolding.fold(value), null);
+		}
+		return matchesKey(value, order);
+	}
+
+	/**
+	 * Determines if {@code value}, as it is compared, meets this condition.
+	 * 
+	 * @param value
+	 *            Value of the field; folded if the condition is.
+	 * 
+	 * @param order
+	 *            Order the values are compared in; {@code null} for their
+	 *            natural order.
+	 * 
+	 * @return {@code true} if the value meets the condition.
+	 */
+	private boolean matchesKey(final String value,
+			final Comparator<String> order) {
+		switch (operator) {
+		case PREFIX:
+			return value.startsWith(values[0]);
+
+		case RANGE:
+			if (values[0] != null) {
+				final int result = compare(value, values[0], order);
+				if ((result < 0) || ((result == 0) && !isLowInclusive)) {
+					return false;
+				}
+			}
+			if (values[1] != null) {
+				final int result = compare(value, values[1], order);
+				if ((result > 0) || ((result == 0) && !isHighInclusive)) {
+					return false;
+				}
+			}
+			return true;
+
+		default:
+			for (final String candidate : values) {
+				if (compare(value, candidate, order) == 0) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Compares two values in {@code order}.
+	 * 
+	 * @param a
+	 *            First value.
+	 * 
+	 * @param b
+	 *            Second value.
+	 * 
+	 * @param order
+	 *            Order the values are compared in; {@code null} for their
+	 *            natural order.
+	 * 
+	 * @return A negative number, zero or a positive number as {@code a} is
+	 *         less than, equal to or greater than {@code b}.
+	 */
+	static int compare(final String a, final String b,
+			final Comparator<String> order) {
+		return (order == null) ? a.compareTo(b) : order.compare(a, b);
+	}
+}
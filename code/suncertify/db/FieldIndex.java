@@ -0,0 +1,383 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.db;
+
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Maps each value of a single field to the records holding it, kept in the
+ * order the field is compared in, so that a {@link FieldCondition} can be
+ * answered without visiting every record.
+ * 
+ * <p>
+ * The index does not follow the snapshots. It holds the values of the latest
+ * committed version of each record, along with those of any version that is
+ * about to be committed, so it may name records that no longer match; the
+ * records it names are always checked against the snapshot being read. The
+ * {@code RecordAccess} keeps the index from missing a record that a snapshot
+ * sees as matching; see {@link RecordAccess#select(FieldCondition[],
+ * boolean[])}.
+ * 
+ * <p>
+ * A folded index holds the {@link KeyFolding folded} key of each value rather
+ * than the value itself, in the natural order of the keys, and answers the
+ * {@link FieldCondition#folded() folded} conditions on the field.
+ * 
+ * <p>
+ * Each value is held along with its sort key when the index is ordered by a
+ * {@link SortKeyOrder}, so the values are parsed once, as they are added or
+ * looked up, rather than on every comparison the index makes.
+ * 
+ * <p>
+ * The index also keeps the statistics the {@link QueryPlanner} estimates the
+ * cost of a condition with: the number of distinct values and the number of
+ * records indexed.
+ * 
+ * <p>
+ * This class is thread-safe.
+ * 
+ * @author rsmall
+ */
+class FieldIndex implements ValueIndex {
+
+	/** Order the values are compared in; {@code null} for natural order. */
+	private final Comparator<String> order;
+
+	/** Indicates the index holds the folded key of each value. */
+	private final boolean isFolded;
+
+	/** Maps each value to the record numbers of the records holding it. */
+	private final TreeMap<Key, BitSet> entries;
+
+	/** Number of records indexed. */
+	private int size;
+
+	/** Guards {@code entries} and {@code size}. */
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/** Indicates every existing record has been indexed. */
+	private volatile boolean isReady;
+
+	/**
+	 * Constructs a new, empty {@code FieldIndex}.
+	 * 
+	 * @param order
+	 *            Order the values are compared in; {@code null} for their
+	 *            natural order, and for a folded index.
+	 * 
+	 * @param isFolded
+	 *            {@code true} to hold the folded key of each value.
+	 */
+	FieldIndex(final Comparator<String> order, final boolean isFolded) {
+		this.order = order;
+		this.isFolded = isFolded;
+		this.entries = new TreeMap<Key, BitSet>(keyOrder(order));
+	}
+
+	/**
+	 * Returns the order the keys of an index ordered by {@code order} are
+	 * compared in.
+	 * 
+	 * @param order
+	 *            Order the values are compared in; {@code null} for their
+	 *            natural order.
+	 * 
+	 * @return The order of the keys.
+	 */
+	private static Comparator<Key> keyOrder(final Comparator<String> order) {
+		if ((order == null) || (order instanceof SortKeyOrder<?>)) {
+			return new Comparator<Key>() {
+				@Override
+				@SuppressWarnings("unchecked")
+				public int compare(final Key a, final Key b) {
+					return ((Comparable<Object>) a.sortKey)
+							.compareTo(b.sortKey);
+				}
+			};
+		}
+
+		return new Comparator<Key>() {
+			@Override
+			public int compare(final Key a, final Key b) {
+				return order.compare(a.value, b.value);
+			}
+		};
+	}
+
+	/**
+	 * Returns the entry key {@code value} is looked up by.
+	 * 
+	 * @param value
+	 *            Value as it is held; folded if the index is.
+	 * 
+	 * @return The entry key.
+	 */
+	private Key toKey(final String value) {
+		final Comparable<?> sortKey = (order instanceof SortKeyOrder<?>)
+				? ((SortKeyOrder<?>) order).sortKey(value) : value;
+		return new Key(value, sortKey);
+	}
+
+	/**
+	 * Returns the key {@code value} is held under.
+	 * 
+	 * @param value
+	 *            Value of the field.
+	 * 
+	 * @return The folded key of {@code value} if the index is folded;
+	 *         {@code value} itself otherwise.
+	 */
+	String key(final String value) {
+		return isFolded ? KeyFolding.fold(value) : value;
+	}
+
+	/**
+	 * Returns the order the values are compared in.
+	 * 
+	 * @return The order; {@code null} for the natural order.
+	 */
+	Comparator<String> getOrder() {
+		return order;
+	}
+
+	/**
+	 * Returns {@code true} once every existing record has been indexed; until
+	 * then, the index is kept up to date but must not be looked up.
+	 * 
+	 * @return {@code true} if the index may be looked up.
+	 */
+	@Override
+	public boolean isReady() {
+		return isReady;
+	}
+
+	/** Allows the index to be looked up, once every record is indexed. */
+	@Override
+	public void markReady() {
+		isReady = true;
+	}
+
+	/**
+	 * Records that the record specified by {@code recNo} holds {@code value}.
+	 * Adding the same value twice has no further effect.
+	 * 
+	 * @param value
+	 *            Value of the field.
+	 * 
+	 * @param recNo
+	 *            Record number of the record.
+	 */
+	@Override
+	public void add(final String value, final int recNo) {
+		final Key key = toKey(key(value));
+		lock.writeLock().lock();
+		try {
+			BitSet recordNumbers = entries.get(key);
+			if (recordNumbers == null) {
+				recordNumbers = new BitSet();
+				entries.put(key, recordNumbers);
+			}
+			if (!recordNumbers.get(recNo)) {
+				recordNumbers.set(recNo);
+				size++;
+			}
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Records that the record specified by {@code recNo} no longer holds
+	 * {@code value}.
+	 * 
+	 * @param value
+	 *            Value of the field.
+	 * 
+	 * @param recNo
+	 *            Record number of the record.
+	 */
+	void remove(final String value, final int recNo) {
+		final Key key = toKey(key(value));
+		lock.writeLock().lock();
+		try {
+			final BitSet recordNumbers = entries.get(key);
+			if ((recordNumbers != null) && recordNumbers.get(recNo)) {
+				recordNumbers.clear(recNo);
+				size--;
+				if (recordNumbers.isEmpty()) {
+					entries.remove(key);
+				}
+			}
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the record numbers of the records whose value may meet
+	 * {@code condition}.
+	 * 
+	 * @param condition
+	 *            Condition on the indexed field; folded if the index is.
+	 * 
+	 * @return Record numbers of the candidates; a new set owned by the
+	 *         caller.
+	 */
+	BitSet lookup(final FieldCondition condition) {
+		final BitSet candidates = new BitSet();
+		lock.readLock().lock();
+		try {
+			for (final BitSet recordNumbers : matchingEntries(condition)
+					.values()) {
+				candidates.or(recordNumbers);
+			}
+			return candidates;
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Estimates how many records meet {@code condition}. The estimate assumes
+	 * the records are spread evenly across the distinct values, so only the
+	 * number of values the condition accepts needs to be known.
+	 * 
+	 * @param condition
+	 *            Condition on the indexed field.
+	 * 
+	 * @return Estimated number of matches.
+	 */
+	long estimate(final FieldCondition condition) {
+		lock.readLock().lock();
+		try {
+			if (entries.isEmpty()) {
+				return 0;
+			}
+
+			final long values;
+			switch (condition.getOperator()) {
+			case EQUALS:
+			case IN:
+				values = condition.getValues().length;
+				break;
+
+			default:
+				values = matchingEntries(condition).size();
+				break;
+			}
+
+			/* Round up; a value that exists holds at least one record. */
+			final long cardinality = entries.size();
+			return ((values * size) + cardinality - 1) / cardinality;
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the entries whose value meets {@code condition}. The read lock
+	 * must be held by the caller.
+	 * 
+	 * @param condition
+	 *            Condition on the indexed field.
+	 * 
+	 * @return The matching entries; a view for a range.
+	 */
+	private Map<Key, BitSet> matchingEntries(final FieldCondition condition) {
+		final String[] values = condition.getValues();
+		switch (condition.getOperator()) {
+		case RANGE:
+			final Key low = (values[0] == null) ? null : toKey(values[0]);
+			final Key high = (values[1] == null) ? null : toKey(values[1]);
+			if ((low != null) && (high != null)) {
+				/* An empty range would make the submap throw. */
+				final int result = entries.comparator().compare(low, high);
+				final boolean isClosed = condition.isLowInclusive()
+						&& condition.isHighInclusive();
+				if ((result > 0) || ((result == 0) && !isClosed)) {
+					return new TreeMap<Key, BitSet>(entries.comparator());
+				}
+				return entries.subMap(low, condition.isLowInclusive(), high,
+						condition.isHighInclusive());
+			}
+
+			NavigableMap<Key, BitSet> range = entries;
+			if (low != null) {
+				range = range.tailMap(low, condition.isLowInclusive());
+			}
+			if (high != null) {
+				range = range.headMap(high, condition.isHighInclusive());
+			}
+			return range;
+
+		case PREFIX:
+			/*
+			 * In the natural order the values with a given prefix are
+			 * adjacent, starting at the prefix itself; in any other order they
+			 * may be anywhere.
+			 */
+			final TreeMap<Key, BitSet> prefixed =
+					new TreeMap<Key, BitSet>(entries.comparator());
+			final Map<Key, BitSet> from = (order == null)
+					? entries.tailMap(toKey(values[0]), true) : entries;
+			for (final Map.Entry<Key, BitSet> entry : from.entrySet()) {
+				if (entry.getKey().value.startsWith(values[0])) {
+					prefixed.put(entry.getKey(), entry.getValue());
+				} else if (order == null) {
+					break;
+				}
+			}
+			return prefixed;
+
+		default:
+			final TreeMap<Key, BitSet> matching =
+					new TreeMap<Key, BitSet>(entries.comparator());
+			for (final String value : values) {
+				final Key key = toKey(value);
+				final BitSet recordNumbers = entries.get(key);
+				if (recordNumbers != null) {
+					matching.put(key, recordNumbers);
+				}
+			}
+			return matching;
+		}
+	}
+
+	/**
+	 * A value held by the index, along with the sort key it is compared by.
+	 */
+	private static final class Key {
+
+		/** The value; folded if the index is. */
+		private final String value;
+
+		/** Sort key of the value; the value itself in its natural order. */
+		private final Comparable<?> sortKey;
+
+		/**
+		 * Constructs a new {@code Key}.
+		 * 
+		 * @param value
+		 *            The value; folded if the index is.
+		 * 
+		 * @param sortKey
+		 *            Sort key of the value.
+		 */
+		Key(final String value, final Comparable<?> sortKey) {
+			this.value = value;
+			this.sortKey = sortKey;
+		}
+	}
+}
@@ -0,0 +1,52 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.db;
+
+import java.util.Locale;
+
+/**
+ * Folds the values of a field into the keys they are compared by when case
+ * and surplus whitespace should not matter: the value is trimmed, every run of
+ * whitespace within it is collapsed to a single space and the rest is folded
+ * to lower case. Two values that only differ in those respects fold to the
+ * same key, so a folded key can be looked up in an index rather than every
+ * value being compared regardless of case.
+ * 
+ * @author rsmall
+ */
+final class KeyFolding {
+
+	/**
+	 * Private constructor to prevent it from being instantiated.
+	 */
+	private KeyFolding() {
+	}
+
+	/**
+	 * Returns the folded key of {@code value}.
+	 * 
+	 * @param value
+	 *            Value to fold.
+	 * 
+	 * @return The folded key.
+	 */
+	static String fold(final String value) {
+		final StringBuilder key = new StringBuilder(value.length());
+		boolean isSpace = false;
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			if (Character.isWhitespace(c)) {
+				isSpace = key.length() > 0;
+			} else {
+				if (isSpace) {
+					key.append(' ');
+					isSpace = false;
+				}
+				key.append(c);
+			}
+		}
+		return key.toString().toLowerCase(Locale.ENGLISH);
+	}
+}
@@ -0,0 +1,134 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.db;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Decides how the records meeting a set of {@link FieldCondition}s are found:
+ * by looking up the most selective condition in its {@link FieldIndex},
+ * narrowed down by intersecting the lookups of the next most selective
+ * conditions, or by scanning every record when no index would save much. The
+ * selectivity of each condition is estimated from the statistics of its
+ * index, without looking anything up.
+ * 
+ * <p>
+ * Whichever way is chosen, every record found must still be checked against
+ * every condition; the plan only rules records out.
+ * 
+ * @author rsmall
+ */
+class QueryPlanner {
+
+	/**
+	 * Fraction of the records above which a lookup is not worth it; checking
+	 * that many candidates costs about as much as scanning every record.
+	 */
+	private static final int SCAN_DIVISOR = 2;
+
+	/**
+	 * Number of candidates below which further lookups are not worth it;
+	 * checking so few records is cheaper than intersecting another set.
+	 */
+	private static final int CHECK_THRESHOLD = 8;
+
+	/** A condition along with its index and estimated number of matches. */
+	private static class Step {
+
+		/** Condition looked up. */
+		private final FieldCondition condition;
+
+		/** Index of the condition's field. */
+		private final FieldIndex index;
+
+		/** Estimated number of matches. */
+		private final long estimate;
+
+		/**
+		 * Constructs a new {@code Step}.
+		 * 
+		 * @param condition
+		 *            Condition looked up.
+		 * 
+		 * @param index
+		 *            Index of the condition's field.
+		 */
+		private Step(final FieldCondition condition, final FieldIndex index) {
+			this.condition = condition;
+			this.index = index;
+			this.estimate = index.estimate(condition);
+		}
+	}
+
+	/** Orders the steps from the most to the least selective. */
+	private static final Comparator<Step> BY_ESTIMATE = new Comparator<Step>() {
+
+		@Override
+		public int compare(final Step a, final Step b) {
+			return (a.estimate < b.estimate) ? -1
+					: ((a.estimate == b.estimate) ? 0 : 1);
+		}
+	};
+
+	/**
+	 * Private constructor to prevent it from being instantiated.
+	 */
+	private QueryPlanner() {
+	}
+
+	/**
+	 * Returns the record numbers of the records that may meet every one of
+	 * {@code conditions}, or {@code null} if every record should be scanned
+	 * instead.
+	 * 
+	 * @param conditions
+	 *            Conditions the records must meet.
+	 * 
+	 * @param indexes
+	 *            Index each condition is looked up in, by position;
+	 *            {@code null} for a condition whose field has none. An index
+	 *            that is not yet ready is not used.
+	 * 
+	 * @param recordCount
+	 *            Number of records, including those deleted.
+	 * 
+	 * @return Record numbers of the candidates, or {@code null} to scan.
+	 */
+	static BitSet plan(final FieldCondition[] conditions,
+			final FieldIndex[] indexes, final int recordCount) {
+		final List<Step> steps = new ArrayList<Step>();
+		for (int i = 0; i < conditions.length; i++) {
+			final FieldIndex index = indexes[i];
+			if ((index != null) && index.isReady()) {
+				steps.add(new Step(conditions[i], index));
+			}
+		}
+
+		if (steps.isEmpty()) {
+			return null;
+		}
+
+		Collections.sort(steps, BY_ESTIMATE);
+		final long threshold = recordCount / SCAN_DIVISOR;
+		if (steps.get(0).estimate > threshold) {
+			return null;
+		}
+
+		final Step first = steps.get(0);
+		final BitSet candidates = first.index.lookup(first.condition);
+		for (final Step step : steps.subList(1, steps.size())) {
+			if ((candidates.cardinality() <= CHECK_THRESHOLD)
+					|| (step.estimate > threshold)) {
+				break;
+			}
+			candidates.and(step.index.lookup(step.condition));
+		}
+		return candidates;
+	}
+}
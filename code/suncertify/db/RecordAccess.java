@@ -8,12 +8,27 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import suncertify.db.SnapshotRegistry.Commit;
 
 /**
  * This class is responsible for providing thread-safe functionality to the data
@@ -28,6 +43,25 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * reference to it; otherwise, the cached data and the data in the file may
  * become out of synch or worse, corrupted.
  * 
+ * <p>
+ * Records are never modified in place. Each modification installs a new,
+ * immutable version of the record that is linked to the version it replaces.
+ * Searching and saving read from a snapshot, which sees every record as it was
+ * when the snapshot was opened, without taking any locks. Writers therefore
+ * never block readers and readers never block writers; writers only block
+ * other writers of the same segment. Old versions are discarded once no open
+ * snapshot can see them anymore.
+ * 
+ * <p>
+ * Records are created without locking: the record number is allocated from an
+ * atomic counter and the record is then published into a growable
+ * {@link RecordTable}.
+ * 
+ * <p>
+ * Every committed change is reported to the registered
+ * {@link RecordListener}s by the thread that made it, while the segment of the
+ * record is still locked, so the changes to a record are reported in the order
+ * they were made.
  * 
  * @author rsmall
  */
@@ -50,35 +84,105 @@ class RecordAccess {
 	 */
 	private final int[] recordFormat;
 
-	/** Maps the record number to the appropriate record. */
-	private final Map<Integer, Record> records = new HashMap<Integer, Record>();
+	/**
+	 * Number of segments the records are partitioned into. Must be a power of
+	 * two so that a record number can be mapped to its segment with a mask.
+	 */
+	private static final int SEGMENT_COUNT = 16;
+
+	/** Orders the matches of a search best first, then by record number. */
+	private static final Comparator<TextMatch> BEST_MATCH_FIRST =
+			new Comparator<TextMatch>() {
+
+				@Override
+				public int compare(final TextMatch a, final TextMatch b) {
+					if (a.getScore() != b.getScore()) {
+						return (a.getScore() > b.getScore()) ? -1 : 1;
+					}
+					if (a.getRecordNumber() != b.getRecordNumber()) {
+						return (a.getRecordNumber() < b.getRecordNumber()) ? -1
+								: 1;
+					}
+					return 0;
+				}
+			};
+
+	/**
+	 * Serializes the modifications of the records. The records are partitioned
+	 * into segments, identified by the low bits of the record number, and each
+	 * segment has its own lock so that a writer only blocks other writers
+	 * within the same segment; see {@link #segmentLockFor(int)}.
+	 */
+	private final Lock[] segmentLocks = new Lock[SEGMENT_COUNT];
+
+	/**
+	 * Maps the record number to the latest version of the record. The records
+	 * may be read at any time without locking.
+	 */
+	private final RecordTable<Record> records = new RecordTable<Record>();
+
+	/**
+	 * Number of record numbers, including those of deleted records, that have
+	 * been allocated. A record number is allocated before its record is
+	 * published, so the record may briefly be missing from {@code records}.
+	 */
+	private final AtomicInteger recordCount = new AtomicInteger();
+
+	/** Prevents the database file from being saved by two clients at once. */
+	private final Lock saveLock = new ReentrantLock();
+
+	/** Hands out the commit sequence numbers and tracks the open snapshots. */
+	private final SnapshotRegistry snapshots = new SnapshotRegistry();
+
+	/** Image most recently exported; reused until the records change. */
+	private volatile RecordImage image;
+
+	/**
+	 * Index of each field; {@code null} for a field that has none. Replaced,
+	 * never modified, when an index is created.
+	 */
+	private volatile FieldIndex[] indexes;
+
+	/**
+	 * Folded index of each field; {@code null} for a field that has none.
+	 * Replaced, never modified, when a folded index is created.
+	 */
+	private volatile FieldIndex[] foldedIndexes;
+
+	/**
+	 * Text index of each field; {@code null} for a field that has none.
+	 * Replaced, never modified, when a text index is created.
+	 */
+	private volatile TrigramIndex[] textIndexes;
 
-	/** Limits access to {@code records}. */
-	private final ReadWriteLock recordsLock = new ReentrantReadWriteLock();
+	/** Listeners notified of every committed change. */
+	private final CopyOnWriteArrayList<RecordListener> listeners =
+			new CopyOnWriteArrayList<RecordListener>();
 
 	/**
-	 * Data structure to represent a record within the {@code DatabaseFile}.
+	 * Data structure to represent a version of a record within the
+	 * {@code DatabaseFile}. A version is immutable, apart from the link to its
+	 * predecessor which is severed once no snapshot needs the predecessor.
 	 */
-	private class Record {
+	private static class Record {
 
 		/** Indicates if this record has been deleted. */
-		private boolean isDeleted;
+		private final boolean isDeleted;
 
 		/** Each element identifies a field within the record. */
-		private String[] data;
+		private final String[] data;
 
 		/**
-		 * Constructs a new {@code Record} using the specified {@code fields}.
-		 * By default, the record will not be marked as deleted.
-		 * 
-		 * @param data
-		 *            The fields that will be assigned to the record. Each
-		 *            element in the array will identify a unique field
-		 *            associated with the record as determined by the database.
+		 * Incremented every time the record is modified, allowing a client to
+		 * detect if the record has changed since it was last read.
 		 */
-		private Record(final String[] data) {
-			this(data, false);
-		}
+		private final long version;
+
+		/** Determines which snapshots are able to see this version. */
+		private final Commit commit;
+
+		/** Version of the record this version replaced, if still needed. */
+		private volatile Record previous;
 
 		/**
 		 * Constructs a new {@code Record} using the specified {@code fields}.
@@ -91,10 +195,21 @@ class RecordAccess {
 		 * @param isDeleted
 		 *            Deletion status of the record. {@code true} if the record
 		 *            is deleted; {@code false} otherwise.
+		 * 
+		 * @param previous
+		 *            Version of the record that this version replaces or
+		 *            {@code null} if this is the first version.
+		 * 
+		 * @param commit
+		 *            Determines which snapshots are able to see this version.
 		 */
-		private Record(final String[] data, final boolean isDeleted) {
+		private Record(final String[] data, final boolean isDeleted,
+				final Record previous, final Commit commit) {
 			this.data = data;
 			this.isDeleted = isDeleted;
+			this.version = (previous == null) ? 0 : previous.version + 1;
+			this.previous = previous;
+			this.commit = commit;
 		}
 	}
 
@@ -162,10 +277,31 @@ class RecordAccess {
 		this.database = database;
 		this.offset = offset;
 		this.recordFormat = recordFormat;
+		this.indexes = new FieldIndex[recordFormat.length];
+		this.foldedIndexes = new FieldIndex[recordFormat.length];
+		this.textIndexes = new TrigramIndex[recordFormat.length];
+
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			segmentLocks[i] = new ReentrantLock();
+		}
 
 		loadRecordsFromDatabase();
 	}
 
+	/**
+	 * Returns the lock of the segment responsible for the record specified by
+	 * {@code recNo}. Consecutive record numbers belong to different segments,
+	 * which spreads the modifications across the segments.
+	 * 
+	 * @param recNo
+	 *            Record number of the record.
+	 * 
+	 * @return Lock of the segment responsible for the record.
+	 */
+	private Lock segmentLockFor(final int recNo) {
+		return segmentLocks[recNo & (SEGMENT_COUNT - 1)];
+	}
+
 	/**
 	 * Returns the maximum size, in bytes, of a {@code Record}. This value
 	 * includes the record's deletion status along with all of the fields.
@@ -252,7 +388,7 @@ class RecordAccess {
 			fields[i] = reader.read(recordFormat[i]);
 		}
 
-		return new Record(fields, isDeleted);
+		return new Record(fields, isDeleted, null, Commit.INITIAL);
 	}
 
 	/**
@@ -297,7 +433,6 @@ class RecordAccess {
 	 *             file or if an I/O error occurs while reading the file.
 	 */
 	private void loadRecordsFromDatabase() throws DBIOException {
-		recordsLock.writeLock().lock();
 		try {
 
 			/* Ignore the header and jump straight to the records. */
@@ -311,18 +446,16 @@ class RecordAccess {
 				databaseFile.readFully(input);
 
 				final Record record = toRecord(input);
-				records.put(recordNumber, record);
+				records.set(recordNumber, record);
 
 				recordNumber++;
 			}
 
+			recordCount.set(recordNumber);
 			databaseFile.close();
 
 		} catch (final IOException ex) {
 			throw new DBIOException(ex.getMessage());
-
-		} finally {
-			recordsLock.writeLock().unlock();
 		}
 	}
 
@@ -353,6 +486,187 @@ class RecordAccess {
 		return recordArray;
 	}
 
+	/**
+	 * Returns the newest version of {@code record} that is visible to the
+	 * snapshot identified by {@code snapshot}.
+	 * 
+	 * @param record
+	 *            Latest version of the record; may be {@code null}.
+	 * 
+	 * @param snapshot
+	 *            Sequence number identifying the snapshot.
+	 * 
+	 * @return Version visible to the snapshot or {@code null} if the record
+	 *         did not exist when the snapshot was opened.
+	 */
+	private static Record versionAt(final Record record, final long snapshot) {
+		Record version = record;
+		while ((version != null) && !version.commit.isVisibleTo(snapshot)) {
+			version = version.previous;
+		}
+		return version;
+	}
+
+	/**
+	 * Returns the latest committed version of the record specified by
+	 * {@code recNo}.
+	 * 
+	 * @param recNo
+	 *            Record number of the record to retrieve.
+	 * 
+	 * @return Latest committed version of the record.
+	 * 
+	 * @throws RecordNotFoundException
+	 *             If the record specified by {@code recNo} does not exist.
+	 */
+	private Record getCommittedRecord(final int recNo)
+			throws RecordNotFoundException {
+
+		/*
+		 * The versions are walked from a snapshot; otherwise, the version
+		 * being committed could be stamped, and the one before it discarded,
+		 * while the walk is on its way past it.
+		 */
+		final Record record;
+		final long snapshot = snapshots.open();
+		try {
+			record = versionAt(records.get(recNo), snapshot);
+		} finally {
+			snapshots.close(snapshot);
+		}
+
+		if ((record == null) || record.isDeleted) {
+			throw new RecordNotFoundException();
+		}
+		return record;
+	}
+
+	/**
+	 * Returns the latest version of the record specified by {@code recNo}. The
+	 * lock of the record's segment must be held by the caller.
+	 * 
+	 * @param recNo
+	 *            Record number of the record to retrieve.
+	 * 
+	 * @return Latest version of the record.
+	 * 
+	 * @throws RecordNotFoundException
+	 *             If the record specified by {@code recNo} does not exist.
+	 */
+	private Record getLockedRecord(final int recNo)
+			throws RecordNotFoundException {
+		final Record record = records.get(recNo);
+		if ((record == null) || record.isDeleted) {
+			throw new RecordNotFoundException();
+		}
+		return record;
+	}
+
+	/**
+	 * Installs {@code record} as the latest version of the record specified by
+	 * {@code recNo}, stamps it and discards the versions that are no longer
+	 * visible to any snapshot. The lock of the record's segment must be held
+	 * by the caller.
+	 * 
+	 * @param recNo
+	 *            Record number of the record.
+	 * 
+	 * @param record
+	 *            New version of the record.
+	 */
+	private void install(final int recNo, final Record record) {
+		final Record previous = record.previous;
+		records.set(recNo, record);
+		indexVersion(recNo, record);
+		snapshots.commit(record.commit, Collections.singleton(recNo));
+		unindexReplaced(recNo, previous, record);
+		fireRecordChanged(recNo, previous, record);
+		discardOldVersions(record);
+	}
+
+	/**
+	 * Adds {@code listener} to be notified of every change committed from now
+	 * on.
+	 * 
+	 * @param listener
+	 *            Listener to add.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code listener} is {@code null}.
+	 */
+	void addRecordListener(final RecordListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("listener cannot be null");
+		}
+		listeners.addIfAbsent(listener);
+	}
+
+	/**
+	 * Removes {@code listener}, if it has been added.
+	 * 
+	 * @param listener
+	 *            Listener to remove.
+	 */
+	void removeRecordListener(final RecordListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Notifies the listeners that {@code record} has been committed as the
+	 * latest version of the record specified by {@code recNo}. The lock of the
+	 * record's segment must be held by the caller, unless the record is being
+	 * created.
+	 * 
+	 * @param recNo
+	 *            Record number of the record.
+	 * 
+	 * @param previous
+	 *            Version {@code record} replaced; {@code null} if the record
+	 *            is being created.
+	 * 
+	 * @param record
+	 *            Version that has just been committed.
+	 */
+	private void fireRecordChanged(final int recNo, final Record previous,
+			final Record record) {
+		if (listeners.isEmpty()) {
+			return;
+		}
+
+		final RecordChange change = new RecordChange(recNo,
+				record.commit.getSequence(),
+				((previous == null) || previous.isDeleted) ? null
+						: previous.data,
+				record.isDeleted ? null : record.data);
+
+		for (final RecordListener listener : listeners) {
+			try {
+				listener.recordChanged(change);
+
+			} catch (final RuntimeException ignore) {
+				/*
+				 * The change has already been committed; a failing listener
+				 * must not make it look as though it had not been.
+				 */
+			}
+		}
+	}
+
+	/**
+	 * Discards the versions preceding {@code record} that can no longer be
+	 * seen by any snapshot, present or future. The lock of the record's
+	 * segment must be held by the caller.
+	 * 
+	 * @param record
+	 *            Latest version of a record.
+	 */
+	private void discardOldVersions(final Record record) {
+		final Record oldestNeeded = versionAt(record, snapshots.getHorizon());
+		if (oldestNeeded != null) {
+			oldestNeeded.previous = null;
+		}
+	}
+
 	/**
 	 * Returns the fields belonging to the record specified by {@code recNo}.
 	 * Each element in the array will identify a unique field associated with
@@ -367,16 +681,28 @@ class RecordAccess {
 	 *             If the record specified by {@code recNo} does not exist.
 	 */
 	String[] read(final int recNo) throws RecordNotFoundException {
-		recordsLock.readLock().lock();
-		try {
-			final Record record = records.get(recNo);
-			if ((record == null) || record.isDeleted) {
-				throw new RecordNotFoundException();
-			}
-			return record.data;
-		} finally {
-			recordsLock.readLock().unlock();
-		}
+
+		/*
+		 * Versions are shared between clients, so a copy is returned to keep
+		 * a client from modifying a version that others may be reading.
+		 */
+		return getCommittedRecord(recNo).data.clone();
+	}
+
+	/**
+	 * Returns the version of the record specified by {@code recNo}. The
+	 * version changes every time the record is modified.
+	 * 
+	 * @param recNo
+	 *            Record number of the record whose version will be retrieved.
+	 * 
+	 * @return Current version of the record specified by {@code recNo}.
+	 * 
+	 * @throws RecordNotFoundException
+	 *             If the record specified by {@code recNo} does not exist.
+	 */
+	long getVersion(final int recNo) throws RecordNotFoundException {
+		return getCommittedRecord(recNo).version;
 	}
 
 	/**
@@ -394,12 +720,59 @@ class RecordAccess {
 	 */
 	void update(final int recNo, final String[] data) {
 		verifyFields(data);
-		recordsLock.writeLock().lock();
+		final Lock segmentLock = segmentLockFor(recNo);
+		segmentLock.lock();
 		try {
 			final Record record = records.get(recNo);
-			record.data = data;
+			install(recNo, new Record(data.clone(), false, record, new Commit()));
+		} finally {
+			segmentLock.unlock();
+		}
+	}
+
+	/**
+	 * Updates the fields belonging to the record specified by {@code recNo},
+	 * but only if the record's version still equals {@code expectedVersion}.
+	 * The comparison and the update are performed as a single atomic step.
+	 * 
+	 * @param recNo
+	 *            Record number of the record to update.
+	 * 
+	 * @param expectedVersion
+	 *            Version the record is expected to have.
+	 * 
+	 * @param data
+	 *            The fields that will be assigned to the record. Each element
+	 *            in the array will identify a unique field associated with the
+	 *            record as determined by the database.
+	 * 
+	 * @return {@code true} if the record was updated; {@code false} if the
+	 *         record has been modified since {@code expectedVersion}.
+	 * 
+	 * @throws RecordNotFoundException
+	 *             If the record specified by {@code recNo} does not exist.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code fields} is {@code null}, does not have the correct
+	 *             number of fields, contains a {@code null} field or has a
+	 *             field that exceeds the size its maximum character limit.
+	 */
+	boolean compareAndUpdate(final int recNo, final long expectedVersion,
+			final String[] data) throws RecordNotFoundException {
+		verifyFields(data);
+		final Lock segmentLock = segmentLockFor(recNo);
+		segmentLock.lock();
+		try {
+			final Record record = getLockedRecord(recNo);
+			if (record.version != expectedVersion) {
+				return false;
+			}
+
+			install(recNo, new Record(data.clone(), false, record, new Commit()));
+			return true;
+
 		} finally {
-			recordsLock.writeLock().unlock();
+			segmentLock.unlock();
 		}
 	}
 
@@ -410,12 +783,181 @@ class RecordAccess {
 	 *            Record number of the record to delete.
 	 */
 	void delete(final int recNo) {
-		recordsLock.writeLock().lock();
+		final Lock segmentLock = segmentLockFor(recNo);
+		segmentLock.lock();
 		try {
 			final Record record = records.get(recNo);
-			record.isDeleted = true;
+			install(recNo, new Record(record.data, true, record, new Commit()));
+		} finally {
+			segmentLock.unlock();
+		}
+	}
+
+	/**
+	 * Applies {@code changes} to the records as a single unit. Every new
+	 * version shares the same commit, so a snapshot sees either all of them or
+	 * none of them. The modified records are written to the database before
+	 * they are made visible; if writing fails, the previous versions are
+	 * restored and no change is applied.
+	 * 
+	 * @param changes
+	 *            Maps the record number of each record to modify to its new
+	 *            fields, or to {@code null} if the record is to be deleted.
+	 * 
+	 * @param expectedVersions
+	 *            Maps the record number of a record to the version it is
+	 *            expected to have. Records without an entry are modified
+	 *            regardless of their version.
+	 * 
+	 * @return {@code true} if the changes were applied; {@code false} if a
+	 *         record does not have its expected version, in which case no
+	 *         change was applied.
+	 * 
+	 * @throws RecordNotFoundException
+	 *             If one of the records does not exist.
+	 * 
+	 * @throws DBIOException
+	 *             If the records could not be written to the database.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If any of the new fields are not in the proper format.
+	 */
+	boolean commit(final SortedMap<Integer, String[]> changes,
+			final Map<Integer, Long> expectedVersions)
+			throws RecordNotFoundException, DBIOException {
+
+		for (final String[] data : changes.values()) {
+			if (data != null) {
+				verifyFields(data);
+			}
+		}
+
+		/*
+		 * Lock every segment involved, always in ascending order, so that two
+		 * commits can never deadlock each other.
+		 */
+		final TreeSet<Integer> segmentIndexes = new TreeSet<Integer>();
+		for (final int recNo : changes.keySet()) {
+			segmentIndexes.add(recNo & (SEGMENT_COUNT - 1));
+		}
+		for (final int segmentIndex : segmentIndexes) {
+			segmentLocks[segmentIndex].lock();
+		}
+
+		try {
+			final Record[] previous = new Record[changes.size()];
+			int index = 0;
+			for (final int recNo : changes.keySet()) {
+				previous[index] = getLockedRecord(recNo);
+
+				final Long expectedVersion = expectedVersions.get(recNo);
+				if ((expectedVersion != null)
+						&& (previous[index].version != expectedVersion)) {
+					return false;
+				}
+				index++;
+			}
+
+			/*
+			 * The new versions are installed, but they remain invisible until
+			 * their shared commit has been stamped.
+			 */
+			final Commit commit = new Commit();
+			final Record[] installed = new Record[changes.size()];
+			index = 0;
+			for (final Map.Entry<Integer, String[]> change : changes.entrySet()) {
+				final String[] data = change.getValue();
+				installed[index] = (data == null)
+						? new Record(previous[index].data, true,
+								previous[index], commit)
+						: new Record(data.clone(), false, previous[index],
+								commit);
+
+				records.set(change.getKey(), installed[index]);
+				indexVersion(change.getKey(), installed[index]);
+				index++;
+			}
+
+			/*
+			 * The commit must be stamped before a save can start; otherwise,
+			 * the save would overwrite the records that were just written with
+			 * their previous versions.
+			 */
+			saveLock.lock();
+			try {
+				writeRecords(changes.keySet(), installed);
+				snapshots.commit(commit, changes.keySet());
+
+			} catch (final DBIOException ex) {
+				index = 0;
+				for (final int recNo : changes.keySet()) {
+					records.set(recNo, previous[index]);
+					unindexReplaced(recNo, installed[index], previous[index]);
+					index++;
+				}
+				throw ex;
+
+			} finally {
+				saveLock.unlock();
+			}
+
+			index = 0;
+			for (final int recNo : changes.keySet()) {
+				unindexReplaced(recNo, previous[index], installed[index]);
+				fireRecordChanged(recNo, previous[index], installed[index]);
+				index++;
+			}
+
+			for (final Record record : installed) {
+				discardOldVersions(record);
+			}
+			return true;
+
 		} finally {
-			recordsLock.writeLock().unlock();
+			for (final int segmentIndex : segmentIndexes.descendingSet()) {
+				segmentLocks[segmentIndex].unlock();
+			}
+		}
+	}
+
+	/**
+	 * Writes {@code versions} to their positions within the database file. A
+	 * record that lies beyond the end of the file has never been saved and is
+	 * left for the next {@link #save() save}, which would otherwise leave a
+	 * gap in the file. The {@code saveLock} must be held by the caller.
+	 * 
+	 * @param recordNumbers
+	 *            Record numbers of the records to write, in the same order as
+	 *            {@code versions}.
+	 * 
+	 * @param versions
+	 *            Versions of the records to write.
+	 * 
+	 * @throws DBIOException
+	 *             If the records could not be written to the database.
+	 */
+	private void writeRecords(final Iterable<Integer> recordNumbers,
+			final Record[] versions) throws DBIOException {
+		try {
+			final RandomAccessFile databaseFile = getDatabase();
+			try {
+				int index = 0;
+				for (final int recNo : recordNumbers) {
+					final long position =
+							offset + ((long) recNo * getRecordSize());
+
+					if (position <= databaseFile.length()) {
+						databaseFile.seek(position);
+						databaseFile.write(toByteArray(versions[index]));
+					}
+					index++;
+				}
+			} finally {
+				databaseFile.close();
+			}
+
+		} catch (final IOException ex) {
+			throw new DBIOException(ex.getMessage());
 		}
 	}
 
@@ -453,6 +995,36 @@ class RecordAccess {
 	 *             correct number of elements.
 	 */
 	int[] find(final String[] criteria) {
+		return find(criteria, 0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns an array of at most {@code limit} record numbers that match
+	 * {@code criteria}, in ascending order, starting with the record specified
+	 * by {@code from}. A record is considered a match as described by
+	 * {@link #find(String[])}.
+	 * 
+	 * <p>
+	 * The scan stops as soon as {@code limit} records have matched, so only as
+	 * many record numbers are held as are returned.
+	 * 
+	 * @param criteria
+	 *            Criteria to use when searching for records.
+	 * 
+	 * @param from
+	 *            Record number to start scanning at.
+	 * 
+	 * @param limit
+	 *            Maximum number of record numbers to return.
+	 * 
+	 * @return An array of the record numbers that match {@code criteria}.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code criteria} is {@code null} or does not have the
+	 *             correct number of elements, {@code from} is negative or
+	 *             {@code limit} is less than one.
+	 */
+	int[] find(final String[] criteria, final int from, final int limit) {
 
 		if (criteria == null) {
 			throw new IllegalArgumentException("criteria cannot be null");
@@ -462,63 +1034,697 @@ class RecordAccess {
 			throw new IllegalArgumentException("invalid number of elements");
 		}
 
-		recordsLock.readLock().lock();
-		try {
+		if (from < 0) {
+			throw new IllegalArgumentException("from cannot be negative");
+		}
 
-			final ArrayList<Integer> matchingRecords = new ArrayList<Integer>();
-			for (final int recordNumber : records.keySet()) {
-				final String[] fields = records.get(recordNumber).data;
-
-				boolean isMatch = true;
-				for (int i = 0; i < fields.length; i++) {
-					final String field = fields[i];
-					final String criterion = criteria[i];
-
-					if (criterion == null) {
-						/*
-						 * A null value is considered a wildcard. If we have a
-						 * wildcard, then we can just move on to the next field.
-						 */
-						continue;
-
-					} else if (field.startsWith(criterion)) {
-						/*
-						 * If the fields begins with the associated criteria for
-						 * that field, then we can just move on to the next
-						 * field.
-						 */
-						continue;
-
-					} else {
-						/*
-						 * At this point, the field does not meet the specific
-						 * criteria, so we need to mark it as not matching and
-						 * leave the loop since it doesn't matter if the rest of
-						 * the fields match.
-						 */
-						isMatch = false;
-						break;
-					}
-				}
-				if (isMatch) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("limit must be positive");
+		}
+
+		/*
+		 * The records are scanned from a snapshot, so the scan neither blocks
+		 * nor is blocked by the clients modifying the records, and each record
+		 * is seen as it was when the scan started.
+		 */
+		final ArrayList<Integer> matchingRecords = new ArrayList<Integer>();
+		final long snapshot = snapshots.open();
+		try {
+			final int count = recordCount.get();
+			for (int recordNumber = from; (recordNumber < count)
+					&& (matchingRecords.size() < limit); recordNumber++) {
+				final Record record =
+						versionAt(records.get(recordNumber), snapshot);
+
+				if ((record != null) && !record.isDeleted
+						&& isMatch(record.data, criteria)) {
 					/* This record meets all of the specified criteria. */
 					matchingRecords.add(recordNumber);
 				}
 			}
+		} finally {
+			snapshots.close(snapshot);
+		}
+
+		/* Convert the list of matching record numbers to an array. */
+		final int[] a = new int[matchingRecords.size()];
+		for (int i = 0; i < matchingRecords.size(); i++) {
+			a[i] = matchingRecords.get(i);
+		}
+
+		return a;
+	}
+
+	/**
+	 * Returns the records that match {@code criteria}, holding only the fields
+	 * selected by {@code columns}. A record is considered a match as described
+	 * by {@link #find(String[])}.
+	 * 
+	 * @param criteria
+	 *            Criteria to use when searching for records.
+	 * 
+	 * @param columns
+	 *            {@code true} for each field to return; the other fields are
+	 *            left {@code null}.
+	 * 
+	 * @return Maps the record number of each match to its fields.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code criteria} or {@code columns} is {@code null} or
+	 *             does not have the correct number of elements.
+	 */
+	SortedMap<Integer, String[]> select(final String[] criteria,
+			final boolean[] columns) {
+
+		if (criteria == null) {
+			throw new IllegalArgumentException("criteria cannot be null");
+		}
+
+		if (criteria.length != recordFormat.length) {
+			throw new IllegalArgumentException("invalid number of elements");
+		}
 
-			/* Convert the list of matching record numbers to an array. */
-			final int[] a = new int[matchingRecords.size()];
-			for (int i = 0; i < matchingRecords.size(); i++) {
-				a[i] = matchingRecords.get(i);
+		final ArrayList<FieldCondition> conditions =
+				new ArrayList<FieldCondition>();
+		for (int i = 0; i < criteria.length; i++) {
+			if (criteria[i] != null) {
+				conditions.add(FieldCondition.startsWith(i, criteria[i]));
 			}
+		}
+		return select(conditions.toArray(new FieldCondition[conditions.size()]),
+				columns);
+	}
 
-			return a;
+	/**
+	 * Returns the records that meet every one of {@code conditions}, holding
+	 * only the fields selected by {@code columns}.
+	 * 
+	 * <p>
+	 * The {@link QueryPlanner} decides whether the indexes are looked up or
+	 * every record is scanned. The indexes follow the latest commits rather
+	 * than the snapshot being read, but a version that has been replaced is
+	 * only removed from them once its replacement has been committed; so any
+	 * record they miss has been committed since the snapshot was opened, and
+	 * is found in the change log. Should the change log no longer know every
+	 * such record, every record is scanned after all. A
+	 * {@link FieldCondition#folded() folded} condition is looked up in the
+	 * folded index of its field rather than in its index.
+	 * 
+	 * @param conditions
+	 *            Conditions the records must meet; every record meets none.
+	 * 
+	 * @param columns
+	 *            {@code true} for each field to return; the other fields are
+	 *            left {@code null}.
+	 * 
+	 * @return Maps the record number of each match to its fields.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code conditions} or {@code columns} is {@code null},
+	 *             {@code conditions} contains {@code null} or a condition on a
+	 *             field that does not exist, or {@code columns} does not have
+	 *             the correct number of elements.
+	 */
+	SortedMap<Integer, String[]> select(final FieldCondition[] conditions,
+			final boolean[] columns) {
+		final SortedMap<Integer, String[]> matchingRecords =
+				new TreeMap<Integer, String[]>();
+		select(conditions, columns, new RecordCollector() {
+
+			@Override
+			public boolean collect(final int recNo, final String[] fields) {
+				matchingRecords.put(recNo, fields);
+				return true;
+			}
+		});
+		return matchingRecords;
+	}
 
+	/**
+	 * Hands each record that meets every one of {@code conditions}, holding
+	 * only the fields selected by {@code columns}, to {@code collector}, as
+	 * found by {@link #select(FieldCondition[], boolean[]) select}, until the
+	 * collector asks to stop.
+	 * 
+	 * @param conditions
+	 *            Conditions the records must meet; every record meets none.
+	 * 
+	 * @param columns
+	 *            {@code true} for each field to return; the other fields are
+	 *            left {@code null}.
+	 * 
+	 * @param collector
+	 *            Receives the matches, in ascending order of record number.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code conditions}, {@code columns} or {@code collector}
+	 *             is {@code null}, {@code conditions} contains {@code null} or
+	 *             a condition on a field that does not exist, or
+	 *             {@code columns} does not have the correct number of
+	 *             elements.
+	 */
+	void select(final FieldCondition[] conditions, final boolean[] columns,
+			final RecordCollector collector) {
+
+		if ((conditions == null) || (columns == null) || (collector == null)) {
+			throw new IllegalArgumentException("arguments cannot be null");
+		}
+
+		for (final FieldCondition condition : conditions) {
+			if ((condition == null)
+					|| (condition.getField() >= recordFormat.length)) {
+				throw new IllegalArgumentException("invalid condition");
+			}
+		}
+
+		if (columns.length != recordFormat.length) {
+			throw new IllegalArgumentException("invalid number of elements");
+		}
+
+		/*
+		 * Matching and copying from the same snapshot hands back every match
+		 * as it was when it matched, without looking each record up again.
+		 */
+		final FieldIndex[] current = indexes;
+		final FieldIndex[] currentFolded = foldedIndexes;
+		final FieldIndex[] conditionIndexes = new FieldIndex[conditions.length];
+		for (int i = 0; i < conditions.length; i++) {
+			final int field = conditions[i].getField();
+			conditionIndexes[i] = conditions[i].isFolded()
+					? currentFolded[field] : current[field];
+		}
+
+		final long snapshot = snapshots.open();
+		try {
+			final int count = recordCount.get();
+
+			/* The change log must be read after the indexes. */
+			final BitSet candidates = addChanges(QueryPlanner.plan(conditions,
+					conditionIndexes, count), snapshot);
+
+			int recordNumber = (candidates == null) ? 0 : candidates
+					.nextSetBit(0);
+			while ((recordNumber >= 0) && (recordNumber < count)) {
+				final Record record =
+						versionAt(records.get(recordNumber), snapshot);
+
+				if ((record != null) && !record.isDeleted
+						&& meetsConditions(record.data, conditions, current)
+						&& !collector.collect(recordNumber,
+								project(record.data, columns))) {
+					break;
+				}
+
+				recordNumber = (candidates == null) ? recordNumber + 1
+						: candidates.nextSetBit(recordNumber + 1);
+			}
 		} finally {
-			recordsLock.readLock().unlock();
+			snapshots.close(snapshot);
 		}
 	}
 
+	/**
+	 * Determines if {@code fields} meet every one of {@code conditions}, each
+	 * compared in the order of the field's index; a folded condition always
+	 * compares the folded keys in their natural order.
+	 * 
+	 * @param fields
+	 *            Fields of the record to evaluate.
+	 * 
+	 * @param conditions
+	 *            Conditions the record must meet.
+	 * 
+	 * @param current
+	 *            Index of each field.
+	 * 
+	 * @return {@code true} if the record meets every condition.
+	 */
+	private static boolean meetsConditions(final String[] fields,
+			final FieldCondition[] conditions, final FieldIndex[] current) {
+		for (final FieldCondition condition : conditions) {
+			final int field = condition.getField();
+			final Comparator<String> order =
+					(current[field] == null) ? null : current[field].getOrder();
+			if (!condition.matches(fields[field], order)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Creates an index of the field identified by {@code field}, replacing any
+	 * index it already has. The index is kept up to date from now on, but is
+	 * only used once every existing record has been added to it.
+	 * 
+	 * @param field
+	 *            Index of the field within a record.
+	 * 
+	 * @param order
+	 *            Order the values of the field are compared in; {@code null}
+	 *            for their natural order.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the field does not exist.
+	 */
+	void createIndex(final int field, final Comparator<String> order) {
+		if ((field < 0) || (field >= recordFormat.length)) {
+			throw new IllegalArgumentException("field does not exist");
+		}
+
+		/*
+		 * The index is published before the records are added, so that a
+		 * record created in the meantime adds itself if it is not seen here.
+		 */
+		final FieldIndex index = new FieldIndex(order, false);
+		final FieldIndex[] replacement = indexes.clone();
+		replacement[field] = index;
+		indexes = replacement;
+
+		fill(field, index);
+	}
+
+	/**
+	 * Creates a folded index of the field identified by {@code field},
+	 * replacing any folded index it already has, through which the
+	 * {@link FieldCondition#folded() folded} conditions on the field are
+	 * answered. The folded index is kept up to date from now on, but is only
+	 * used once every existing record has been added to it.
+	 * 
+	 * @param field
+	 *            Index of the field within a record.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the field does not exist.
+	 */
+	void createFoldedIndex(final int field) {
+		if ((field < 0) || (field >= recordFormat.length)) {
+			throw new IllegalArgumentException("field does not exist");
+		}
+
+		/* Published before the records are added, as by createIndex. */
+		final FieldIndex index = new FieldIndex(null, true);
+		final FieldIndex[] replacement = foldedIndexes.clone();
+		replacement[field] = index;
+		foldedIndexes = replacement;
+
+		fill(field, index);
+	}
+
+	/**
+	 * Creates a text index of the field identified by {@code field},
+	 * replacing any text index it already has. The text index is kept up to
+	 * date from now on, but is only used once every existing record has been
+	 * added to it.
+	 * 
+	 * @param field
+	 *            Index of the field within a record.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the field does not exist.
+	 */
+	void createTextIndex(final int field) {
+		if ((field < 0) || (field >= recordFormat.length)) {
+			throw new IllegalArgumentException("field does not exist");
+		}
+
+		/* Published before the records are added, as by createIndex. */
+		final TrigramIndex index = new TrigramIndex();
+		final TrigramIndex[] replacement = textIndexes.clone();
+		replacement[field] = index;
+		textIndexes = replacement;
+
+		fill(field, index);
+	}
+
+	/**
+	 * Adds the field identified by {@code field} of every existing record to
+	 * {@code index}, which must already have been published, then marks it
+	 * ready.
+	 * 
+	 * @param field
+	 *            Index of the field within a record.
+	 * 
+	 * @param index
+	 *            Index to fill.
+	 */
+	private void fill(final int field, final ValueIndex index) {
+		/*
+		 * With every segment locked, no version can be between being installed
+		 * and being committed, apart from those of the records being created.
+		 */
+		for (final Lock segmentLock : segmentLocks) {
+			segmentLock.lock();
+		}
+		try {
+			final int count = recordCount.get();
+			for (int recordNumber = 0; recordNumber < count; recordNumber++) {
+				final Record record = records.get(recordNumber);
+				if ((record != null) && !record.isDeleted) {
+					index.add(record.data[field], recordNumber);
+				}
+			}
+		} finally {
+			for (int i = segmentLocks.length - 1; i >= 0; i--) {
+				segmentLocks[i].unlock();
+			}
+		}
+		index.markReady();
+	}
+
+	/**
+	 * Returns the records holding {@code text}, or a value that resembles it,
+	 * in any of the fields identified by {@code fields}, best match first.
+	 * The text is matched regardless of case. A record that holds the text
+	 * always ranks above one that only resembles it; otherwise the records are
+	 * ranked by how similar the closest field is to the text, then by record
+	 * number.
+	 * 
+	 * <p>
+	 * The candidates are looked up in the {@link TrigramIndex text indexes} of
+	 * the fields, and checked against a single snapshot, which the records are
+	 * read from; as by {@link #select(FieldCondition[], boolean[]) select}, the
+	 * records committed since the snapshot was opened are found in the change
+	 * log. Every record is scanned if one of the fields has no text index, or
+	 * if the text is too short to be looked up.
+	 * 
+	 * @param fields
+	 *            Indexes of the fields to search.
+	 * 
+	 * @param text
+	 *            Text to search for.
+	 * 
+	 * @param minSimilarity
+	 *            Similarity, between zero and one, a field that does not hold
+	 *            {@code text} must reach for the record to match.
+	 * 
+	 * @param limit
+	 *            Maximum number of records returned.
+	 * 
+	 * @return The matches, best first.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code fields} or {@code text} is {@code null}, a field
+	 *             does not exist, {@code minSimilarity} is not greater than
+	 *             zero and at most one, or {@code limit} is less than one.
+	 */
+	List<TextMatch> search(final int[] fields, final String text,
+			final float minSimilarity, final int limit) {
+
+		if ((fields == null) || (text == null)) {
+			throw new IllegalArgumentException("arguments cannot be null");
+		}
+
+		for (final int field : fields) {
+			if ((field < 0) || (field >= recordFormat.length)) {
+				throw new IllegalArgumentException("field does not exist");
+			}
+		}
+
+		if (!(minSimilarity > 0) || (minSimilarity > 1)) {
+			throw new IllegalArgumentException("invalid similarity");
+		}
+
+		if (limit < 1) {
+			throw new IllegalArgumentException("limit must be positive");
+		}
+
+		final String folded = KeyFolding.fold(text);
+		final Set<String> trigrams = TrigramIndex.trigrams(folded);
+
+		/* Each value is scored once, however many records hold it. */
+		final Map<String, Float> scores = new HashMap<String, Float>();
+
+		/* The worst of the best matches so far is kept at the head. */
+		final PriorityQueue<TextMatch> best =
+				new PriorityQueue<TextMatch>(Math.min(limit, 16), Collections
+						.reverseOrder(BEST_MATCH_FIRST));
+
+		final TrigramIndex[] current = textIndexes;
+		final long snapshot = snapshots.open();
+		try {
+			final int count = recordCount.get();
+
+			BitSet candidates = new BitSet();
+			final boolean isIndexed =
+					!TrigramIndex.innerTrigrams(folded).isEmpty();
+			for (final int field : fields) {
+				final TrigramIndex index = current[field];
+				if (!isIndexed || (index == null) || !index.isReady()) {
+					candidates = null;
+					break;
+				}
+				candidates.or(index.lookup(folded, trigrams, minSimilarity,
+						scores));
+			}
+
+			/* The change log must be read after the indexes. */
+			candidates = addChanges(candidates, snapshot);
+
+			int recordNumber = (candidates == null) ? 0 : candidates
+					.nextSetBit(0);
+			while ((recordNumber >= 0) && (recordNumber < count)) {
+				final Record record =
+						versionAt(records.get(recordNumber), snapshot);
+
+				if ((record != null) && !record.isDeleted) {
+					float score = 0;
+					for (final int field : fields) {
+						final String value = record.data[field];
+						Float valueScore = scores.get(value);
+						if (valueScore == null) {
+							valueScore = TrigramIndex.score(folded, trigrams,
+									value, minSimilarity);
+							scores.put(value, valueScore);
+						}
+						score = Math.max(score, valueScore);
+					}
+
+					/* The fields are only copied once the record is kept. */
+					if (score > 0) {
+						best.offer(new TextMatch(recordNumber, record.data,
+								score));
+						if (best.size() > limit) {
+							best.poll();
+						}
+					}
+				}
+
+				recordNumber = (candidates == null) ? recordNumber + 1
+						: candidates.nextSetBit(recordNumber + 1);
+			}
+		} finally {
+			snapshots.close(snapshot);
+		}
+
+		final List<TextMatch> matches = new ArrayList<TextMatch>(best.size());
+		while (!best.isEmpty()) {
+			final TextMatch match = best.poll();
+			matches.add(new TextMatch(match.getRecordNumber(), match.getData()
+					.clone(), match.getScore()));
+		}
+		Collections.reverse(matches);
+		return matches;
+	}
+
+	/**
+	 * Adds the records committed since {@code snapshot} was opened to
+	 * {@code candidates}, which were looked up in the indexes, so that no
+	 * record the snapshot sees is missed because the indexes have moved on.
+	 * The change log must be read after the indexes.
+	 * 
+	 * @param candidates
+	 *            Candidates looked up in the indexes; {@code null} if every
+	 *            record is to be scanned.
+	 * 
+	 * @param snapshot
+	 *            Snapshot being read.
+	 * 
+	 * @return {@code candidates}, or {@code null} if every record must be
+	 *         scanned because the change log no longer knows every change.
+	 */
+	private BitSet addChanges(final BitSet candidates, final long snapshot) {
+		if (candidates == null) {
+			return null;
+		}
+
+		final Set<Integer> changed = new HashSet<Integer>();
+		if (!snapshots.collectChanges(snapshot, Long.MAX_VALUE, changed)) {
+			return null;
+		}
+		for (final int recNo : changed) {
+			candidates.set(recNo);
+		}
+		return candidates;
+	}
+
+	/**
+	 * Adds the values of {@code version} to every index. Invoked before the
+	 * version is committed, so the indexes never miss a committed version.
+	 * 
+	 * @param recNo
+	 *            Record number of the record.
+	 * 
+	 * @param version
+	 *            Version that has been installed.
+	 */
+	private void indexVersion(final int recNo, final Record version) {
+		if (version.isDeleted) {
+			return;
+		}
+
+		final FieldIndex[] current = indexes;
+		final FieldIndex[] currentFolded = foldedIndexes;
+		final TrigramIndex[] currentText = textIndexes;
+		for (int field = 0; field < current.length; field++) {
+			if (current[field] != null) {
+				current[field].add(version.data[field], recNo);
+			}
+			if (currentFolded[field] != null) {
+				currentFolded[field].add(version.data[field], recNo);
+			}
+			if (currentText[field] != null) {
+				currentText[field].add(version.data[field], recNo);
+			}
+		}
+	}
+
+	/**
+	 * Removes the values of {@code replaced} that {@code replacement} does not
+	 * share from every index. Invoked once {@code replacement} has been
+	 * committed, or once {@code replaced} has been rolled back.
+	 * 
+	 * @param recNo
+	 *            Record number of the record.
+	 * 
+	 * @param replaced
+	 *            Version that is no longer the latest; may be {@code null}.
+	 * 
+	 * @param replacement
+	 *            Version that is now the latest.
+	 */
+	private void unindexReplaced(final int recNo, final Record replaced,
+			final Record replacement) {
+		if ((replaced == null) || replaced.isDeleted) {
+			return;
+		}
+
+		final TrigramIndex[] currentText = textIndexes;
+		for (int field = 0; field < currentText.length; field++) {
+			final String value = replaced.data[field];
+			if ((currentText[field] != null)
+					&& (replacement.isDeleted || !value
+							.equals(replacement.data[field]))) {
+				currentText[field].remove(value, recNo);
+			}
+		}
+
+		unindexReplaced(recNo, replaced, replacement, indexes);
+		unindexReplaced(recNo, replaced, replacement, foldedIndexes);
+	}
+
+	/**
+	 * Removes the values of {@code replaced} that {@code replacement} does not
+	 * share from each of {@code current}, comparing the keys the values are
+	 * held under.
+	 * 
+	 * @param recNo
+	 *            Record number of the record.
+	 * 
+	 * @param replaced
+	 *            Version that is no longer the latest.
+	 * 
+	 * @param replacement
+	 *            Version that is now the latest.
+	 * 
+	 * @param current
+	 *            Index of each field; {@code null} for a field that has none.
+	 */
+	private static void unindexReplaced(final int recNo,
+			final Record replaced, final Record replacement,
+			final FieldIndex[] current) {
+		for (int field = 0; field < current.length; field++) {
+			final FieldIndex index = current[field];
+			if (index == null) {
+				continue;
+			}
+
+			final String value = replaced.data[field];
+			if (replacement.isDeleted
+					|| (FieldCondition.compare(index.key(value),
+							index.key(replacement.data[field]),
+							index.getOrder()) != 0)) {
+				index.remove(value, recNo);
+			}
+		}
+	}
+
+	/**
+	 * Returns a copy of {@code fields} holding only the fields selected by
+	 * {@code columns}.
+	 * 
+	 * @param fields
+	 *            Fields of the record.
+	 * 
+	 * @param columns
+	 *            {@code true} for each field to copy.
+	 * 
+	 * @return The selected fields; the others are {@code null}.
+	 */
+	private static String[] project(final String[] fields,
+			final boolean[] columns) {
+		final String[] projected = new String[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			if (columns[i]) {
+				projected[i] = fields[i];
+			}
+		}
+		return projected;
+	}
+
+	/**
+	 * Determines if {@code fields} begin with the corresponding non-null
+	 * elements of {@code criteria}.
+	 * 
+	 * @param fields
+	 *            Fields of the record to evaluate.
+	 * 
+	 * @param criteria
+	 *            Criteria to use when evaluating the record.
+	 * 
+	 * @return {@code true} if the record meets all of the criteria;
+	 *         {@code false} otherwise.
+	 */
+	private boolean isMatch(final String[] fields, final String[] criteria) {
+		for (int i = 0; i < fields.length; i++) {
+			final String field = fields[i];
+			final String criterion = criteria[i];
+
+			if (criterion == null) {
+				/*
+				 * A null value is considered a wildcard. If we have a wildcard,
+				 * then we can just move on to the next field.
+				 */
+				continue;
+
+			} else if (field.startsWith(criterion)) {
+				/*
+				 * If the fields begins with the associated criteria for that
+				 * field, then we can just move on to the next field.
+				 */
+				continue;
+
+			} else {
+				/*
+				 * At this point, the field does not meet the specific criteria,
+				 * so there is no need to check the rest of the fields.
+				 */
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Ensures that {@code fields} adheres to the proper format.
 	 * 
@@ -571,15 +1777,110 @@ class RecordAccess {
 	 */
 	int create(final String[] data) {
 		verifyFields(data);
-		recordsLock.writeLock().lock();
+
+		/*
+		 * Nobody else can obtain the new record number, so the record can be
+		 * published without locking. Until it has been committed, the record
+		 * is treated as though it does not exist.
+		 */
+		final int recordNumber = recordCount.getAndIncrement();
+		final Record record = new Record(data.clone(), false, null, new Commit());
+
+		records.set(recordNumber, record);
+		indexVersion(recordNumber, record);
+		snapshots.commit(record.commit, Collections.singleton(recordNumber));
+		fireRecordChanged(recordNumber, null, record);
+		return recordNumber;
+	}
+
+	/**
+	 * Returns an image of every record, laid out exactly as the records are
+	 * stored in the database file, as of the latest commit. The image is read
+	 * from a snapshot and is only rebuilt once a modification has been
+	 * committed, so exporting records that have not changed costs nothing.
+	 * 
+	 * @return Image of every record.
+	 */
+	RecordImage exportImage() {
+		final RecordImage current = image;
+		if ((current != null)
+				&& (current.getSequence() == snapshots.currentSequence())) {
+			return current;
+		}
+
+		final long snapshot = snapshots.open();
 		try {
-			final int recordNumber = records.size() + 1;
-			final Record record = new Record(data);
-			records.put(recordNumber, record);
-			return recordNumber;
+			final int recordSize = getRecordSize();
+			final int count = recordCount.get();
+
+			/*
+			 * A direct buffer can be written to a channel without first being
+			 * copied out of the heap. It starts out zeroed, so a record that
+			 * does not exist only needs to be marked as deleted.
+			 */
+			final ByteBuffer buffer =
+					ByteBuffer.allocateDirect(count * recordSize);
+			for (int index = 0; index < count; index++) {
+				final Record record = versionAt(records.get(index), snapshot);
+				if (record == null) {
+					buffer.put(index * recordSize, (byte) 1);
+				} else {
+					buffer.position(index * recordSize);
+					buffer.put(toByteArray(record));
+				}
+			}
+			buffer.clear();
+
+			final RecordImage exported =
+					new RecordImage(snapshot, buffer.asReadOnlyBuffer());
+			image = exported;
+			return exported;
 
 		} finally {
-			recordsLock.writeLock().unlock();
+			snapshots.close(snapshot);
+		}
+	}
+
+	/**
+	 * Returns the records changed by the commits stamped after
+	 * {@code sequence}, as of the latest commit. Should those changes no
+	 * longer be remembered, or should {@code sequence} not have been handed
+	 * out yet, every record is returned instead.
+	 * 
+	 * @param sequence
+	 *            Commit sequence number the changes are wanted after.
+	 * 
+	 * @return The changed records, or every record.
+	 */
+	RecordDelta changesSince(final long sequence) {
+		final TreeMap<Integer, String[]> changes =
+				new TreeMap<Integer, String[]>();
+
+		final long snapshot = snapshots.open();
+		try {
+			final TreeSet<Integer> changed = new TreeSet<Integer>();
+			if ((sequence >= 0) && (sequence <= snapshot)
+					&& snapshots.collectChanges(sequence, snapshot, changed)) {
+
+				for (final int recNo : changed) {
+					final Record record = versionAt(records.get(recNo), snapshot);
+					changes.put(recNo, ((record == null) || record.isDeleted)
+							? null : record.data.clone());
+				}
+				return new RecordDelta(snapshot, false, changes);
+			}
+
+			final int count = recordCount.get();
+			for (int recNo = 0; recNo < count; recNo++) {
+				final Record record = versionAt(records.get(recNo), snapshot);
+				if ((record != null) && !record.isDeleted) {
+					changes.put(recNo, record.data.clone());
+				}
+			}
+			return new RecordDelta(snapshot, true, changes);
+
+		} finally {
+			snapshots.close(snapshot);
 		}
 	}
 
@@ -599,17 +1900,32 @@ class RecordAccess {
 	 *             file or if an I/O error occurs while saving the records.
 	 */
 	void save() throws DBIOException {
-		recordsLock.writeLock().lock();
+
+		/*
+		 * The records are written from a snapshot, so clients may continue to
+		 * modify and create records while they are being saved.
+		 */
+		saveLock.lock();
+		final long snapshot = snapshots.open();
 		try {
 
 			/* Ignore the header and jump straight to the records. */
 			final RandomAccessFile databaseFile = getDatabase();
 			databaseFile.seek(offset);
 
-			for (int index = 0; index < records.size(); index++) {
-				final Record record = records.get(index);
-				final byte[] data = toByteArray(record);
-				databaseFile.write(data);
+			/*
+			 * Records are stored by position, so only the leading records that
+			 * are visible to the snapshot can be written. A record that is
+			 * still being created ends the run; it and the records following
+			 * it will be written by the next save.
+			 */
+			final int count = recordCount.get();
+			for (int index = 0; index < count; index++) {
+				final Record record = versionAt(records.get(index), snapshot);
+				if (record == null) {
+					break;
+				}
+				databaseFile.write(toByteArray(record));
 			}
 
 			databaseFile.close();
@@ -618,7 +1934,8 @@ class RecordAccess {
 			throw new DBIOException(ex.getMessage());
 
 		} finally {
-			recordsLock.writeLock().unlock();
+			snapshots.close(snapshot);
+			saveLock.unlock();
 		}
 	}
 }
\ No newline at end of file
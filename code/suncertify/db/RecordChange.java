@@ -0,0 +1,92 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.db;
+
+/**
+ * Describes a single committed change to a record: the fields the record had
+ * before the change and the fields it has after it.
+ * 
+ * @author rsmall
+ */
+public final class RecordChange {
+
+	/** Record number of the record that changed. */
+	private final int recNo;
+
+	/** Commit sequence number the change was committed with. */
+	private final long sequence;
+
+	/** Fields before the change; {@code null} if the record was created. */
+	private final String[] previousData;
+
+	/** Fields after the change; {@code null} if the record was deleted. */
+	private final String[] data;
+
+	/**
+	 * Constructs a new {@code RecordChange}. The arrays are not copied and
+	 * must not be modified afterwards.
+	 * 
+	 * @param recNo
+	 *            Record number of the record that changed.
+	 * 
+	 * @param sequence
+	 *            Commit sequence number the change was committed with.
+	 * 
+	 * @param previousData
+	 *            Fields before the change; {@code null} if the record was
+	 *            created.
+	 * 
+	 * @param data
+	 *            Fields after the change; {@code null} if the record was
+	 *            deleted.
+	 */
+	RecordChange(final int recNo, final long sequence,
+			final String[] previousData, final String[] data) {
+		this.recNo = recNo;
+		this.sequence = sequence;
+		this.previousData = previousData;
+		this.data = data;
+	}
+
+	/**
+	 * Returns the record number of the record that changed.
+	 * 
+	 * @return Record number of the record.
+	 */
+	public int getRecordNumber() {
+		return recNo;
+	}
+
+	/**
+	 * Returns the commit sequence number the change was committed with. The
+	 * changes to a record are committed with ever increasing sequence numbers;
+	 * the changes made by a single transaction share the same one.
+	 * 
+	 * @return Commit sequence number of the change.
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Returns the fields the record had before the change.
+	 * 
+	 * @return Copy of the previous fields, or {@code null} if the record was
+	 *         created by the change.
+	 */
+	public String[] getPreviousData() {
+		return (previousData == null) ? null : previousData.clone();
+	}
+
+	/**
+	 * Returns the fields the record has after the change.
+	 * 
+	 * @return Copy of the new fields, or {@code null} if the record was
+	 *         deleted by the change.
+	 */
+	public String[] getData() {
+		return (data == null) ? null : data.clone();
+	}
+}
@@ -0,0 +1,36 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.db;
+
+/**
+ * Receives the matches of a search one at a time, as they are found; see
+ * {@link DBAdapter#select(FieldCondition[], boolean[], RecordCollector)
+ * select}. The collector decides what to keep and when the search may stop,
+ * so a search that needs only a few of the matches neither reads nor holds
+ * on to the rest.
+ * 
+ * @author rsmall
+ */
+public interface RecordCollector {
+
+	/**
+	 * Invoked for each match, in ascending order of record number.
+	 * 
+	 * <p>
+	 * This method is invoked while the search holds a snapshot of the records
+	 * open, so it must return quickly and must not modify the records itself.
+	 * 
+	 * @param recNo
+	 *            Record number of the match.
+	 * 
+	 * @param fields
+	 *            The selected fields of the match; the others are
+	 *            {@code null}. The array is the collector's to keep.
+	 * 
+	 * @return {@code true} to carry on with the search; {@code false} to stop
+	 *         it here.
+	 */
+	public boolean collect(final int recNo, final String[] fields);
+}
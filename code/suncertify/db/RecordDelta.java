@@ -0,0 +1,83 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.db;
+
+import java.util.Collections;
+import java.util.SortedMap;
+
+/**
+ * Holds the records that changed after a given commit sequence number, as
+ * they are as of a later one; see {@link DBAdapter#changesSince(long)
+ * changesSince}. Should the changes no longer be known, the delta is
+ * {@link #isFull() full} and holds every record instead.
+ * 
+ * @author rsmall
+ */
+public final class RecordDelta {
+
+	/** Commit sequence number the records are read as of. */
+	private final long sequence;
+
+	/** Indicates every record is held, rather than only the changed ones. */
+	private final boolean isFull;
+
+	/**
+	 * Maps the record number of each record held to its fields, or to
+	 * {@code null} if the record has been deleted.
+	 */
+	private final SortedMap<Integer, String[]> records;
+
+	/**
+	 * Constructs a new {@code RecordDelta}. The fields must be copies that
+	 * nobody else refers to.
+	 * 
+	 * @param sequence
+	 *            Commit sequence number the records are read as of.
+	 * 
+	 * @param isFull
+	 *            {@code true} if every record is held.
+	 * 
+	 * @param records
+	 *            Maps the record number of each record held to its fields, or
+	 *            to {@code null} if the record has been deleted.
+	 */
+	RecordDelta(final long sequence, final boolean isFull,
+			final SortedMap<Integer, String[]> records) {
+		this.sequence = sequence;
+		this.isFull = isFull;
+		this.records = Collections.unmodifiableSortedMap(records);
+	}
+
+	/**
+	 * Returns the commit sequence number the records are read as of; the
+	 * sequence number to ask for the next changes after.
+	 * 
+	 * @return Commit sequence number of the delta.
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Returns {@code true} if every record that exists is held, because the
+	 * changes made since the requested sequence number are no longer known.
+	 * The records that are not held have then been deleted.
+	 * 
+	 * @return {@code true} if the delta replaces every record.
+	 */
+	public boolean isFull() {
+		return isFull;
+	}
+
+	/**
+	 * Returns the records held, ordered by record number. A record that has
+	 * been deleted maps to {@code null}; a full delta holds none of those.
+	 * 
+	 * @return Unmodifiable map of the record numbers to the fields.
+	 */
+	public SortedMap<Integer, String[]> getRecords() {
+		return records;
+	}
+}
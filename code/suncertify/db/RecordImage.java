@@ -0,0 +1,63 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.db;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An immutable image of every record, laid out exactly as the records are
+ * stored in the database file, as of a single commit sequence number. The
+ * record specified by {@code recNo} starts at {@code recNo * recordSize}; a
+ * record that did not exist as of the sequence number is marked as deleted.
+ * 
+ * <p>
+ * Since the image never changes, it may be handed to any number of clients at
+ * once without copying it.
+ * 
+ * @author rsmall
+ */
+public final class RecordImage {
+
+	/** Commit sequence number the image was taken at. */
+	private final long sequence;
+
+	/** The records, read-only. */
+	private final ByteBuffer records;
+
+	/**
+	 * Constructs a new {@code RecordImage}.
+	 * 
+	 * @param sequence
+	 *            Commit sequence number the image was taken at.
+	 * 
+	 * @param records
+	 *            The records, read-only and positioned at the first record.
+	 */
+	RecordImage(final long sequence, final ByteBuffer records) {
+		this.sequence = sequence;
+		this.records = records;
+	}
+
+	/**
+	 * Returns the commit sequence number the image was taken at. A later
+	 * image with the same sequence number holds the very same records.
+	 * 
+	 * @return Commit sequence number of the image.
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Returns the records held by the image. Each call returns a new view of
+	 * the same bytes, positioned at the first record, so the callers do not
+	 * affect each other.
+	 * 
+	 * @return Read-only view of the records.
+	 */
+	public ByteBuffer getRecords() {
+		return records.duplicate();
+	}
+}
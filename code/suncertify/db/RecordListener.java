@@ -0,0 +1,29 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.db;
+
+/**
+ * Receives a {@link RecordChange} every time a record is created, updated or
+ * deleted; see {@link DBAdapter#addRecordListener(RecordListener)
+ * addRecordListener}.
+ * 
+ * @author rsmall
+ */
+public interface RecordListener {
+
+	/**
+	 * Invoked once {@code change} has been committed.
+	 * 
+	 * <p>
+	 * This method is invoked by the thread that made the change while the
+	 * record is still locked, so that the changes to a record are always
+	 * received in the order they were made. It must therefore return quickly
+	 * and must not modify the records itself.
+	 * 
+	 * @param change
+	 *            Describes the change made to the record.
+	 */
+	public void recordChanged(final RecordChange change);
+}
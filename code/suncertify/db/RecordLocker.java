@@ -21,6 +21,12 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  */
 class RecordLocker {
 
+	/**
+	 * Returned by {@link #tryLock(int) tryLock} when the record could not be
+	 * locked. Cookies are thread identifiers, which are never negative.
+	 */
+	static final long NOT_LOCKED = -1;
+
 	/** Maps the record number to the cookie that holds a lock on it. */
 	private final Map<Integer, Long> lockedRecords =
 			new HashMap<Integer, Long>();
@@ -133,6 +139,55 @@ class RecordLocker {
 		}
 	}
 
+	/**
+	 * Determines if the record, specified by {@code recNo}, is locked by the
+	 * calling client; that is, if {@link #lock(int) lock} would hand back a
+	 * lock the client already holds rather than acquire one.
+	 * 
+	 * @param recNo
+	 *            Record number of the record to check.
+	 * 
+	 * @return {@code true} if the calling client holds the lock on the record.
+	 */
+	public boolean isLockedByCaller(final int recNo) {
+		lock.readLock().lock();
+		try {
+			final Long lockCookie = lockedRecords.get(recNo);
+			return (lockCookie != null)
+					&& (lockCookie == Thread.currentThread().getId());
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Locks the record, specified by {@code recNo}, only if it is not locked
+	 * by any client at the time of invocation. Unlike {@link #lock(int) lock},
+	 * this method never blocks.
+	 * 
+	 * @param recNo
+	 *            Record number of the record to lock.
+	 * 
+	 * @return Cookie that was used to lock the record or {@link #NOT_LOCKED}
+	 *         if the record is already locked.
+	 */
+	public long tryLock(final int recNo) {
+		lock.writeLock().lock();
+		try {
+			if (lockedRecords.containsKey(recNo)) {
+				return NOT_LOCKED;
+			}
+
+			final long lockCookie = Thread.currentThread().getId();
+			lockedRecords.put(recNo, lockCookie);
+			return lockCookie;
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
 	/**
 	 * Releases the lock on the record, specified by {@code recNo}, allowing it
 	 * to be locked by another client. This method must be invoked with the same
@@ -0,0 +1,151 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.db;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A growable array that can be read and written by multiple threads without
+ * locking. The elements are stored in chunks; the first chunk holds
+ * {@code 2^FIRST_CHUNK_BITS} elements and every subsequent chunk is twice the
+ * size of the one before it. Chunks are created on demand and, once created,
+ * are never moved or copied, so growing the array never blocks or invalidates
+ * a concurrent read or write. The array holds at most {@link #MAX_INDEX} + 1
+ * elements, which keeps the largest chunk within the size of a Java array.
+ * 
+ * <p>
+ * Every element is read and written with volatile semantics; an element that
+ * has been {@link #set(int, Object) set} is safely published to every thread
+ * that subsequently {@link #get(int) gets} it.
+ * 
+ * @param <E>
+ *            Type of the elements held in the array.
+ * 
+ * @author rsmall
+ */
+class RecordTable<E> {
+
+	/** Determines the number of elements held by the first chunk. */
+	private static final int FIRST_CHUNK_BITS = 5;
+
+	/**
+	 * Number of chunks; the last holds {@code 2^30} elements, the most any
+	 * chunk can hold since {@code 2^31} is not a valid array size.
+	 */
+	private static final int CHUNK_COUNT = 31 - FIRST_CHUNK_BITS;
+
+	/**
+	 * Largest index the array can address: the one whose biased index is
+	 * {@code Integer.MAX_VALUE}, the last element of the last chunk.
+	 */
+	static final int MAX_INDEX = Integer.MAX_VALUE - (1 << FIRST_CHUNK_BITS);
+
+	/** Chunks of the array; a chunk is {@code null} until it is needed. */
+	private final AtomicReferenceArray<AtomicReferenceArray<E>> chunks =
+			new AtomicReferenceArray<AtomicReferenceArray<E>>(CHUNK_COUNT);
+
+	/**
+	 * Sole constructor. Default access to prevent it from being instantiated
+	 * outside of the package.
+	 */
+	RecordTable() {
+	}
+
+	/**
+	 * Returns the position of the highest one-bit of the biased index, which
+	 * identifies both the chunk and the size of the chunk holding
+	 * {@code index}.
+	 * 
+	 * @param index
+	 *            Index of the element; must not be negative.
+	 * 
+	 * @return Position of the highest one-bit of the biased {@code index}.
+	 */
+	private static int highestBit(final int index) {
+		final long biasedIndex = (long) index + (1 << FIRST_CHUNK_BITS);
+		return 63 - Long.numberOfLeadingZeros(biasedIndex);
+	}
+
+	/**
+	 * Returns the position of {@code index} within its chunk.
+	 * 
+	 * @param index
+	 *            Index of the element; must not be negative.
+	 * 
+	 * @param highestBit
+	 *            Value returned by {@link #highestBit(int)} for {@code index}.
+	 * 
+	 * @return Position of {@code index} within its chunk.
+	 */
+	private static int offsetOf(final int index, final int highestBit) {
+		final long biasedIndex = (long) index + (1 << FIRST_CHUNK_BITS);
+		return (int) (biasedIndex - (1L << highestBit));
+	}
+
+	/**
+	 * Returns the element at {@code index}.
+	 * 
+	 * @param index
+	 *            Index of the element to retrieve.
+	 * 
+	 * @return Element at {@code index} or {@code null} if no element has been
+	 *         set at {@code index}.
+	 */
+	E get(final int index) {
+		if ((index < 0) || (index > MAX_INDEX)) {
+			return null;
+		}
+
+		final int highestBit = highestBit(index);
+		final AtomicReferenceArray<E> chunk =
+				chunks.get(highestBit - FIRST_CHUNK_BITS);
+
+		if (chunk == null) {
+			return null;
+		}
+		return chunk.get(offsetOf(index, highestBit));
+	}
+
+	/**
+	 * Sets the element at {@code index}, creating the chunk holding
+	 * {@code index} if necessary.
+	 * 
+	 * @param index
+	 *            Index of the element to set.
+	 * 
+	 * @param element
+	 *            Element to place at {@code index}.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code index} is negative or greater than
+	 *             {@link #MAX_INDEX}.
+	 */
+	void set(final int index, final E element) {
+		if (index < 0) {
+			throw new IllegalArgumentException("index cannot be negative");
+		}
+		if (index > MAX_INDEX) {
+			throw new IllegalArgumentException("index cannot exceed "
+					+ MAX_INDEX);
+		}
+
+		final int highestBit = highestBit(index);
+		final int chunkIndex = highestBit - FIRST_CHUNK_BITS;
+
+		AtomicReferenceArray<E> chunk = chunks.get(chunkIndex);
+		if (chunk == null) {
+
+			/*
+			 * Several threads may race to create the same chunk; only one of
+			 * them wins and every thread then uses the winning chunk.
+			 */
+			chunks.compareAndSet(chunkIndex, null,
+					new AtomicReferenceArray<E>(1 << highestBit));
+			chunk = chunks.get(chunkIndex);
+		}
+
+		chunk.set(offsetOf(index, highestBit), element);
+	}
+}
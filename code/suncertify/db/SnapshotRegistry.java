@@ -0,0 +1,284 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.db;
+
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class is responsible for handing out commit sequence numbers and for
+ * keeping track of the snapshots that are currently open against them.
+ * 
+ * <p>
+ * Every modification of a record is {@link #commit(Commit, Iterable) stamped}
+ * with the next commit sequence number. A snapshot is identified by the
+ * commit sequence number that was current when it was {@link #open()
+ * opened}; it can see every modification
+ * stamped with a number less than or equal to its own. Old versions of a
+ * record may be discarded once they are hidden from every open snapshot by a
+ * newer version, which is determined by the {@link #getHorizon() horizon}.
+ * 
+ * <p>
+ * The record changed by each of the most recent commits is also remembered in
+ * a bounded {@link ChangeLog}, so that the records changed after a given
+ * sequence number can be {@link #collectChanges(long, long, Set) collected}.
+ * 
+ * <p>
+ * The sequence numbers of each run start above those of any earlier run:
+ * they count up from the time the registry was created, shifted left by
+ * {@value #EPOCH_SHIFT} bits. A sequence number handed out by an earlier run
+ * is therefore never mistaken for one of this run's commits.
+ * 
+ * @author rsmall
+ */
+class SnapshotRegistry {
+
+	/**
+	 * Stamps the versions of the records that were installed by a single
+	 * modification. A version is visible to a snapshot once its commit has
+	 * been stamped with a sequence number less than or equal to the snapshot's
+	 * own. Since several versions may share the same commit, they become
+	 * visible all at once.
+	 */
+	static class Commit {
+
+		/** Sequence number of a commit that has not been stamped yet. */
+		private static final long UNCOMMITTED = Long.MAX_VALUE;
+
+		/** Commit shared by the records that were loaded from the database. */
+		static final Commit INITIAL = new Commit(0);
+
+		/** Sequence number that this commit has been stamped with. */
+		private volatile long sequence;
+
+		/**
+		 * Constructs a new {@code Commit} that has not been stamped yet.
+		 */
+		Commit() {
+			this(UNCOMMITTED);
+		}
+
+		/**
+		 * Constructs a new {@code Commit} stamped with {@code sequence}.
+		 * 
+		 * @param sequence
+		 *            Sequence number the commit is stamped with.
+		 */
+		private Commit(final long sequence) {
+			this.sequence = sequence;
+		}
+
+		/**
+		 * Returns {@code true} if this commit is visible to the snapshot
+		 * identified by {@code snapshot}.
+		 * 
+		 * @param snapshot
+		 *            Sequence number identifying the snapshot.
+		 * 
+		 * @return {@code true} if this commit is visible to the snapshot;
+		 *         {@code false} otherwise.
+		 */
+		boolean isVisibleTo(final long snapshot) {
+			return sequence <= snapshot;
+		}
+
+		/**
+		 * Returns the sequence number this commit has been stamped with.
+		 * 
+		 * @return Sequence number of this commit.
+		 */
+		long getSequence() {
+			return sequence;
+		}
+	}
+
+	/**
+	 * Number of low bits of a sequence number left for counting the commits
+	 * of a run. A run would have to average over a million commits per
+	 * millisecond to reach the numbers of the next run.
+	 */
+	static final int EPOCH_SHIFT = 20;
+
+	/**
+	 * Sequence number this run starts from, below any of its commits and
+	 * above those of the earlier runs.
+	 */
+	private final long epoch = System.currentTimeMillis() << EPOCH_SHIFT;
+
+	/** Most recently handed out commit sequence number. */
+	private final AtomicLong commitSequence = new AtomicLong(epoch);
+
+	/** Maps the sequence number of each open snapshot to its open count. */
+	private final TreeMap<Long, Integer> openSnapshots =
+			new TreeMap<Long, Integer>();
+
+	/**
+	 * Maximum number of changes remembered. Once a client falls further
+	 * behind than this, it has to read every record again.
+	 */
+	private static final int CHANGE_LOG_CAPACITY = 4096;
+
+	/** Remembers the records changed by the most recent commits. */
+	private final ChangeLog changeLog = new ChangeLog(CHANGE_LOG_CAPACITY);
+
+	/**
+	 * Limits access to {@code openSnapshots}, {@code changeLog} and the
+	 * stamping of commits.
+	 */
+	private final Lock lock = new ReentrantLock();
+
+	/**
+	 * Sole constructor. Default access to prevent it from being instantiated
+	 * outside of the package.
+	 */
+	SnapshotRegistry() {
+	}
+
+	/**
+	 * Stamps {@code commit} with the next commit sequence number, making every
+	 * version that belongs to it visible to the snapshots opened from now on.
+	 * 
+	 * <p>
+	 * Stamping and {@link #open() opening} are mutually exclusive. Otherwise,
+	 * a snapshot could be opened after the sequence number was handed out but
+	 * before the commit was stamped with it, and the commit would then appear
+	 * to the snapshot at some point while the snapshot is being read.
+	 * 
+	 * @param commit
+	 *            {@code Commit} to stamp.
+	 * 
+	 * @param recordNumbers
+	 *            Record numbers of the records changed by {@code commit}.
+	 * 
+	 * @return Sequence number {@code commit} was stamped with.
+	 */
+	long commit(final Commit commit, final Iterable<Integer> recordNumbers) {
+		lock.lock();
+		try {
+			commit.sequence = commitSequence.incrementAndGet();
+			for (final int recNo : recordNumbers) {
+				changeLog.append(commit.sequence, recNo);
+			}
+			return commit.sequence;
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adds the record numbers of the records changed by the commits stamped
+	 * after {@code since} and up to and including {@code snapshot} to
+	 * {@code changed}.
+	 * 
+	 * @param since
+	 *            Sequence number the changes are wanted after.
+	 * 
+	 * @param snapshot
+	 *            Sequence number of an open snapshot.
+	 * 
+	 * @param changed
+	 *            Receives the record numbers of the changed records.
+	 * 
+	 * @return {@code true} if every such change is still remembered;
+	 *         {@code false} if some have been forgotten, or if {@code since}
+	 *         was not handed out by this run.
+	 */
+	boolean collectChanges(final long since, final long snapshot,
+			final Set<Integer> changed) {
+		if (since < epoch) {
+			return false;
+		}
+
+		lock.lock();
+		try {
+			return changeLog.collect(since, snapshot, changed);
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the most recently handed out commit sequence number.
+	 * 
+	 * @return The most recently handed out commit sequence number.
+	 */
+	long currentSequence() {
+		return commitSequence.get();
+	}
+
+	/**
+	 * Opens a snapshot of the current state of the records. The snapshot must
+	 * be {@link #close(long) closed} once it is no longer needed; otherwise,
+	 * the old versions of the records can never be discarded.
+	 * 
+	 * @return Sequence number identifying the snapshot.
+	 */
+	long open() {
+		lock.lock();
+		try {
+			final long sequence = commitSequence.get();
+			final Integer count = openSnapshots.get(sequence);
+			openSnapshots.put(sequence, (count == null) ? 1 : count + 1);
+			return sequence;
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Closes a snapshot that was previously {@link #open() opened}.
+	 * 
+	 * @param sequence
+	 *            Sequence number identifying the snapshot.
+	 * 
+	 * @throws IllegalStateException
+	 *             If no snapshot is open for {@code sequence}.
+	 */
+	void close(final long sequence) {
+		lock.lock();
+		try {
+			final Integer count = openSnapshots.get(sequence);
+			if (count == null) {
+				throw new IllegalStateException("snapshot is not open");
+
+			} else if (count == 1) {
+				openSnapshots.remove(sequence);
+
+			} else {
+				openSnapshots.put(sequence, count - 1);
+			}
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the sequence number of the oldest snapshot that is still open,
+	 * or the current commit sequence number if there are no open snapshots.
+	 * No snapshot, present or future, will ever need a version of a record
+	 * that is older than the newest version stamped at or below the horizon.
+	 * 
+	 * @return The oldest sequence number any snapshot may still read.
+	 */
+	long getHorizon() {
+		lock.lock();
+		try {
+			if (openSnapshots.isEmpty()) {
+				return commitSequence.get();
+			}
+			return openSnapshots.firstKey();
+
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,34 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.db;
+
+import java.util.Comparator;
+
+/**
+ * An order of the values of a field that compares a sort key derived from
+ * each value, such as the number a value represents. Two values must compare
+ * as their sort keys do. An index of a field {@link
+ * DBAdapter#createIndex(int, Comparator) created} with such an order derives
+ * the sort key of each value once, as the value is added, rather than on
+ * every comparison.
+ * 
+ * @param <K>
+ *            Type of the sort keys.
+ * 
+ * @author rsmall
+ */
+public interface SortKeyOrder<K extends Comparable<K>> extends
+		Comparator<String> {
+
+	/**
+	 * Returns the sort key of {@code value}.
+	 * 
+	 * @param value
+	 *            Value of the field.
+	 * 
+	 * @return The sort key; never {@code null}.
+	 */
+	public K sortKey(final String value);
+}
@@ -0,0 +1,73 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.db;
+
+/**
+ * A record found by a {@link DBAdapter#search(int[], String, float, int)
+ * search}, along with how well it matches the text searched for.
+ * 
+ * @author rsmall
+ */
+public final class TextMatch {
+
+	/** Record number of the record. */
+	private final int recNo;
+
+	/** Fields of the record. */
+	private final String[] data;
+
+	/** How well the record matches; the higher, the better. */
+	private final float score;
+
+	/**
+	 * Constructs a new {@code TextMatch}. The fields must be a copy that
+	 * nobody else refers to.
+	 * 
+	 * @param recNo
+	 *            Record number of the record.
+	 * 
+	 * @param data
+	 *            Fields of the record.
+	 * 
+	 * @param score
+	 *            How well the record matches.
+	 */
+	TextMatch(final int recNo, final String[] data, final float score) {
+		this.recNo = recNo;
+		this.data = data;
+		this.score = score;
+	}
+
+	/**
+	 * Returns the record number of the record.
+	 * 
+	 * @return Record number of the record.
+	 */
+	public int getRecordNumber() {
+		return recNo;
+	}
+
+	/**
+	 * Returns the fields of the record, as they were when it was found. The
+	 * array belongs to the caller.
+	 * 
+	 * @return Fields of the record.
+	 */
+	public String[] getData() {
+		return data;
+	}
+
+	/**
+	 * Returns how well the record matches. A record holding the text in one of
+	 * the fields searched scores above one, plus the similarity of that field
+	 * to the text; a record that only resembles the text scores the
+	 * similarity alone, between zero and one.
+	 * 
+	 * @return Score of the match.
+	 */
+	public float getScore() {
+		return score;
+	}
+}
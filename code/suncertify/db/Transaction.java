@@ -0,0 +1,141 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.db;
+
+/**
+ * A set of modifications to several records that are applied to the database
+ * as a single unit; either every modification is applied or none of them are.
+ * 
+ * <p>
+ * Modifications are only recorded when {@link #update(int, String[]) update}
+ * or {@link #delete(int) delete} is invoked. They are applied when the
+ * transaction is {@link #commit() committed}, at which point every record
+ * involved is locked, in ascending order of record number, for the duration
+ * of the commit. Since every transaction locks its records in the same order,
+ * two transactions can never deadlock each other. Once committed, the
+ * modified records are immediately written to the database.
+ * 
+ * <p>
+ * <b>Example:</b> Below is an example of a method that will update two
+ * records at once, as long as neither has changed since it was read.
+ * 
+ * <pre>
+ * boolean updateRecords(final int first, final int second, final DBAdapter db) {
+ * 
+ * 	final long firstVersion = db.getVersion(first);
+ * 	final long secondVersion = db.getVersion(second);
+ * 	// reading and modifying the records elided
+ * 
+ * 	final Transaction transaction = db.beginTransaction();
+ * 	transaction.update(first, firstVersion, firstFields);
+ * 	transaction.update(second, secondVersion, secondFields);
+ * 	return transaction.commit();
+ * }
+ * </pre>
+ * 
+ * <p>
+ * A transaction may only be committed or rolled back once.
+ * 
+ * @author rsmall
+ */
+public interface Transaction {
+
+	/**
+	 * Records that the fields belonging to the record specified by
+	 * {@code recNo} are to be replaced by {@code data}, regardless of any
+	 * changes made to the record in the meantime.
+	 * 
+	 * @param recNo
+	 *            Record number of the record to update.
+	 * 
+	 * @param data
+	 *            The fields that will be assigned to the record. Each element
+	 *            in the array will identify a unique field associated with the
+	 *            record as determined by the database.
+	 * 
+	 * @throws IllegalStateException
+	 *             If the transaction has already been committed or rolled
+	 *             back.
+	 */
+	public void update(final int recNo, final String[] data)
+			throws IllegalStateException;
+
+	/**
+	 * Records that the fields belonging to the record specified by
+	 * {@code recNo} are to be replaced by {@code data}. The transaction will
+	 * not be committed unless the record's version still equals
+	 * {@code expectedVersion} at the time of the commit.
+	 * 
+	 * @param recNo
+	 *            Record number of the record to update.
+	 * 
+	 * @param expectedVersion
+	 *            Version the record is expected to have, as returned by
+	 *            {@link DBAdapter#getVersion(int) getVersion}.
+	 * 
+	 * @param data
+	 *            The fields that will be assigned to the record. Each element
+	 *            in the array will identify a unique field associated with the
+	 *            record as determined by the database.
+	 * 
+	 * @throws IllegalStateException
+	 *             If the transaction has already been committed or rolled
+	 *             back.
+	 */
+	public void update(final int recNo, final long expectedVersion,
+			final String[] data) throws IllegalStateException;
+
+	/**
+	 * Records that the record specified by {@code recNo} is to be deleted.
+	 * 
+	 * @param recNo
+	 *            Record number of the record to delete.
+	 * 
+	 * @throws IllegalStateException
+	 *             If the transaction has already been committed or rolled
+	 *             back.
+	 */
+	public void delete(final int recNo) throws IllegalStateException;
+
+	/**
+	 * Applies every recorded modification to the database as a single unit
+	 * and writes the modified records to the database. If any modification
+	 * cannot be applied, then none of them are. The records are locked while
+	 * the modifications are applied; a record the caller had already locked
+	 * is still locked by the caller afterwards.
+	 * 
+	 * @return {@code true} if the modifications were applied; {@code false}
+	 *         if a record has been modified since its expected version, in
+	 *         which case nothing was applied.
+	 * 
+	 * @throws RecordNotFoundException
+	 *             If one of the records does not exist; nothing was applied.
+	 * 
+	 * @throws DBIOException
+	 *             If the modified records could not be written to the
+	 *             database; nothing was applied.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If any of the recorded fields are {@code null}, do not have
+	 *             the correct number of fields, contain a {@code null} field
+	 *             or have a field that exceeds the size its maximum character
+	 *             limit; nothing was applied.
+	 * 
+	 * @throws IllegalStateException
+	 *             If the transaction has already been committed or rolled
+	 *             back.
+	 */
+	public boolean commit() throws RecordNotFoundException, DBIOException,
+			IllegalArgumentException, IllegalStateException;
+
+	/**
+	 * Discards every recorded modification without applying any of them.
+	 * 
+	 * @throws IllegalStateException
+	 *             If the transaction has already been committed or rolled
+	 *             back.
+	 */
+	public void rollback() throws IllegalStateException;
+}
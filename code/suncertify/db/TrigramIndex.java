@@ -0,0 +1,299 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.db;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Maps each trigram, every run of three consecutive characters, of the values
+ * of a single field to the values holding it, and each value to the records
+ * holding it, so that the records holding a piece of text, or something close
+ * to it, can be found without visiting every record. As the same value is
+ * usually held by many records, each value is only compared to the text once.
+ * 
+ * <p>
+ * Values are {@link KeyFolding folded} before they are split. Each value is
+ * padded with two spaces in front and one behind, so that its first and last
+ * characters start and end trigrams of their own; a short or misspelt value
+ * still shares most of its trigrams with the value it resembles. How alike two
+ * values are is measured as the number of trigrams they share, out of the
+ * number of distinct trigrams between them.
+ * 
+ * <p>
+ * Like a {@link FieldIndex}, the index holds the values of the latest
+ * committed version of each record along with those of any version that is
+ * about to be committed, so the records it names must be checked against the
+ * snapshot being read.
+ * 
+ * <p>
+ * This class is thread-safe.
+ * 
+ * @author rsmall
+ */
+class TrigramIndex implements ValueIndex {
+
+	/** Number of characters in a trigram. */
+	private static final int LENGTH = 3;
+
+	/** Padding in front of a value. */
+	private static final String LEADING_PADDING = "  ";
+
+	/** Padding behind a value. */
+	private static final String TRAILING_PADDING = " ";
+
+	/** Maps each value to the record numbers of the records holding it. */
+	private final Map<String, BitSet> entries = new HashMap<String, BitSet>();
+
+	/** Maps each trigram to the values holding it. */
+	private final Map<String, Set<String>> postings =
+			new HashMap<String, Set<String>>();
+
+	/** Guards {@code entries} and {@code postings}. */
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/** Indicates every existing record has been indexed. */
+	private volatile boolean isReady;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isReady() {
+		return isReady;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void markReady() {
+		isReady = true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void add(final String value, final int recNo) {
+		lock.writeLock().lock();
+		try {
+			BitSet recordNumbers = entries.get(value);
+			if (recordNumbers == null) {
+				recordNumbers = new BitSet();
+				entries.put(value, recordNumbers);
+
+				for (final String trigram : trigrams(value)) {
+					Set<String> values = postings.get(trigram);
+					if (values == null) {
+						values = new HashSet<String>();
+						postings.put(trigram, values);
+					}
+					values.add(value);
+				}
+			}
+			recordNumbers.set(recNo);
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Records that the record specified by {@code recNo} no longer holds
+	 * {@code value}.
+	 * 
+	 * @param value
+	 *            Value of the field.
+	 * 
+	 * @param recNo
+	 *            Record number of the record.
+	 */
+	void remove(final String value, final int recNo) {
+		lock.writeLock().lock();
+		try {
+			final BitSet recordNumbers = entries.get(value);
+			if (recordNumbers == null) {
+				return;
+			}
+
+			recordNumbers.clear(recNo);
+			if (recordNumbers.isEmpty()) {
+				entries.remove(value);
+
+				for (final String trigram : trigrams(value)) {
+					final Set<String> values = postings.get(trigram);
+					values.remove(value);
+					if (values.isEmpty()) {
+						postings.remove(trigram);
+					}
+				}
+			}
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the record numbers of the records holding a value that matches
+	 * {@code text}, and adds the {@link #score(String, Set, String, float)
+	 * score} of every value it compares to {@code text} to {@code scores}.
+	 * 
+	 * @param text
+	 *            Text searched for; folded and at least as long as a trigram.
+	 * 
+	 * @param trigrams
+	 *            Trigrams of {@code text}.
+	 * 
+	 * @param minSimilarity
+	 *            Similarity a value that does not hold {@code text} must reach.
+	 * 
+	 * @param scores
+	 *            Receives the score of each value compared.
+	 * 
+	 * @return Record numbers of the candidates; a new set owned by the
+	 *         caller.
+	 */
+	BitSet lookup(final String text, final Set<String> trigrams,
+			final float minSimilarity, final Map<String, Float> scores) {
+
+		/*
+		 * A value holding the text shares each of its inner trigrams; one
+		 * resembling it shares at least the similarity times the number of
+		 * trigrams of the text, rounded down so that none is missed. Only the
+		 * values sharing as many are compared.
+		 */
+		final int minShared = Math.max(1, Math.min(innerTrigrams(text).size(),
+				(int) (minSimilarity * trigrams.size())));
+
+		final BitSet candidates = new BitSet();
+		lock.readLock().lock();
+		try {
+			final Map<String, int[]> shared = new HashMap<String, int[]>();
+			for (final String trigram : trigrams) {
+				final Set<String> values = postings.get(trigram);
+				if (values == null) {
+					continue;
+				}
+
+				for (final String value : values) {
+					int[] count = shared.get(value);
+					if (count == null) {
+						count = new int[1];
+						shared.put(value, count);
+					}
+					count[0]++;
+				}
+			}
+
+			for (final Map.Entry<String, int[]> entry : shared.entrySet()) {
+				if (entry.getValue()[0] < minShared) {
+					continue;
+				}
+
+				final String value = entry.getKey();
+				final float score = score(text, trigrams, value, minSimilarity);
+				scores.put(value, score);
+				if (score > 0) {
+					candidates.or(entries.get(value));
+				}
+			}
+			return candidates;
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns how well {@code value} matches {@code text}: above one if it
+	 * holds the text, plus the similarity of the two; otherwise their
+	 * similarity, if it is at least {@code minSimilarity}.
+	 * 
+	 * @param text
+	 *            Text searched for; folded.
+	 * 
+	 * @param trigrams
+	 *            Trigrams of {@code text}.
+	 * 
+	 * @param value
+	 *            Value of the field.
+	 * 
+	 * @param minSimilarity
+	 *            Similarity a value that does not hold {@code text} must reach.
+	 * 
+	 * @return Score of the match; zero if {@code value} does not match.
+	 */
+	static float score(final String text, final Set<String> trigrams,
+			final String value, final float minSimilarity) {
+		final Set<String> valueTrigrams = trigrams(value);
+
+		int shared = 0;
+		for (final String trigram : trigrams) {
+			if (valueTrigrams.contains(trigram)) {
+				shared++;
+			}
+		}
+		final float similarity = (float) shared
+				/ (trigrams.size() + valueTrigrams.size() - shared);
+
+		if (KeyFolding.fold(value).contains(text)) {
+			return 1 + similarity;
+		}
+		return (similarity >= minSimilarity) ? similarity : 0;
+	}
+
+	/**
+	 * Returns the trigrams of {@code value} once it has been folded and
+	 * padded.
+	 * 
+	 * @param value
+	 *            Value to split.
+	 * 
+	 * @return The distinct trigrams of {@code value}; a new set owned by the
+	 *         caller.
+	 */
+	static Set<String> trigrams(final String value) {
+		return split(LEADING_PADDING + KeyFolding.fold(value)
+				+ TRAILING_PADDING);
+	}
+
+	/**
+	 * Returns the trigrams of {@code value} once it has been folded, without
+	 * padding it; those found wherever {@code value} appears within a longer
+	 * value.
+	 * 
+	 * @param value
+	 *            Value to split.
+	 * 
+	 * @return The distinct trigrams of {@code value}; empty if it is shorter
+	 *         than a trigram.
+	 */
+	static Set<String> innerTrigrams(final String value) {
+		return split(KeyFolding.fold(value));
+	}
+
+	/**
+	 * Splits {@code value} into its trigrams as it is.
+	 * 
+	 * @param value
+	 *            Value to split.
+	 * 
+	 * @return The distinct trigrams of {@code value}.
+	 */
+	private static Set<String> split(final String value) {
+		final Set<String> trigrams = new HashSet<String>();
+		for (int i = 0; i + LENGTH <= value.length(); i++) {
+			trigrams.add(value.substring(i, i + LENGTH));
+		}
+		return trigrams;
+	}
+}
@@ -0,0 +1,38 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.db;
+
+/**
+ * Index of the values of a single field, which the {@code RecordAccess} fills
+ * with every existing record once the index has been created, and keeps up to
+ * date from then on.
+ * 
+ * @author rsmall
+ */
+interface ValueIndex {
+
+	/**
+	 * Records that the record specified by {@code recNo} holds {@code value}.
+	 * Adding the same value twice has no further effect.
+	 * 
+	 * @param value
+	 *            Value of the field.
+	 * 
+	 * @param recNo
+	 *            Record number of the record.
+	 */
+	void add(final String value, final int recNo);
+
+	/**
+	 * Returns {@code true} once every existing record has been indexed; until
+	 * then, the index is kept up to date but must not be looked up.
+	 * 
+	 * @return {@code true} if the index may be looked up.
+	 */
+	boolean isReady();
+
+	/** Allows the index to be looked up, once every record is indexed. */
+	void markReady();
+}
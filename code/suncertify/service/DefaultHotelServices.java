@@ -10,6 +10,14 @@ import static suncertify.service.HotelRoom.Field.NAME;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -29,9 +37,31 @@ public class DefaultHotelServices implements HotelServices {
 	/** Position in the database file where the actual data begins. */
 	private static final long OFFSET = 74;
 
+	/** Maximum number of rooms on a single page of matches. */
+	private static final int MAX_PAGE_SIZE = 1000;
+
+	/**
+	 * Similarity a name or location that does not hold the text searched for
+	 * must reach to be found; low enough to forgive a typo or two.
+	 */
+	private static final float MIN_SIMILARITY = 0.3f;
+
+	/** Maximum number of search results held by the cache. */
+	private static final int CACHE_CAPACITY = 64;
+
 	/** Provides access to the database system. */
 	private DBAdapter data;
 
+	/** Counts of the available and booked rooms, kept up to date. */
+	private final HotelRoomCounters counters = new HotelRoomCounters();
+
+	/** Results of the most recently repeated searches. */
+	private final HotelRoomCache cache = new HotelRoomCache(CACHE_CAPACITY);
+
+	/** Listeners notified of every change made to the rooms. */
+	private final CopyOnWriteArrayList<HotelRoomListener> listeners =
+			new CopyOnWriteArrayList<HotelRoomListener>();
+
 	/**
 	 * Constructs a new {@code DefaultHotelServices} using the specified
 	 * {@code databaseFile}. {@code databaseFile} should reference an existing
@@ -66,6 +96,91 @@ public class DefaultHotelServices implements HotelServices {
 			final String message = "Cannot load database. " + ex.getMessage();
 			throw new ServicesInitializationException(message);
 		}
+
+		/*
+		 * Every field is indexed so that any condition of a query can be
+		 * answered without a scan; the numeric fields by their numbers. Only
+		 * the names and locations are also indexed regardless of case, as
+		 * they are the fields searched that way; a folded condition on any
+		 * other field is answered through the other conditions of the query.
+		 */
+		for (final HotelRoom.Field field : HotelRoom.Field.values()) {
+			data.createIndex(field.ordinal(),
+					field.isNumeric() ? new NumericOrder() : null);
+		}
+		data.createFoldedIndex(NAME.ordinal());
+		data.createFoldedIndex(LOCATION.ordinal());
+		data.createTextIndex(NAME.ordinal());
+		data.createTextIndex(LOCATION.ordinal());
+
+		/*
+		 * Nobody else can change the database yet, so no change can slip in
+		 * between counting the rooms and listening for the changes.
+		 */
+		final boolean[] columns = new boolean[HotelRoom.Field.values().length];
+		Arrays.fill(columns, true);
+		for (final Map.Entry<Integer, String[]> record : data.select(
+				new FieldCondition[0], columns).entrySet()) {
+			counters.change(null, record.getValue());
+		}
+
+		data.addRecordListener(new RecordListener() {
+
+			@Override
+			public void recordChanged(final RecordChange change) {
+				counters.change(change.getPreviousData(), change.getData());
+				cache.change(change.getPreviousData(), change.getData());
+				fireHotelRoomChanged(change);
+			}
+		});
+	}
+
+	/**
+	 * Notifies the listeners of the fields that were changed by
+	 * {@code change}. A change that leaves every field as it was is not
+	 * reported.
+	 * 
+	 * @param change
+	 *            A change committed to the database.
+	 */
+	private void fireHotelRoomChanged(final RecordChange change) {
+		if (listeners.isEmpty()) {
+			return;
+		}
+
+		final String[] previous = change.getPreviousData();
+		final String[] current = change.getData();
+
+		final EnumMap<HotelRoom.Field, String> changedFields =
+				new EnumMap<HotelRoom.Field, String>(HotelRoom.Field.class);
+		if (current != null) {
+			for (final HotelRoom.Field field : HotelRoom.Field.values()) {
+				final String value = current[field.ordinal()];
+				if ((previous == null)
+						|| !previous[field.ordinal()].equals(value)) {
+					changedFields.put(field, value);
+				}
+			}
+
+			if (changedFields.isEmpty()) {
+				return;
+			}
+		}
+
+		final HotelRoomEvent event = new HotelRoomEvent(
+				change.getRecordNumber(), change.getSequence(),
+				current == null, changedFields);
+		for (final HotelRoomListener listener : listeners) {
+			try {
+				listener.hotelRoomChanged(event);
+
+			} catch (final RuntimeException ignore) {
+				/*
+				 * One failing listener must neither keep the others from
+				 * being notified nor fail the change that was reported.
+				 */
+			}
+		}
 	}
 
 	/**
@@ -88,26 +203,49 @@ public class DefaultHotelServices implements HotelServices {
 	}
 
 	/**
-	 * Determines if {@code hotelRoom} is booked.
+	 * Determines if the room represented by {@code fields} is booked.
 	 * 
-	 * @param hotelRoom
-	 *            {@code HotelRoom} to evaluate.
+	 * @param fields
+	 *            Fields of the room to evaluate.
+	 * 
+	 * @return {@code true} if the room is booked; {@code false} otherwise.
+	 */
+	private boolean isBooked(final String[] fields) {
+		return !fields[CUSTOMER.ordinal()].equals("");
+	}
+
+	/**
+	 * Returns a copy of {@code fields} with the customer set to {@code id}.
 	 * 
-	 * @return {@code true} if {@code hotelRoom} is booked; {@code false}
-	 *         otherwise.
+	 * @param fields
+	 *            Current fields of the room.
 	 * 
-	 * @throws RecordNotFoundException
-	 *             If the {@code hotelRoom} does not exist.
+	 * @param id
+	 *            Identification code of the customer booking the room.
+	 * 
+	 * @return Fields of the room once it has been booked by {@code id}.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the room is already booked.
 	 */
-	private boolean isBooked(final HotelRoom hotelRoom)
-			throws RecordNotFoundException {
+	private String[] toBookedFields(final String[] fields, final String id) {
+		if (isBooked(fields)) {
+			throw new IllegalArgumentException("Room is already booked.");
+		}
 
-		final String[] fields = data.read(hotelRoom.getRecordNumber());
-		return !fields[CUSTOMER.ordinal()].equals("");
+		final String[] bookedFields = fields.clone();
+		bookedFields[CUSTOMER.ordinal()] = id;
+		return bookedFields;
 	}
 
 	/**
 	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * An uncontended room is booked in a single atomic step using
+	 * {@link DBAdapter#compareAndUpdate(int, long, String[]) compareAndUpdate}.
+	 * Only if the room is modified or locked by another client in the meantime
+	 * will the room be locked, re-evaluated and then booked.
 	 */
 	@Override
 	public void bookRoom(final HotelRoom hotelRoom, final String id)
@@ -126,18 +264,107 @@ public class DefaultHotelServices implements HotelServices {
 		try {
 			final int recNo = hotelRoom.getRecordNumber();
 
-			if (isBooked(hotelRoom)) {
-				throw new IllegalArgumentException("Room is already booked.");
+			/*
+			 * The version must be read before the fields; if the record is
+			 * modified after the version has been read, the update below will
+			 * be rejected rather than booking the room based on stale fields.
+			 */
+			final long version = data.getVersion(recNo);
+			final String[] fields = toBookedFields(data.read(recNo), id);
+
+			if (!data.compareAndUpdate(recNo, version, fields)) {
+				bookLockedRoom(recNo, id);
 			}
 
-			final long cookie = data.lock(recNo);
 			hotelRoom.setField(CUSTOMER, id);
 
-			data.update(recNo, hotelRoom.getFields(), cookie);
-			data.unlock(recNo, cookie);
+		} catch (final RecordNotFoundException ex) {
+			throw new HotelRoomNotFoundException();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * The rooms are booked through a single {@link Transaction}. Should any
+	 * of the rooms be modified by another client before the transaction is
+	 * committed, the rooms are re-evaluated and the transaction is retried.
+	 */
+	@Override
+	public void bookRooms(final HotelRoom[] hotelRooms, final String id)
+			throws HotelRoomNotFoundException, ServicesException,
+			IllegalArgumentException {
+
+		if (hotelRooms == null) {
+			throw new IllegalArgumentException("hotelRooms cannot be null.");
+		}
+
+		for (final HotelRoom hotelRoom : hotelRooms) {
+			if (hotelRoom == null) {
+				throw new IllegalArgumentException("hotelRoom cannot be null.");
+			}
+		}
+
+		if (!isEightDigitString(id)) {
+			final String message = "Customer ID must be an eight digit value.";
+			throw new IllegalArgumentException(message);
+		}
+
+		try {
+			boolean isBooked = false;
+			while (!isBooked) {
+				final Transaction transaction = data.beginTransaction();
+				for (final HotelRoom hotelRoom : hotelRooms) {
+					final int recNo = hotelRoom.getRecordNumber();
+					final long version = data.getVersion(recNo);
+					final String[] fields =
+							toBookedFields(data.read(recNo), id);
+
+					transaction.update(recNo, version, fields);
+				}
+				isBooked = transaction.commit();
+			}
+
+			for (final HotelRoom hotelRoom : hotelRooms) {
+				hotelRoom.setField(CUSTOMER, id);
+			}
 
 		} catch (final RecordNotFoundException ex) {
 			throw new HotelRoomNotFoundException();
+
+		} catch (final DBIOException ex) {
+			throw new ServicesException("Rooms could not be booked.");
+		}
+	}
+
+	/**
+	 * Books the room specified by {@code recNo} for the customer represented
+	 * by {@code id}, holding the lock on the record while the room is
+	 * re-evaluated and updated.
+	 * 
+	 * @param recNo
+	 *            Record number of the room to book.
+	 * 
+	 * @param id
+	 *            Identification code of the customer booking the room.
+	 * 
+	 * @throws RecordNotFoundException
+	 *             If the room does not exist.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the room is already booked.
+	 */
+	private void bookLockedRoom(final int recNo, final String id)
+			throws RecordNotFoundException {
+
+		final long cookie = data.lock(recNo);
+		try {
+			final String[] fields = toBookedFields(data.read(recNo), id);
+			data.update(recNo, fields, cookie);
+
+		} finally {
+			data.unlock(recNo, cookie);
 		}
 	}
 
@@ -149,6 +376,71 @@ public class DefaultHotelServices implements HotelServices {
 		return find(new HotelRoomCriteria());
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * The image is shared with every other caller until the database changes,
+	 * so exporting an unchanged database costs next to nothing.
+	 */
+	@Override
+	public HotelRoomImage exportHotelRooms() throws ServicesException {
+		final RecordImage image = data.exportRecords();
+		return new HotelRoomImage(image.getSequence(), image.getRecords());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public HotelRoomDelta changesSince(final long version)
+			throws ServicesException {
+		final RecordDelta delta = data.changesSince(version);
+
+		final ArrayList<HotelRoom> hotelRooms = new ArrayList<HotelRoom>();
+		final ArrayList<Integer> deleted = new ArrayList<Integer>();
+		for (final Map.Entry<Integer, String[]> record : delta.getRecords()
+				.entrySet()) {
+			if (record.getValue() == null) {
+				deleted.add(record.getKey());
+			} else {
+				hotelRooms.add(new HotelRoom(record.getKey(), record.getValue()));
+			}
+		}
+
+		final int[] deletedRecordNumbers = new int[deleted.size()];
+		for (int i = 0; i < deletedRecordNumbers.length; i++) {
+			deletedRecordNumbers[i] = deleted.get(i);
+		}
+
+		return new HotelRoomDelta(delta.getSequence(), delta.isFull(),
+				hotelRooms.toArray(new HotelRoom[hotelRooms.size()]),
+				deletedRecordNumbers);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * The listener is notified by the thread that made the change.
+	 */
+	@Override
+	public void addHotelRoomListener(final HotelRoomListener listener)
+			throws IllegalArgumentException {
+		if (listener == null) {
+			throw new IllegalArgumentException("listener cannot be null.");
+		}
+		listeners.addIfAbsent(listener);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeHotelRoomListener(final HotelRoomListener listener) {
+		listeners.remove(listener);
+	}
+
 	/**
 	 * Checks to see if {@code hotelRoom} is a valid match. {@code hotelRoom} is
 	 * considered a match if {@code criteria.name} is equal to
@@ -166,14 +458,14 @@ public class DefaultHotelServices implements HotelServices {
 
 		boolean nameMatches = false;
 		final String roomName = hotelRoom.getField(NAME);
-		if (roomName.equals(criteria.name) || (criteria.name == null)) {
+		if ((criteria.name == null) || roomName.equals(criteria.name)) {
 			nameMatches = true;
 		}
 
 		boolean locationMatches = false;
 		final String roomLocation = hotelRoom.getField(LOCATION);
-		if (roomLocation.equals(criteria.location)
-				|| (criteria.location == null)) {
+		if ((criteria.location == null)
+				|| roomLocation.equals(criteria.location)) {
 			locationMatches = true;
 		}
 
@@ -182,6 +474,11 @@ public class DefaultHotelServices implements HotelServices {
 
 	/**
 	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * The results of the {@value #CACHE_CAPACITY} most recently used criteria
+	 * are cached, so a search repeated by many clients is only run once until
+	 * a room it found, or would now find, changes.
 	 */
 	@Override
 	public HotelRoom[] find(final HotelRoomCriteria criteria)
@@ -191,17 +488,266 @@ public class DefaultHotelServices implements HotelServices {
 			throw new IllegalArgumentException("criteria cannot be null.");
 		}
 
-		/* Get the record numbers that meet the specified criteria. */
+		final HotelRoom[] cached = cache.get(criteria);
+		if (cached != null) {
+			return cached;
+		}
+
+		HotelRoom[] hotelRooms = null;
+		try {
+			hotelRooms = find(new HotelRoomQuery(criteria));
+			return hotelRooms;
+		} finally {
+			cache.finishSearch(criteria, hotelRooms);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * The conditions, including the criteria, are handed to the database,
+	 * which answers them through the indexes of the fields whenever they are
+	 * selective enough. The rooms are matched and read from the database in a
+	 * single pass, and only the selected fields are copied out of each.
+	 * Unsorted rooms are taken in order of record number and the pass stops at
+	 * the limit. Sorted rooms are collected through a heap bounded by the
+	 * limit as they are found, so only the rooms returned are ever held or
+	 * sorted. A query that ignores case is answered through the folded indexes
+	 * of the names and locations, so it costs no more than one that does
+	 * not.
+	 */
+	@Override
+	public HotelRoom[] find(final HotelRoomQuery query)
+			throws ServicesException, IllegalArgumentException {
+
+		if (query == null) {
+			throw new IllegalArgumentException("query cannot be null.");
+		}
+
+		final Set<HotelRoom.Field> selected = query.getFields();
+		final List<HotelRoomQuery.SortKey> sortKeys = query.getSortKeys();
+		final int limit = query.getLimit();
+
+		/*
+		 * The fields of the sort keys are needed to order the rooms, even if
+		 * they were not selected.
+		 */
+		final EnumSet<HotelRoom.Field> needed = EnumSet.copyOf(selected);
+		for (final HotelRoomQuery.SortKey sortKey : sortKeys) {
+			needed.add(sortKey.getField());
+		}
+
+		final boolean[] columns = new boolean[HotelRoom.Field.values().length];
+		for (final HotelRoom.Field field : needed) {
+			columns[field.ordinal()] = true;
+		}
+
+		/*
+		 * Without sort keys the matches are already in order, so the search
+		 * stops once the first ones have been taken; otherwise only the rooms
+		 * that may still make the cut are held on to.
+		 */
+		final ArrayList<HotelRoom> hotelRooms = new ArrayList<HotelRoom>();
+		final TopHotelRooms topHotelRooms =
+				sortKeys.isEmpty() ? null : new TopHotelRooms(sortKeys, limit);
+		data.select(toFieldConditions(query), columns, new RecordCollector() {
+
+			@Override
+			public boolean collect(final int recNo, final String[] fields) {
+				final HotelRoom hotelRoom = new HotelRoom(recNo, fields);
+				if (topHotelRooms != null) {
+					topHotelRooms.offer(hotelRoom);
+					return true;
+				}
+
+				hotelRooms.add(hotelRoom);
+				return (limit == 0) || (hotelRooms.size() < limit);
+			}
+		});
+
+		final HotelRoom[] rooms;
+		if (topHotelRooms != null) {
+			rooms = topHotelRooms.toArray();
+		} else {
+			rooms = hotelRooms.toArray(new HotelRoom[hotelRooms.size()]);
+		}
+
+		/* Drop the fields that were only needed to find the rooms. */
+		for (final HotelRoom hotelRoom : rooms) {
+			for (final HotelRoom.Field field : needed) {
+				if (!selected.contains(field)) {
+					hotelRoom.getFields()[field.ordinal()] = null;
+				}
+			}
+		}
+		return rooms;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * The token is the record number the next page starts at, so the server
+	 * holds nothing between the pages. At most {@value #MAX_PAGE_SIZE} rooms
+	 * are returned at a time, whatever the {@code limit}.
+	 */
+	@Override
+	public HotelRoomPage find(final HotelRoomCriteria criteria,
+			final String pageToken, final int limit) throws ServicesException,
+			IllegalArgumentException {
+
+		if (criteria == null) {
+			throw new IllegalArgumentException("criteria cannot be null.");
+		}
+
+		if (limit < 1) {
+			throw new IllegalArgumentException("limit must be positive.");
+		}
+
+		int from = 0;
+		if (pageToken != null) {
+			try {
+				from = Integer.parseInt(pageToken);
+			} catch (final NumberFormatException ex) {
+				throw new IllegalArgumentException("invalid page token.");
+			}
+			if (from < 0) {
+				throw new IllegalArgumentException("invalid page token.");
+			}
+		}
+
+		final String[] fieldCriteria = toFieldCriteria(criteria);
+		final int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+		final ArrayList<HotelRoom> hotelRooms = new ArrayList<HotelRoom>();
+
+		/*
+		 * Rooms that were deleted since they were found leave the page short,
+		 * so keep on searching past them until it is full.
+		 */
+		String nextPageToken = null;
+		while (hotelRooms.size() < pageSize) {
+			final int wanted = pageSize - hotelRooms.size();
+			final int[] matchingRecords = data.find(fieldCriteria, from, wanted);
+			readMatches(criteria, matchingRecords, hotelRooms);
+
+			if (matchingRecords.length < wanted) {
+				break;
+			}
+
+			from = matchingRecords[matchingRecords.length - 1] + 1;
+			if (hotelRooms.size() == pageSize) {
+				nextPageToken = Integer.toString(from);
+			}
+		}
+
+		final HotelRoom[] rooms = new HotelRoom[hotelRooms.size()];
+		return new HotelRoomPage(hotelRooms.toArray(rooms), nextPageToken);
+	}
+
+	/**
+	 * Converts the criteria, conditions and availability of {@code query}
+	 * into the conditions the database is searched with. Unless the query is
+	 * case sensitive, the conditions on the text fields are folded.
+	 * 
+	 * @param query
+	 *            Specifies the rooms to find.
+	 * 
+	 * @return The conditions the records must meet.
+	 */
+	private FieldCondition[] toFieldConditions(final HotelRoomQuery query) {
+		final ArrayList<FieldCondition> conditions =
+				new ArrayList<FieldCondition>();
+
+		final HotelRoomCriteria criteria = query.getCriteria();
+		if (criteria.name != null) {
+			conditions.add(FieldCondition.equalTo(NAME.ordinal(),
+					criteria.name));
+		}
+		if (criteria.location != null) {
+			conditions.add(FieldCondition.equalTo(LOCATION.ordinal(),
+					criteria.location));
+		}
+
+		for (final HotelRoomQuery.Condition condition : query.getConditions()) {
+			final int field = condition.getField().ordinal();
+			final String[] values = condition.getValues();
+
+			switch (condition.getOperator()) {
+			case EQUALS:
+				conditions.add(FieldCondition.equalTo(field, values[0]));
+				break;
+
+			case PREFIX:
+				conditions.add(FieldCondition.startsWith(field, values[0]));
+				break;
+
+			case RANGE:
+				conditions.add(FieldCondition.between(field, values[0], true,
+						values[1], true));
+				break;
+
+			default:
+				conditions.add(FieldCondition.in(field, values));
+				break;
+			}
+		}
+
+		if (!query.isCaseSensitive()) {
+			for (int i = 0; i < conditions.size(); i++) {
+				final FieldCondition condition = conditions.get(i);
+				if (!HotelRoom.Field.values()[condition.getField()].isNumeric()) {
+					conditions.set(i, condition.folded());
+				}
+			}
+		}
+
+		/* A room is available if it has not been booked by a customer. */
+		final Boolean isAvailable = query.getAvailability();
+		if (Boolean.TRUE.equals(isAvailable)) {
+			conditions.add(FieldCondition.equalTo(CUSTOMER.ordinal(), ""));
+
+		} else if (Boolean.FALSE.equals(isAvailable)) {
+			conditions.add(FieldCondition.between(CUSTOMER.ordinal(), "",
+					false, null, true));
+		}
+
+		return conditions.toArray(new FieldCondition[conditions.size()]);
+	}
+
+	/**
+	 * Converts {@code criteria} into the criteria the database is searched
+	 * with.
+	 * 
+	 * @param criteria
+	 *            Criteria to use when searching for records.
+	 * 
+	 * @return The criteria of each field, {@code null} for any value.
+	 */
+	private String[] toFieldCriteria(final HotelRoomCriteria criteria) {
 		final int numberOfFields = HotelRoom.Field.values().length;
 		final String[] fieldCriteria = new String[numberOfFields];
 
 		fieldCriteria[NAME.ordinal()] = criteria.name;
 		fieldCriteria[LOCATION.ordinal()] = criteria.location;
+		return fieldCriteria;
+	}
 
-		final int[] matchingRecords = data.find(fieldCriteria);
-
-		/* Fetch the HotelRooms themselves. */
-		final ArrayList<HotelRoom> hotelRooms = new ArrayList<HotelRoom>();
+	/**
+	 * Reads the records specified by {@code matchingRecords} and adds those
+	 * that are still a valid match for {@code criteria} to {@code hotelRooms}.
+	 * 
+	 * @param criteria
+	 *            Criteria the records were found with.
+	 * 
+	 * @param matchingRecords
+	 *            Record numbers of the records that were found.
+	 * 
+	 * @param hotelRooms
+	 *            Receives the HotelRooms that match.
+	 */
+	private void readMatches(final HotelRoomCriteria criteria,
+			final int[] matchingRecords, final List<HotelRoom> hotelRooms) {
 		for (final int recNo : matchingRecords) {
 			try {
 				final String[] fields = data.read(recNo);
@@ -220,10 +766,113 @@ public class DefaultHotelServices implements HotelServices {
 				 */
 			}
 		}
+	}
 
-		/* Convert the List to an array and return it. */
-		final HotelRoom[] rooms = new HotelRoom[hotelRooms.size()];
-		return hotelRooms.toArray(rooms);
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * The names and locations are looked up in their text indexes, so only
+	 * the rooms sharing enough of the text are ever read.
+	 */
+	@Override
+	public HotelRoom[] search(final String text, final int limit)
+			throws IllegalArgumentException {
+
+		if ((text == null) || (text.trim().length() == 0)) {
+			throw new IllegalArgumentException("text cannot be empty.");
+		}
+
+		if (limit < 1) {
+			throw new IllegalArgumentException("limit must be positive.");
+		}
+
+		final List<TextMatch> matches = data.search(new int[] {
+				NAME.ordinal(), LOCATION.ordinal() }, text.trim(),
+				MIN_SIMILARITY, limit);
+
+		final HotelRoom[] hotelRooms = new HotelRoom[matches.size()];
+		for (int i = 0; i < hotelRooms.length; i++) {
+			final TextMatch match = matches.get(i);
+			hotelRooms[i] =
+					new HotelRoom(match.getRecordNumber(), match.getData());
+		}
+		return hotelRooms;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * The counts are kept up to date as every change is committed, so they
+	 * are read straight from memory.
+	 */
+	@Override
+	public int countAvailableRooms(final String location, final String date) {
+		return counters.countAvailableRooms(location, date);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * The counts are kept up to date as every change is committed, so they
+	 * are read straight from memory.
+	 */
+	@Override
+	public int countBookedRooms(final String name, final String location) {
+		return counters.countBookedRooms(name, location);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * The customer field is indexed, so only the customer's rooms are read.
+	 */
+	@Override
+	public HotelRoom[] findByCustomer(final String id)
+			throws IllegalArgumentException {
+
+		if (!isEightDigitString(id)) {
+			final String message = "Customer ID must be an eight digit value.";
+			throw new IllegalArgumentException(message);
+		}
+
+		final boolean[] columns = new boolean[HotelRoom.Field.values().length];
+		Arrays.fill(columns, true);
+		final SortedMap<Integer, String[]> bookedRecords = data.select(
+				new FieldCondition[] {FieldCondition.equalTo(
+						CUSTOMER.ordinal(), id)}, columns);
+
+		final HotelRoom[] hotelRooms = new HotelRoom[bookedRecords.size()];
+		int index = 0;
+		for (final Map.Entry<Integer, String[]> record : bookedRecords
+				.entrySet()) {
+			hotelRooms[index++] = new HotelRoom(record.getKey(),
+					record.getValue());
+		}
+		return hotelRooms;
+	}
+
+	/**
+	 * Returns the number of searches by criteria answered from the cache so
+	 * far, without searching the database.
+	 * 
+	 * @return Number of cache hits.
+	 */
+	public long getCacheHitCount() {
+		return cache.getHitCount();
+	}
+
+	/**
+	 * Returns the number of searches by criteria that were not held by the
+	 * cache so far, and had to search the database.
+	 * 
+	 * @return Number of cache misses.
+	 */
+	public long getCacheMissCount() {
+		return cache.getMissCount();
 	}
 
 	/**
@@ -32,29 +32,32 @@ public class HotelRoom implements Serializable {
 		 */
 
 		/** Name of the hotel. */
-		NAME(64),
+		NAME(64, false),
 
 		/** Name of the city of the hotel is located in. */
-		LOCATION(64),
+		LOCATION(64, false),
 
 		/** Maximum occupancy of the room. */
-		OCCUPANCY(4),
+		OCCUPANCY(4, true),
 
 		/** Indicates if the room is smoking or non-smoking. */
-		SMOKING(1),
+		SMOKING(1, false),
 
 		/** Price per night for the room. */
-		COST(8),
+		COST(8, true),
 
 		/** Date of availability. */
-		DATE(10),
+		DATE(10, false),
 
 		/** ID of the customer who has booked this room. */
-		CUSTOMER(8);
+		CUSTOMER(8, false);
 
 		/** Maximum number of bytes permitted for this field. */
 		private final int maxSize;
 
+		/** Indicates the values are compared by the numbers they represent. */
+		private final boolean isNumeric;
+
 		/**
 		 * Returns the format of the fields for a record within the database
 		 * that represents a {@code HotelRoom}.
@@ -76,7 +79,8 @@ public class HotelRoom implements Serializable {
 
 		/**
 		 * Ensures that {@code fields} adheres to the specifications set by
-		 * {@code Field.getFieldFormat}.
+		 * {@code Field.getFieldFormat}. A {@code null} element is a field that
+		 * was left out of a {@link HotelRoomQuery}.
 		 * 
 		 * @param fields
 		 *            The set of fields to evaluate.
@@ -92,7 +96,9 @@ public class HotelRoom implements Serializable {
 			}
 
 			for (final Field field : Field.values()) {
-				checkField(field, fields[field.ordinal()]);
+				if (fields[field.ordinal()] != null) {
+					checkField(field, fields[field.ordinal()]);
+				}
 			}
 		}
 
@@ -124,9 +130,14 @@ public class HotelRoom implements Serializable {
 		 * 
 		 * @param size
 		 *            Maximum number of bytes permitted for the field.
+		 * 
+		 * @param isNumeric
+		 *            {@code true} if the values are compared by the numbers
+		 *            they represent.
 		 */
-		private Field(final int size) {
+		private Field(final int size, final boolean isNumeric) {
 			maxSize = size;
+			this.isNumeric = isNumeric;
 		}
 
 		/**
@@ -137,6 +148,17 @@ public class HotelRoom implements Serializable {
 		int getMaxSize() {
 			return maxSize;
 		}
+
+		/**
+		 * Returns {@code true} if the values of this field are compared by
+		 * the numbers they represent rather than as text; see
+		 * {@link NumericOrder}.
+		 * 
+		 * @return {@code true} if this field is numeric.
+		 */
+		boolean isNumeric() {
+			return isNumeric;
+		}
 	}
 
 	/**
@@ -161,7 +183,12 @@ public class HotelRoom implements Serializable {
 	 * specified by {@code Field}. This means that there must be the same number
 	 * of elements within {@code fields} as there are values specified for
 	 * {@code Field} and each element must be less than or equal to the
-	 * {@link Field#getMaxSize() maxSize}.
+	 * {@link Field#getMaxSize() maxSize}. An element is {@code null} if the
+	 * field was not selected by a {@link HotelRoomQuery}.
+	 * 
+	 * <p>
+	 * This is public so that a {@code HotelRoom} can be rebuilt once it has
+	 * been sent over the network.
 	 * 
 	 * @param recNo
 	 *            Record number of the record. This value should be unique from
@@ -175,7 +202,7 @@ public class HotelRoom implements Serializable {
 	 *             If {@code fields} does not have the correct number of
 	 *             elements or if an element exceeds its size constraint.
 	 */
-	HotelRoom(final int recNo, final String[] fields) {
+	public HotelRoom(final int recNo, final String[] fields) {
 		Field.checkFormat(fields);
 
 		this.recNo = recNo;
@@ -189,7 +216,7 @@ public class HotelRoom implements Serializable {
 	 * 
 	 * @return The record number.
 	 */
-	int getRecordNumber() {
+	public int getRecordNumber() {
 		return recNo;
 	}
 
@@ -211,12 +238,26 @@ public class HotelRoom implements Serializable {
 	 * @param field
 	 *            Represents the field to retrieve.
 	 * 
-	 * @return The value of the field.
+	 * @return The value of the field, or {@code null} if the field was not
+	 *         selected by the {@link HotelRoomQuery} the room was found with.
 	 */
 	public String getField(final Field field) {
 		return fields[field.ordinal()];
 	}
 
+	/**
+	 * Returns {@code true} if the value of {@code field} is held; that is, if
+	 * it was selected by the {@link HotelRoomQuery} the room was found with.
+	 * 
+	 * @param field
+	 *            Represents the field to check.
+	 * 
+	 * @return {@code true} if the value of the field is held.
+	 */
+	public boolean hasField(final Field field) {
+		return fields[field.ordinal()] != null;
+	}
+
 	/**
 	 * Sets the value of a field.
 	 * 
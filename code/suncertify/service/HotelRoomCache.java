@@ -0,0 +1,375 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.service;
+
+import static suncertify.service.HotelRoom.Field.LOCATION;
+import static suncertify.service.HotelRoom.Field.NAME;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the HotelRooms most recently found by each of a bounded number of
+ * {@link HotelRoomCriteria}, so that a search repeated by many clients, such
+ * as the one behind {@link HotelServices#getHotelRooms() getHotelRooms}, is
+ * only run once. Once the cache is full, the criteria used least recently
+ * are forgotten first.
+ * 
+ * <p>
+ * A result is only forgotten when a room it holds, or a room it would now
+ * hold, changes: that is, when the room matched the criteria before the
+ * change or matches them after it. A result found while such a change was
+ * made may already be out of date, so it is not kept.
+ * 
+ * <p>
+ * The rooms are copied on their way in and out, so nobody changing the rooms
+ * they were handed can change what the cache holds.
+ * 
+ * <p>
+ * This class is thread-safe. A result that is held is found without locking,
+ * so repeated searches do not wait on one another; only a miss, holding a
+ * result and forgetting the results take a lock.
+ * 
+ * @author rsmall
+ */
+class HotelRoomCache {
+
+	/** Criteria a result was found by, compared by value. */
+	private static final class Key {
+
+		/** Name of the hotel; {@code null} for any name. */
+		private final String name;
+
+		/** Location of the hotel; {@code null} for any location. */
+		private final String location;
+
+		/**
+		 * Constructs a new {@code Key}.
+		 * 
+		 * @param criteria
+		 *            Criteria the result is found by.
+		 */
+		private Key(final HotelRoomCriteria criteria) {
+			this.name = criteria.name;
+			this.location = criteria.location;
+		}
+
+		/**
+		 * Determines if the room represented by {@code fields} meets the
+		 * criteria, exactly as {@link HotelServices#find(HotelRoomCriteria)
+		 * find} would match it.
+		 * 
+		 * @param fields
+		 *            Fields of the room; {@code null} if there is no room.
+		 * 
+		 * @return {@code true} if the room meets the criteria.
+		 */
+		private boolean matches(final String[] fields) {
+			return (fields != null)
+					&& ((name == null) || name.equals(fields[NAME.ordinal()]))
+					&& ((location == null) || location
+							.equals(fields[LOCATION.ordinal()]));
+		}
+
+		@Override
+		public boolean equals(final Object object) {
+			if (!(object instanceof Key)) {
+				return false;
+			}
+
+			final Key key = (Key) object;
+			return equal(name, key.name) && equal(location, key.location);
+		}
+
+		@Override
+		public int hashCode() {
+			return (31 * hash(name)) + hash(location);
+		}
+
+		/**
+		 * Determines if {@code a} and {@code b} are equal, either of which
+		 * may be {@code null}.
+		 * 
+		 * @param a
+		 *            First value.
+		 * 
+		 * @param b
+		 *            Second value.
+		 * 
+		 * @return {@code true} if the values are equal.
+		 */
+		private static boolean equal(final String a, final String b) {
+			return (a == null) ? (b == null) : a.equals(b);
+		}
+
+		/**
+		 * Returns the hash code of {@code value}, which may be {@code null}.
+		 * 
+		 * @param value
+		 *            Value to hash.
+		 * 
+		 * @return Hash code of {@code value}; zero for {@code null}.
+		 */
+		private static int hash(final String value) {
+			return (value == null) ? 0 : value.hashCode();
+		}
+	}
+
+	/** Rooms held for a set of criteria. */
+	private static final class Result {
+
+		/** Rooms found; never changed once held. */
+		private final HotelRoom[] hotelRooms;
+
+		/** Value of {@link System#nanoTime()} when it was last used. */
+		private volatile long lastUsed = System.nanoTime();
+
+		/**
+		 * Constructs a new {@code Result}.
+		 * 
+		 * @param hotelRooms
+		 *            Rooms found.
+		 */
+		private Result(final HotelRoom[] hotelRooms) {
+			this.hotelRooms = hotelRooms;
+		}
+	}
+
+	/** The searches being run for a set of criteria that missed. */
+	private static final class Load {
+
+		/** Number of searches being run. */
+		private int searchCount;
+
+		/** Indicates a matching room changed while the searches were run. */
+		private boolean isStale;
+	}
+
+	/** Maximum number of results held. */
+	private final int capacity;
+
+	/** Results held; only changed while holding {@code lock}. */
+	private final ConcurrentHashMap<Key, Result> results =
+			new ConcurrentHashMap<Key, Result>();
+
+	/** Searches being run for the criteria that missed; guarded by lock. */
+	private final Map<Key, Load> loads = new HashMap<Key, Load>();
+
+	/** Limits changing the results and the loads to one thread at a time. */
+	private final Lock lock = new ReentrantLock();
+
+	/** Number of searches answered from the cache. */
+	private final AtomicLong hitCount = new AtomicLong();
+
+	/** Number of searches that had to be run. */
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * Constructs a new, empty {@code HotelRoomCache}.
+	 * 
+	 * @param capacity
+	 *            Maximum number of results held.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code capacity} is less than one.
+	 */
+	HotelRoomCache(final int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive.");
+		}
+
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns the rooms held for {@code criteria}. On a miss, the caller must
+	 * run the search and hand its result to
+	 * {@link #finishSearch(HotelRoomCriteria, HotelRoom[]) finishSearch},
+	 * whether or not the search succeeds.
+	 * 
+	 * @param criteria
+	 *            Criteria the rooms are found by.
+	 * 
+	 * @return A copy of the rooms held; {@code null} if none are held.
+	 */
+	HotelRoom[] get(final HotelRoomCriteria criteria) {
+		/* What is held is never changed, so it can be copied unlocked. */
+		final HotelRoom[] hotelRooms = lookup(new Key(criteria));
+		return (hotelRooms == null) ? null : copyOf(hotelRooms);
+	}
+
+	/**
+	 * Returns the rooms held for {@code key}, counting the hit or miss, and
+	 * registers the search to be run on a miss.
+	 * 
+	 * @param key
+	 *            Criteria the rooms are found by.
+	 * 
+	 * @return The rooms held; {@code null} if none are held.
+	 */
+	private HotelRoom[] lookup(final Key key) {
+		final Result result = results.get(key);
+		if (result != null) {
+			result.lastUsed = System.nanoTime();
+			hitCount.incrementAndGet();
+			return result.hotelRooms;
+		}
+
+		/*
+		 * The result may have been held since; at worst, the search is run
+		 * once more than needed.
+		 */
+		missCount.incrementAndGet();
+		lock.lock();
+		try {
+			Load load = loads.get(key);
+			if (load == null) {
+				load = new Load();
+				loads.put(key, load);
+			}
+			load.searchCount++;
+			return null;
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Holds the rooms found by a search that {@link #get(HotelRoomCriteria)
+	 * missed}, unless a matching room changed while it was run.
+	 * 
+	 * @param criteria
+	 *            Criteria the rooms were found by.
+	 * 
+	 * @param hotelRooms
+	 *            Rooms found; {@code null} if the search failed.
+	 */
+	void finishSearch(final HotelRoomCriteria criteria,
+			final HotelRoom[] hotelRooms) {
+		finish(new Key(criteria),
+				(hotelRooms == null) ? null : copyOf(hotelRooms));
+	}
+
+	/**
+	 * Ends a search registered by {@link #lookup(Key) lookup}, holding its
+	 * rooms unless a matching room changed while it was run.
+	 * 
+	 * @param key
+	 *            Criteria the rooms were found by.
+	 * 
+	 * @param hotelRooms
+	 *            Copy of the rooms found; {@code null} if the search failed.
+	 */
+	private void finish(final Key key, final HotelRoom[] hotelRooms) {
+		lock.lock();
+		try {
+			final Load load = loads.get(key);
+			if (--load.searchCount == 0) {
+				loads.remove(key);
+			}
+
+			if ((hotelRooms != null) && !load.isStale) {
+				results.put(key, new Result(hotelRooms));
+				if (results.size() > capacity) {
+					forgetLeastRecentlyUsed();
+				}
+			}
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Forgets the result that was used least recently. The lock must be held
+	 * by the caller.
+	 */
+	private void forgetLeastRecentlyUsed() {
+		Map.Entry<Key, Result> eldest = null;
+		for (final Map.Entry<Key, Result> entry : results.entrySet()) {
+			final long lastUsed = entry.getValue().lastUsed;
+			if ((eldest == null) || (lastUsed - eldest.getValue().lastUsed < 0)) {
+				eldest = entry;
+			}
+		}
+		results.remove(eldest.getKey(), eldest.getValue());
+	}
+
+	/**
+	 * Forgets the results that held the room that changed from
+	 * {@code previous} to {@code current}, or would now hold it.
+	 * 
+	 * @param previous
+	 *            Fields of the room before the change; {@code null} if the
+	 *            room was created.
+	 * 
+	 * @param current
+	 *            Fields of the room after the change; {@code null} if the room
+	 *            was deleted.
+	 */
+	void change(final String[] previous, final String[] current) {
+		lock.lock();
+		try {
+			final Iterator<Key> keys = results.keySet().iterator();
+			while (keys.hasNext()) {
+				final Key key = keys.next();
+				if (key.matches(previous) || key.matches(current)) {
+					keys.remove();
+				}
+			}
+
+			for (final Map.Entry<Key, Load> load : loads.entrySet()) {
+				if (load.getKey().matches(previous)
+						|| load.getKey().matches(current)) {
+					load.getValue().isStale = true;
+				}
+			}
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of searches answered from the cache so far.
+	 * 
+	 * @return Number of hits.
+	 */
+	long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Returns the number of searches that had to be run so far.
+	 * 
+	 * @return Number of misses.
+	 */
+	long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Returns a copy of {@code hotelRooms} that shares nothing with it.
+	 * 
+	 * @param hotelRooms
+	 *            Rooms to copy.
+	 * 
+	 * @return The copy.
+	 */
+	private static HotelRoom[] copyOf(final HotelRoom[] hotelRooms) {
+		final HotelRoom[] copy = new HotelRoom[hotelRooms.length];
+		for (int i = 0; i < copy.length; i++) {
+			copy[i] = new HotelRoom(hotelRooms[i].getRecordNumber(),
+					hotelRooms[i].getFields().clone());
+		}
+		return copy;
+	}
+}
@@ -0,0 +1,254 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.service;
+
+import static suncertify.service.HotelRoom.Field.CUSTOMER;
+import static suncertify.service.HotelRoom.Field.DATE;
+import static suncertify.service.HotelRoom.Field.LOCATION;
+import static suncertify.service.HotelRoom.Field.NAME;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Counts the HotelRooms that are available, by location and date, and the
+ * rooms that are booked, by hotel. The counts are kept up to date one change
+ * at a time, so a count is read in constant time, however many rooms there
+ * are.
+ * 
+ * <p>
+ * Each room is counted in every group it belongs to, including the groups
+ * that leave the location, date, name or all of them open; a {@code null}
+ * within a {@link Group} stands for any value. Groups whose count drops to
+ * zero are forgotten.
+ * 
+ * <p>
+ * This class is thread-safe; a change is applied to every count at once, so
+ * the counts always agree with each other. Any number of counts may be read
+ * at the same time.
+ * 
+ * @author rsmall
+ */
+class HotelRoomCounters {
+
+	/** Pair of field values identifying a group of rooms. */
+	private static final class Group {
+
+		/** First value; {@code null} for any value. */
+		private final String first;
+
+		/** Second value; {@code null} for any value. */
+		private final String second;
+
+		/**
+		 * Constructs a new {@code Group}.
+		 * 
+		 * @param first
+		 *            First value; {@code null} for any value.
+		 * 
+		 * @param second
+		 *            Second value; {@code null} for any value.
+		 */
+		private Group(final String first, final String second) {
+			this.first = first;
+			this.second = second;
+		}
+
+		@Override
+		public boolean equals(final Object object) {
+			if (!(object instanceof Group)) {
+				return false;
+			}
+
+			final Group group = (Group) object;
+			return equal(first, group.first) && equal(second, group.second);
+		}
+
+		@Override
+		public int hashCode() {
+			return (31 * hash(first)) + hash(second);
+		}
+
+		/**
+		 * Determines if {@code a} and {@code b} are equal, either of which
+		 * may be {@code null}.
+		 * 
+		 * @param a
+		 *            First value.
+		 * 
+		 * @param b
+		 *            Second value.
+		 * 
+		 * @return {@code true} if the values are equal.
+		 */
+		private static boolean equal(final String a, final String b) {
+			return (a == null) ? (b == null) : a.equals(b);
+		}
+
+		/**
+		 * Returns the hash code of {@code value}, which may be {@code null}.
+		 * 
+		 * @param value
+		 *            Value to hash.
+		 * 
+		 * @return Hash code of {@code value}; zero for {@code null}.
+		 */
+		private static int hash(final String value) {
+			return (value == null) ? 0 : value.hashCode();
+		}
+	}
+
+	/** Number of available rooms by location and date. */
+	private final Map<Group, Integer> availableRooms =
+			new HashMap<Group, Integer>();
+
+	/** Number of booked rooms by hotel name and location. */
+	private final Map<Group, Integer> bookedRooms =
+			new HashMap<Group, Integer>();
+
+	/** Guards the counts; changes exclude each other and the reads. */
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Counts the room that changed from {@code previous} to {@code current}
+	 * as it is now rather than as it was.
+	 * 
+	 * @param previous
+	 *            Fields of the room before the change; {@code null} if the
+	 *            room was created.
+	 * 
+	 * @param current
+	 *            Fields of the room after the change; {@code null} if the room
+	 *            was deleted.
+	 */
+	void change(final String[] previous, final String[] current) {
+		lock.writeLock().lock();
+		try {
+			if (previous != null) {
+				count(previous, -1);
+			}
+			if (current != null) {
+				count(current, 1);
+			}
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of rooms available in {@code location} on
+	 * {@code date}.
+	 * 
+	 * @param location
+	 *            Location of the rooms; {@code null} for any location.
+	 * 
+	 * @param date
+	 *            Date the rooms are available on; {@code null} for any date.
+	 * 
+	 * @return Number of available rooms.
+	 */
+	int countAvailableRooms(final String location, final String date) {
+		lock.readLock().lock();
+		try {
+			return get(availableRooms, new Group(location, date));
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of rooms of the hotel called {@code name} in
+	 * {@code location} that are booked.
+	 * 
+	 * @param name
+	 *            Name of the hotel; {@code null} for any name.
+	 * 
+	 * @param location
+	 *            Location of the hotel; {@code null} for any location.
+	 * 
+	 * @return Number of booked rooms.
+	 */
+	int countBookedRooms(final String name, final String location) {
+		lock.readLock().lock();
+		try {
+			return get(bookedRooms, new Group(name, location));
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds {@code delta} to the count of every group the room represented by
+	 * {@code fields} belongs to.
+	 * 
+	 * @param fields
+	 *            Fields of the room.
+	 * 
+	 * @param delta
+	 *            One to count the room, minus one to no longer count it.
+	 */
+	private void count(final String[] fields, final int delta) {
+		final String name = fields[NAME.ordinal()];
+		final String location = fields[LOCATION.ordinal()];
+
+		if (fields[CUSTOMER.ordinal()].equals("")) {
+			final String date = fields[DATE.ordinal()];
+			add(availableRooms, new Group(location, date), delta);
+			add(availableRooms, new Group(location, null), delta);
+			add(availableRooms, new Group(null, date), delta);
+			add(availableRooms, new Group(null, null), delta);
+
+		} else {
+			add(bookedRooms, new Group(name, location), delta);
+			add(bookedRooms, new Group(name, null), delta);
+			add(bookedRooms, new Group(null, location), delta);
+			add(bookedRooms, new Group(null, null), delta);
+		}
+	}
+
+	/**
+	 * Adds {@code delta} to the count of {@code group}, forgetting the group
+	 * once its count drops to zero.
+	 * 
+	 * @param counts
+	 *            Counts the group is counted in.
+	 * 
+	 * @param group
+	 *            Group whose count changes.
+	 * 
+	 * @param delta
+	 *            Amount to add to the count.
+	 */
+	private static void add(final Map<Group, Integer> counts,
+			final Group group, final int delta) {
+		final int count = get(counts, group) + delta;
+		if (count == 0) {
+			counts.remove(group);
+		} else {
+			counts.put(group, count);
+		}
+	}
+
+	/**
+	 * Returns the count of {@code group}.
+	 * 
+	 * @param counts
+	 *            Counts the group is counted in.
+	 * 
+	 * @param group
+	 *            Group to count.
+	 * 
+	 * @return Count of {@code group}; zero if it is not counted.
+	 */
+	private static int get(final Map<Group, Integer> counts, final Group group) {
+		final Integer count = counts.get(group);
+		return (count == null) ? 0 : count;
+	}
+}
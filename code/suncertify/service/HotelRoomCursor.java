@@ -0,0 +1,148 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.service;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the HotelRooms that match a search, fetching them from the
+ * {@code HotelServices} a page at a time as they are needed (see
+ * {@link HotelServices#find(HotelRoomCriteria, String, int) find}). Only a
+ * single page is ever held, no matter how many rooms match, so a broad search
+ * of a large database can be walked through without holding every match at
+ * once.
+ * 
+ * <p>
+ * Each page is read as of the time it is fetched; a room is returned at most
+ * once, but a room changed while the search is walked through may be seen
+ * either before or after the change.
+ * 
+ * <p>
+ * The methods throw {@code ServicesException}, which is why this is not an
+ * {@code Iterator}. A {@code HotelRoomCursor} is not thread-safe.
+ * 
+ * @author rsmall
+ */
+public class HotelRoomCursor {
+
+	/** Number of rooms fetched at a time unless specified otherwise. */
+	public static final int DEFAULT_PAGE_SIZE = 100;
+
+	/** Services the rooms are fetched from. */
+	private final HotelServices services;
+
+	/** Criteria of the search. */
+	private final HotelRoomCriteria criteria = new HotelRoomCriteria();
+
+	/** Maximum number of rooms fetched at a time. */
+	private final int pageSize;
+
+	/** Rooms of the page being walked through. */
+	private HotelRoom[] page = new HotelRoom[0];
+
+	/** Index of the next room to return within {@code page}. */
+	private int index;
+
+	/** Token of the next page; {@code null} once the last page is fetched. */
+	private String nextPageToken;
+
+	/** Indicates the first page has been fetched. */
+	private boolean isStarted;
+
+	/**
+	 * Constructs a new {@code HotelRoomCursor} fetching
+	 * {@link #DEFAULT_PAGE_SIZE} rooms at a time.
+	 * 
+	 * @param services
+	 *            Services the rooms are fetched from.
+	 * 
+	 * @param criteria
+	 *            Criteria to use when searching for records; copied.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code services} or {@code criteria} is {@code null}.
+	 */
+	public HotelRoomCursor(final HotelServices services,
+			final HotelRoomCriteria criteria) {
+		this(services, criteria, DEFAULT_PAGE_SIZE);
+	}
+
+	/**
+	 * Constructs a new {@code HotelRoomCursor} fetching at most
+	 * {@code pageSize} rooms at a time.
+	 * 
+	 * @param services
+	 *            Services the rooms are fetched from.
+	 * 
+	 * @param criteria
+	 *            Criteria to use when searching for records; copied.
+	 * 
+	 * @param pageSize
+	 *            Maximum number of rooms fetched at a time.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code services} or {@code criteria} is {@code null} or
+	 *             {@code pageSize} is less than one.
+	 */
+	public HotelRoomCursor(final HotelServices services,
+			final HotelRoomCriteria criteria, final int pageSize) {
+		if ((services == null) || (criteria == null)) {
+			throw new IllegalArgumentException("arguments cannot be null");
+		}
+
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("pageSize must be positive");
+		}
+
+		this.services = services;
+		this.criteria.name = criteria.name;
+		this.criteria.location = criteria.location;
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Returns {@code true} if there are more rooms, fetching the next page if
+	 * the current one has been walked through.
+	 * 
+	 * @return {@code true} if {@link #next() next} will return a room.
+	 * 
+	 * @throws ServicesException
+	 *             If the next page could not be fetched.
+	 */
+	public boolean hasNext() throws ServicesException {
+		while (index == page.length) {
+			if (isStarted && (nextPageToken == null)) {
+				return false;
+			}
+
+			final HotelRoomPage fetched =
+					services.find(criteria, nextPageToken, pageSize);
+			isStarted = true;
+			page = fetched.getHotelRooms();
+			index = 0;
+			nextPageToken = fetched.getNextPageToken();
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the next room, fetching the next page if the current one has
+	 * been walked through.
+	 * 
+	 * @return The next room.
+	 * 
+	 * @throws ServicesException
+	 *             If the next page could not be fetched.
+	 * 
+	 * @throws NoSuchElementException
+	 *             If there are no more rooms.
+	 */
+	public HotelRoom next() throws ServicesException {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return page[index++];
+	}
+}
@@ -0,0 +1,106 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.service;
+
+/**
+ * Holds the HotelRooms that changed after a given version of the database, as
+ * they are as of a later version; see
+ * {@link HotelServices#changesSince(long) changesSince}. Should the changes no
+ * longer be known, the delta is {@link #isFull() full} and holds every room
+ * instead.
+ * 
+ * @author rsmall
+ */
+public final class HotelRoomDelta {
+
+	/** Version of the database the rooms are read as of. */
+	private final long version;
+
+	/** Indicates every room is held, rather than only the changed ones. */
+	private final boolean isFull;
+
+	/** Rooms that changed, or every room if the delta is full. */
+	private final HotelRoom[] hotelRooms;
+
+	/** Record numbers of the rooms that have been deleted. */
+	private final int[] deletedRecordNumbers;
+
+	/**
+	 * Constructs a new {@code HotelRoomDelta}.
+	 * 
+	 * <p>
+	 * This is public so that a delta can be rebuilt once it has been sent
+	 * over the network.
+	 * 
+	 * @param version
+	 *            Version of the database the rooms are read as of.
+	 * 
+	 * @param isFull
+	 *            {@code true} if every room is held.
+	 * 
+	 * @param hotelRooms
+	 *            Rooms that changed, or every room if {@code isFull}.
+	 * 
+	 * @param deletedRecordNumbers
+	 *            Record numbers of the rooms that have been deleted; empty if
+	 *            {@code isFull}.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code hotelRooms} or {@code deletedRecordNumbers} is
+	 *             {@code null}.
+	 */
+	public HotelRoomDelta(final long version, final boolean isFull,
+			final HotelRoom[] hotelRooms, final int[] deletedRecordNumbers) {
+		if ((hotelRooms == null) || (deletedRecordNumbers == null)) {
+			throw new IllegalArgumentException("rooms cannot be null");
+		}
+
+		this.version = version;
+		this.isFull = isFull;
+		this.hotelRooms = hotelRooms;
+		this.deletedRecordNumbers = deletedRecordNumbers;
+	}
+
+	/**
+	 * Returns the version of the database the rooms are read as of; the
+	 * version to ask for the next changes after.
+	 * 
+	 * @return Version of the delta.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns {@code true} if every room that exists is held, because the
+	 * changes made since the requested version are no longer known. Any room
+	 * that is not held has been deleted.
+	 * 
+	 * @return {@code true} if the delta replaces every room.
+	 */
+	public boolean isFull() {
+		return isFull;
+	}
+
+	/**
+	 * Returns the rooms that changed, or every room if the delta is full,
+	 * ordered by record number.
+	 * 
+	 * @return The rooms held.
+	 */
+	public HotelRoom[] getHotelRooms() {
+		return hotelRooms.clone();
+	}
+
+	/**
+	 * Returns the record numbers of the rooms that have been deleted, in
+	 * ascending order. A full delta reports none.
+	 * 
+	 * @return Record numbers of the deleted rooms.
+	 */
+	public int[] getDeletedRecordNumbers() {
+		return deletedRecordNumbers.clone();
+	}
+}
@@ -0,0 +1,137 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.service;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import suncertify.service.HotelRoom.Field;
+
+/**
+ * Describes a single change made to a {@code HotelRoom}: its record number and
+ * only those fields whose values changed. A room that has just been created
+ * has every field reported as changed; a room that has been deleted has none.
+ * 
+ * @author rsmall
+ */
+public final class HotelRoomEvent {
+
+	/** Record number of the room that changed. */
+	private final int recNo;
+
+	/** Version of the database the change was made in. */
+	private final long version;
+
+	/** Indicates the room has been deleted. */
+	private final boolean isDeleted;
+
+	/** New values of the fields that changed. */
+	private final Map<Field, String> changedFields;
+
+	/**
+	 * Constructs a new {@code HotelRoomEvent}.
+	 * 
+	 * <p>
+	 * This is public so that an event can be rebuilt once it has been sent
+	 * over the network.
+	 * 
+	 * @param recNo
+	 *            Record number of the room that changed.
+	 * 
+	 * @param version
+	 *            Version of the database the change was made in.
+	 * 
+	 * @param isDeleted
+	 *            {@code true} if the room has been deleted.
+	 * 
+	 * @param changedFields
+	 *            New values of the fields that changed; copied.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code changedFields} is {@code null} or holds a
+	 *             {@code null} field or value.
+	 */
+	public HotelRoomEvent(final int recNo, final long version,
+			final boolean isDeleted, final Map<Field, String> changedFields) {
+		if (changedFields == null) {
+			throw new IllegalArgumentException("changedFields cannot be null");
+		}
+
+		final EnumMap<Field, String> fields =
+				new EnumMap<Field, String>(Field.class);
+		for (final Map.Entry<Field, String> entry : changedFields.entrySet()) {
+			if ((entry.getKey() == null) || (entry.getValue() == null)) {
+				throw new IllegalArgumentException(
+						"changedFields cannot hold null");
+			}
+			fields.put(entry.getKey(), entry.getValue());
+		}
+
+		this.recNo = recNo;
+		this.version = version;
+		this.isDeleted = isDeleted;
+		this.changedFields = Collections.unmodifiableMap(fields);
+	}
+
+	/**
+	 * Returns the record number of the room that changed.
+	 * 
+	 * @return The record number.
+	 */
+	public int getRecordNumber() {
+		return recNo;
+	}
+
+	/**
+	 * Returns the version of the database the change was made in; the same
+	 * version a {@link HotelRoomImage} taken right after the change would
+	 * have. Later changes have larger versions.
+	 * 
+	 * @return Version of the change.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns {@code true} if the room has been deleted.
+	 * 
+	 * @return {@code true} if the room no longer exists.
+	 */
+	public boolean isDeleted() {
+		return isDeleted;
+	}
+
+	/**
+	 * Returns the new values of the fields that changed.
+	 * 
+	 * @return Unmodifiable map of the changed fields to their new values.
+	 */
+	public Map<Field, String> getChangedFields() {
+		return changedFields;
+	}
+
+	/**
+	 * Sets the changed fields of {@code hotelRoom}, a copy of the room that
+	 * changed, to their new values.
+	 * 
+	 * @param hotelRoom
+	 *            Copy of the room that changed.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code hotelRoom} is {@code null}, has a different record
+	 *             number or a new value exceeds its size constraint.
+	 */
+	public void applyTo(final HotelRoom hotelRoom) {
+		if ((hotelRoom == null) || (hotelRoom.getRecordNumber() != recNo)) {
+			throw new IllegalArgumentException("hotelRoom is not " + recNo);
+		}
+
+		for (final Map.Entry<Field, String> entry : changedFields.entrySet()) {
+			hotelRoom.setField(entry.getKey(), entry.getValue());
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * Every {@code HotelRoom} as of a single version of the database, held in the
+ * raw, fixed-width form the rooms are stored in. A room is only decoded once
+ * it is asked for, so holding the image costs little more than its bytes.
+ * 
+ * <p>
+ * The room with record number {@code recNo} is found at index {@code recNo};
+ * an index whose room has been deleted holds no room.
+ * 
+ * <p>
+ * Changes to the database system, specifically the structure of the records,
+ * will need to be reflected here.
+ * 
+ * @author rsmall
+ */
+public final class HotelRoomImage {
+
+	/** Number of bytes identifying the deletion status of a record. */
+	private static final int DELETED_LENGTH = 1;
+
+	/** Version of the database the image was taken at. */
+	private final long version;
+
+	/** The records, positioned at the first record. */
+	private final ByteBuffer records;
+
+	/** Number of bytes taken by each record. */
+	private final int recordSize;
+
+	/**
+	 * Constructs a new {@code HotelRoomImage}.
+	 * 
+	 * <p>
+	 * This is public so that an image can be rebuilt once it has been sent
+	 * over the network.
+	 * 
+	 * @param version
+	 *            Version of the database the image was taken at.
+	 * 
+	 * @param records
+	 *            The records in the form they are stored in the database file,
+	 *            from the first record to the end of the buffer. The buffer
+	 *            must not be modified afterwards.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code records} is {@code null} or does not hold a whole
+	 *             number of records.
+	 */
+	public HotelRoomImage(final long version, final ByteBuffer records) {
+		if (records == null) {
+			throw new IllegalArgumentException("records cannot be null");
+		}
+
+		int size = DELETED_LENGTH;
+		for (final int fieldLength : HotelRoom.Field.getFieldFormat()) {
+			size += fieldLength;
+		}
+
+		if ((records.remaining() % size) != 0) {
+			throw new IllegalArgumentException("invalid size");
+		}
+
+		this.version = version;
+		this.records = records.slice();
+		recordSize = size;
+	}
+
+	/**
+	 * Returns the version of the database the image was taken at. Two images
+	 * with the same version hold the very same rooms.
+	 * 
+	 * @return Version of the image.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns the number of records held, including the deleted ones.
+	 * 
+	 * @return One more than the largest record number held.
+	 */
+	public int size() {
+		return records.limit() / recordSize;
+	}
+
+	/**
+	 * Returns the records in the form they are stored in the database file.
+	 * Each call returns a new read-only view of the same bytes.
+	 * 
+	 * @return The records, positioned at the first record.
+	 */
+	public ByteBuffer getRecords() {
+		return records.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Decodes and returns the room with record number {@code recNo}. Each call
+	 * returns a new {@code HotelRoom}.
+	 * 
+	 * @param recNo
+	 *            Record number of the room.
+	 * 
+	 * @return The room, or {@code null} if it has been deleted.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *             If {@code recNo} is not between {@code 0} and
+	 *             {@code size() - 1}.
+	 */
+	public HotelRoom get(final int recNo) {
+		if ((recNo < 0) || (recNo >= size())) {
+			throw new IndexOutOfBoundsException("recNo: " + recNo);
+		}
+
+		final byte[] record = new byte[recordSize];
+		final ByteBuffer view = records.duplicate();
+		view.position(recNo * recordSize);
+		view.get(record);
+
+		if (record[0] != 0) {
+			return null;
+		}
+
+		final int[] format = HotelRoom.Field.getFieldFormat();
+		final String[] fields = new String[format.length];
+		int position = DELETED_LENGTH;
+		for (int i = 0; i < format.length; i++) {
+			fields[i] = new String(record, position, format[i]).trim();
+			position += format[i];
+		}
+		return new HotelRoom(recNo, fields);
+	}
+
+	/**
+	 * Decodes and returns every room that has not been deleted.
+	 * 
+	 * @return The rooms, ordered by record number.
+	 */
+	public HotelRoom[] getHotelRooms() {
+		final ArrayList<HotelRoom> hotelRooms = new ArrayList<HotelRoom>();
+		for (int recNo = 0; recNo < size(); recNo++) {
+			final HotelRoom hotelRoom = get(recNo);
+			if (hotelRoom != null) {
+				hotelRooms.add(hotelRoom);
+			}
+		}
+		return hotelRooms.toArray(new HotelRoom[hotelRooms.size()]);
+	}
+}
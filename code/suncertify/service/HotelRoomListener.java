@@ -0,0 +1,42 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.service;
+
+/**
+ * Receives a {@link HotelRoomEvent} every time a {@code HotelRoom} is changed
+ * by any client; see
+ * {@link HotelServices#addHotelRoomListener(HotelRoomListener)
+ * addHotelRoomListener}.
+ * 
+ * @author rsmall
+ */
+public interface HotelRoomListener {
+
+	/**
+	 * Invoked once a {@code HotelRoom} has been changed.
+	 * 
+	 * <p>
+	 * The events for a single room are received in the order the changes were
+	 * made. This method may be invoked by any thread, including one the
+	 * {@code HotelServices} needs to complete other operations, so it must
+	 * return quickly and must not invoke the {@code HotelServices} itself.
+	 * 
+	 * @param event
+	 *            Describes the change made to the room.
+	 */
+	public void hotelRoomChanged(final HotelRoomEvent event);
+
+	/**
+	 * Invoked when changes may have been made that could not be reported,
+	 * such as when the connection to a remote {@code HotelServices} was lost
+	 * and what changed in the meantime could not be fetched. Any
+	 * {@code HotelRoom} held may be out of date and should be read again.
+	 * 
+	 * <p>
+	 * The same restrictions apply as for
+	 * {@link #hotelRoomChanged(HotelRoomEvent) hotelRoomChanged}.
+	 */
+	public void hotelRoomEventsMissed();
+}
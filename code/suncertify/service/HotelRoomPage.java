@@ -0,0 +1,79 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.service;
+
+/**
+ * A single page of the HotelRooms that match a search, along with the token to
+ * fetch the next page with; see
+ * {@link HotelServices#find(HotelRoomCriteria, String, int) find}.
+ * 
+ * @author rsmall
+ */
+public final class HotelRoomPage {
+
+	/** Rooms on this page, ordered by record number. */
+	private final HotelRoom[] hotelRooms;
+
+	/** Token to fetch the next page with; {@code null} on the last page. */
+	private final String nextPageToken;
+
+	/**
+	 * Constructs a new {@code HotelRoomPage}.
+	 * 
+	 * <p>
+	 * This is public so that a page can be rebuilt once it has been sent over
+	 * the network.
+	 * 
+	 * @param hotelRooms
+	 *            Rooms on the page, ordered by record number.
+	 * 
+	 * @param nextPageToken
+	 *            Token to fetch the next page with; {@code null} if this is
+	 *            the last page.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code hotelRooms} is {@code null}.
+	 */
+	public HotelRoomPage(final HotelRoom[] hotelRooms,
+			final String nextPageToken) {
+		if (hotelRooms == null) {
+			throw new IllegalArgumentException("hotelRooms cannot be null");
+		}
+
+		this.hotelRooms = hotelRooms;
+		this.nextPageToken = nextPageToken;
+	}
+
+	/**
+	 * Returns the rooms on this page, ordered by record number.
+	 * 
+	 * @return The rooms on this page; possibly none.
+	 */
+	public HotelRoom[] getHotelRooms() {
+		return hotelRooms.clone();
+	}
+
+	/**
+	 * Returns the token to pass to
+	 * {@link HotelServices#find(HotelRoomCriteria, String, int) find} to fetch
+	 * the next page. The token is opaque; it should not be interpreted or
+	 * built by the client.
+	 * 
+	 * @return Token of the next page, or {@code null} if this is the last
+	 *         page.
+	 */
+	public String getNextPageToken() {
+		return nextPageToken;
+	}
+
+	/**
+	 * Returns {@code true} if this is the last page.
+	 * 
+	 * @return {@code true} if there are no more matches.
+	 */
+	public boolean isLastPage() {
+		return nextPageToken == null;
+	}
+}
@@ -0,0 +1,496 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.service;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import suncertify.service.HotelRoom.Field;
+
+/**
+ * Specifies which HotelRooms to find and how much of each to return when
+ * invoking {@link HotelServices#find(HotelRoomQuery) find}.
+ * 
+ * <p>
+ * The rooms are found by a {@link HotelRoomCriteria}, exactly as
+ * {@link HotelServices#find(HotelRoomCriteria) find} would find them, and
+ * must also meet every {@link Condition} added to the query, such as
+ * {@link #whereBetween(Field, String, String) whereBetween}, along with the
+ * {@link #whereAvailable(boolean) availability} asked for. A condition on a
+ * numeric field compares the numbers the values represent, as the sort keys
+ * do; any other field is compared as text, case sensitively unless the query
+ * is {@link #setCaseSensitive(boolean) told otherwise}. Only the
+ * {@link #setFields(Field...) selected} fields of each room are returned;
+ * {@link HotelRoom#getField(Field) getField} returns {@code null} for the
+ * others. A view that only shows a few of the fields can then leave the rest
+ * behind rather than have them copied and sent over the network.
+ * 
+ * <p>
+ * The rooms are returned in the order of the {@link #addSortKey(Field, boolean)
+ * sort keys}, or by record number if there are none. A {@link #setLimit(int)
+ * limit} returns only the first rooms in that order, such as the five
+ * cheapest rooms in a city, without the rest ever leaving the server.
+ * 
+ * @author rsmall
+ */
+public class HotelRoomQuery implements Serializable {
+	private static final long serialVersionUID = 4526093471188045902L;
+
+	/** Criteria the rooms are found by. */
+	private final HotelRoomCriteria criteria = new HotelRoomCriteria();
+
+	/** Fields returned of each room. */
+	private final EnumSet<Field> fields = EnumSet.allOf(Field.class);
+
+	/** Keys the rooms are sorted by, most significant first. */
+	private final ArrayList<SortKey> sortKeys = new ArrayList<SortKey>();
+
+	/** Maximum number of rooms returned; zero if there is no maximum. */
+	private int limit;
+
+	/** Conditions the rooms must meet. */
+	private final ArrayList<Condition> conditions = new ArrayList<Condition>();
+
+	/**
+	 * {@code true} to find only the available rooms, {@code false} only the
+	 * booked rooms and {@code null} for either.
+	 */
+	private Boolean isAvailable;
+
+	/** Indicates the text fields are compared case sensitively. */
+	private boolean isCaseSensitive = true;
+
+	/** How a field is compared with the values of a {@link Condition}. */
+	public enum Operator {
+
+		/** The field equals the value. */
+		EQUALS,
+
+		/** The field starts with the value. */
+		PREFIX,
+
+		/** The field lies between two values, inclusive. */
+		RANGE,
+
+		/** The field equals one of the values. */
+		IN
+	}
+
+	/**
+	 * A condition a single field of a room must meet for the room to be
+	 * found.
+	 */
+	public static final class Condition implements Serializable {
+		private static final long serialVersionUID = 6006226567359620374L;
+
+		/** Field the condition applies to. */
+		private final Field field;
+
+		/** How the field is compared with the values. */
+		private final Operator operator;
+
+		/**
+		 * Values the field is compared with; the lower and upper bound of a
+		 * range, either of which is {@code null} if there is none.
+		 */
+		private final String[] values;
+
+		/**
+		 * Constructs a new {@code Condition}.
+		 * 
+		 * @param field
+		 *            Field the condition applies to.
+		 * 
+		 * @param operator
+		 *            How the field is compared with the values.
+		 * 
+		 * @param values
+		 *            Values the field is compared with.
+		 */
+		private Condition(final Field field, final Operator operator,
+				final String[] values) {
+			this.field = field;
+			this.operator = operator;
+			this.values = values;
+		}
+
+		/**
+		 * Returns the field the condition applies to.
+		 * 
+		 * @return Field of the condition.
+		 */
+		public Field getField() {
+			return field;
+		}
+
+		/**
+		 * Returns how the field is compared with the values.
+		 * 
+		 * @return Operator of the condition.
+		 */
+		public Operator getOperator() {
+			return operator;
+		}
+
+		/**
+		 * Returns the values the field is compared with. A range has two: its
+		 * lower and upper bound, either of which is {@code null} if there is
+		 * none.
+		 * 
+		 * @return A copy of the values.
+		 */
+		public String[] getValues() {
+			return values.clone();
+		}
+	}
+
+	/**
+	 * Sorts the rooms by the value of a single field. The numeric fields,
+	 * {@link Field#OCCUPANCY OCCUPANCY} and {@link Field#COST COST}, are
+	 * compared by their numeric value, ignoring any currency symbol; the other
+	 * fields are compared as text, which orders the {@link Field#DATE DATE}s
+	 * chronologically. A value that cannot be compared, such as a
+	 * {@code COST} that is not a number, is sorted last.
+	 */
+	public static final class SortKey implements Serializable {
+		private static final long serialVersionUID = -3370817290470366615L;
+
+		/** Field the rooms are sorted by. */
+		private final Field field;
+
+		/** Indicates the lower values come first. */
+		private final boolean isAscending;
+
+		/**
+		 * Constructs a new {@code SortKey}.
+		 * 
+		 * @param field
+		 *            Field the rooms are sorted by.
+		 * 
+		 * @param isAscending
+		 *            {@code true} to put the lower values first.
+		 */
+		private SortKey(final Field field, final boolean isAscending) {
+			this.field = field;
+			this.isAscending = isAscending;
+		}
+
+		/**
+		 * Returns the field the rooms are sorted by.
+		 * 
+		 * @return Field of the key.
+		 */
+		public Field getField() {
+			return field;
+		}
+
+		/**
+		 * Returns {@code true} if the lower values come first.
+		 * 
+		 * @return {@code true} if ascending; {@code false} if descending.
+		 */
+		public boolean isAscending() {
+			return isAscending;
+		}
+	}
+
+	/**
+	 * Constructs a new {@code HotelRoomQuery} finding the rooms that match
+	 * {@code criteria}, returning every field.
+	 * 
+	 * @param criteria
+	 *            Criteria to use when searching for records; copied.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code criteria} is {@code null}.
+	 */
+	public HotelRoomQuery(final HotelRoomCriteria criteria) {
+		if (criteria == null) {
+			throw new IllegalArgumentException("criteria cannot be null");
+		}
+
+		this.criteria.name = criteria.name;
+		this.criteria.location = criteria.location;
+	}
+
+	/**
+	 * Returns the criteria the rooms are found by.
+	 * 
+	 * @return A copy of the criteria.
+	 */
+	public HotelRoomCriteria getCriteria() {
+		final HotelRoomCriteria copy = new HotelRoomCriteria();
+		copy.name = criteria.name;
+		copy.location = criteria.location;
+		return copy;
+	}
+
+	/**
+	 * Selects the fields returned of each room, replacing those selected
+	 * before. The record number is always returned.
+	 * 
+	 * @param selected
+	 *            Fields to return; every field if none are given.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code selected} is {@code null} or contains
+	 *             {@code null}.
+	 */
+	public void setFields(final Field... selected) {
+		if (selected == null) {
+			throw new IllegalArgumentException("fields cannot be null");
+		}
+
+		final EnumSet<Field> replacement = EnumSet.noneOf(Field.class);
+		for (final Field field : selected) {
+			if (field == null) {
+				throw new IllegalArgumentException("fields cannot be null");
+			}
+			replacement.add(field);
+		}
+
+		fields.clear();
+		if (replacement.isEmpty()) {
+			fields.addAll(EnumSet.allOf(Field.class));
+		} else {
+			fields.addAll(replacement);
+		}
+	}
+
+	/**
+	 * Returns the fields returned of each room.
+	 * 
+	 * @return A copy of the selected fields; never empty.
+	 */
+	public Set<Field> getFields() {
+		return EnumSet.copyOf(fields);
+	}
+
+	/**
+	 * Adds a key to sort the rooms by, less significant than the keys added
+	 * before it. Rooms that are equal by every key are ordered by record
+	 * number. The field need not be selected.
+	 * 
+	 * @param field
+	 *            Field to sort the rooms by.
+	 * 
+	 * @param isAscending
+	 *            {@code true} to put the lower values first.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code field} is {@code null}.
+	 */
+	public void addSortKey(final Field field, final boolean isAscending) {
+		if (field == null) {
+			throw new IllegalArgumentException("field cannot be null");
+		}
+		sortKeys.add(new SortKey(field, isAscending));
+	}
+
+	/**
+	 * Returns the keys the rooms are sorted by, most significant first.
+	 * 
+	 * @return Unmodifiable list of the sort keys; empty if the rooms are
+	 *         ordered by record number.
+	 */
+	public List<SortKey> getSortKeys() {
+		return Collections.unmodifiableList(new ArrayList<SortKey>(sortKeys));
+	}
+
+	/**
+	 * Limits the number of rooms returned to the first {@code limit} in the
+	 * order of the sort keys.
+	 * 
+	 * @param limit
+	 *            Maximum number of rooms returned; zero if there is no
+	 *            maximum.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code limit} is negative.
+	 */
+	public void setLimit(final int limit) {
+		if (limit < 0) {
+			throw new IllegalArgumentException("limit cannot be negative");
+		}
+		this.limit = limit;
+	}
+
+	/**
+	 * Returns the maximum number of rooms returned.
+	 * 
+	 * @return The limit; zero if there is no maximum.
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Finds only the rooms whose {@code field} equals {@code value}.
+	 * 
+	 * @param field
+	 *            Field the condition applies to.
+	 * 
+	 * @param value
+	 *            Value the field must equal.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If an argument is {@code null}.
+	 */
+	public void whereEquals(final Field field, final String value) {
+		addCondition(field, Operator.EQUALS, value);
+	}
+
+	/**
+	 * Finds only the rooms whose {@code field} starts with {@code prefix}.
+	 * The field is compared as text, even if it is numeric.
+	 * 
+	 * @param field
+	 *            Field the condition applies to.
+	 * 
+	 * @param prefix
+	 *            Value the field must start with.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If an argument is {@code null}.
+	 */
+	public void whereStartsWith(final Field field, final String prefix) {
+		addCondition(field, Operator.PREFIX, prefix);
+	}
+
+	/**
+	 * Finds only the rooms whose {@code field} lies between {@code low} and
+	 * {@code high}, inclusive; for instance, the rooms costing between
+	 * {@code 100} and {@code 150}, or available between two dates.
+	 * 
+	 * @param field
+	 *            Field the condition applies to.
+	 * 
+	 * @param low
+	 *            Lowest value of the field; {@code null} if there is none.
+	 * 
+	 * @param high
+	 *            Highest value of the field; {@code null} if there is none.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code field} is {@code null}.
+	 */
+	public void whereBetween(final Field field, final String low,
+			final String high) {
+		if (field == null) {
+			throw new IllegalArgumentException("field cannot be null");
+		}
+		conditions.add(new Condition(field, Operator.RANGE, new String[] {low,
+				high}));
+	}
+
+	/**
+	 * Finds only the rooms whose {@code field} equals one of {@code values}.
+	 * 
+	 * @param field
+	 *            Field the condition applies to.
+	 * 
+	 * @param values
+	 *            Values the field may equal; no room is found if there are
+	 *            none.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If an argument is {@code null} or {@code values} contains
+	 *             {@code null}.
+	 */
+	public void whereIn(final Field field, final String... values) {
+		addCondition(field, Operator.IN, values);
+	}
+
+	/**
+	 * Finds only the rooms that are available, or only those that are booked.
+	 * 
+	 * @param isAvailable
+	 *            {@code true} to find the available rooms; {@code false} to
+	 *            find the booked rooms.
+	 */
+	public void whereAvailable(final boolean isAvailable) {
+		this.isAvailable = isAvailable;
+	}
+
+	/**
+	 * Returns the conditions the rooms must meet, in the order they were
+	 * added.
+	 * 
+	 * @return Unmodifiable list of the conditions.
+	 */
+	public List<Condition> getConditions() {
+		return Collections.unmodifiableList(new ArrayList<Condition>(
+				conditions));
+	}
+
+	/**
+	 * Returns the availability of the rooms to find.
+	 * 
+	 * @return {@code true} if only the available rooms are found,
+	 *         {@code false} if only the booked rooms are found and
+	 *         {@code null} if either are.
+	 */
+	public Boolean getAvailability() {
+		return isAvailable;
+	}
+
+	/**
+	 * Sets whether the criteria and the conditions compare the text fields
+	 * case sensitively, as they do by default. Otherwise the values are
+	 * compared regardless of case and of surplus whitespace: whitespace at
+	 * either end is ignored and any run of whitespace within a value equals a
+	 * single space, so {@code " grand   VIEW"} equals {@code "Grand View"}.
+	 * The numeric fields are compared by their numbers either way.
+	 * 
+	 * @param isCaseSensitive
+	 *            {@code false} to compare the text fields regardless of case
+	 *            and of surplus whitespace.
+	 */
+	public void setCaseSensitive(final boolean isCaseSensitive) {
+		this.isCaseSensitive = isCaseSensitive;
+	}
+
+	/**
+	 * Returns {@code true} if the text fields are compared case sensitively.
+	 * 
+	 * @return {@code true} if case and whitespace matter.
+	 */
+	public boolean isCaseSensitive() {
+		return isCaseSensitive;
+	}
+
+	/**
+	 * Adds a condition comparing {@code field} with {@code values}.
+	 * 
+	 * @param field
+	 *            Field the condition applies to.
+	 * 
+	 * @param operator
+	 *            How the field is compared with the values.
+	 * 
+	 * @param values
+	 *            Values the field is compared with.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If an argument is {@code null} or {@code values} contains
+	 *             {@code null}.
+	 */
+	private void addCondition(final Field field, final Operator operator,
+			final String... values) {
+		if ((field == null) || (values == null)) {
+			throw new IllegalArgumentException("arguments cannot be null");
+		}
+		for (final String value : values) {
+			if (value == null) {
+				throw new IllegalArgumentException("values cannot be null");
+			}
+		}
+		conditions.add(new Condition(field, operator, values.clone()));
+	}
+}
@@ -48,6 +48,38 @@ public interface HotelServices {
 			throws HotelRoomNotFoundException, ServicesException,
 			IllegalArgumentException;
 
+	/**
+	 * Books every {@code HotelRoom} within {@code hotelRooms} for the customer
+	 * represented by {@code id} as a single unit; either every room is booked
+	 * or none of them are. This allows a group booking to be made in a single
+	 * operation.
+	 * 
+	 * <p>
+	 * Unlike {@link #bookRoom(HotelRoom, String) bookRoom}, the rooms are
+	 * written to the database as soon as they are booked.
+	 * 
+	 * @param hotelRooms
+	 *            HotelRooms to be booked.
+	 * 
+	 * @param id
+	 *            Identification code of the customer booking the rooms.
+	 * 
+	 * @throws HotelRoomNotFoundException
+	 *             If one of the rooms does not exist; no room was booked.
+	 * 
+	 * @throws ServicesException
+	 *             If an error occurred while booking the rooms; no room was
+	 *             booked.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code hotelRooms} is {@code null} or contains
+	 *             {@code null}, {@code id} is not an eight digit String or one
+	 *             of the rooms is already booked; no room was booked.
+	 */
+	public void bookRooms(final HotelRoom[] hotelRooms, final String id)
+			throws HotelRoomNotFoundException, ServicesException,
+			IllegalArgumentException;
+
 	/**
 	 * Returns all of the HotelRooms that are available (HotelRooms that have
 	 * been deleted are not considered available).
@@ -59,6 +91,75 @@ public interface HotelServices {
 	 */
 	public HotelRoom[] getHotelRooms() throws ServicesException;
 
+	/**
+	 * Returns every {@code HotelRoom} in the raw form the rooms are stored in,
+	 * stamped with the version of the database. Unlike
+	 * {@link #getHotelRooms() getHotelRooms}, the rooms are only decoded once
+	 * they are asked for, which makes this the cheapest way of fetching the
+	 * whole table.
+	 * 
+	 * @return Image of every room.
+	 * 
+	 * @throws ServicesException
+	 *             If there is a problem reading the database.
+	 */
+	public HotelRoomImage exportHotelRooms() throws ServicesException;
+
+	/**
+	 * Returns the HotelRooms that changed after version {@code version} of
+	 * the database, as of the latest version. The versions are those of
+	 * {@link HotelRoomImage#getVersion()}, {@link HotelRoomEvent#getVersion()}
+	 * and {@link HotelRoomDelta#getVersion()}, so a client holding the rooms
+	 * as of any of them only needs to fetch what changed since.
+	 * 
+	 * <p>
+	 * Only a bounded number of the most recent changes are remembered. Should
+	 * the client have fallen further behind than that, should {@code version}
+	 * date from before the server was last started, or should it be negative,
+	 * every room is returned instead in a {@link HotelRoomDelta#isFull()
+	 * full} delta.
+	 * 
+	 * @param version
+	 *            Version of the database the changes are wanted after.
+	 * 
+	 * @return The rooms changed since {@code version}.
+	 * 
+	 * @throws ServicesException
+	 *             If there is a problem reading the database.
+	 */
+	public HotelRoomDelta changesSince(final long version)
+			throws ServicesException;
+
+	/**
+	 * Adds {@code listener} to be notified every time a {@code HotelRoom} is
+	 * changed, no matter which client changed it. This allows a client to keep
+	 * the rooms it displays up to date without searching for them again.
+	 * 
+	 * @param listener
+	 *            Listener to add.
+	 * 
+	 * @throws ServicesException
+	 *             If the changes could not be subscribed to.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code listener} is {@code null}.
+	 */
+	public void addHotelRoomListener(final HotelRoomListener listener)
+			throws ServicesException, IllegalArgumentException;
+
+	/**
+	 * Removes {@code listener}, which will no longer be notified of changes.
+	 * Removing a listener that has not been added has no effect.
+	 * 
+	 * @param listener
+	 *            Listener to remove.
+	 * 
+	 * @throws ServicesException
+	 *             If the changes could not be unsubscribed from.
+	 */
+	public void removeHotelRoomListener(final HotelRoomListener listener)
+			throws ServicesException;
+
 	/**
 	 * Returns an array of the HotelRooms that match {@code criteria}. A
 	 * {@code HotelRoom} is considered a match if every attribute equals the
@@ -101,6 +202,169 @@ public interface HotelServices {
 	public HotelRoom[] find(final HotelRoomCriteria criteria)
 			throws ServicesException, IllegalArgumentException;
 
+	/**
+	 * Returns the HotelRooms that match the criteria of {@code query} and meet
+	 * its conditions, holding only the fields it selects; the criteria match
+	 * as {@link #find(HotelRoomCriteria) find} would have them. A field that
+	 * was not selected is {@code null}. The rooms are ordered by the sort keys of
+	 * {@code query}, and only as many as its limit allows are returned.
+	 * 
+	 * @param query
+	 *            Specifies the rooms to find and the fields to return.
+	 * 
+	 * @return An array of the HotelRooms that match {@code query}, in the
+	 *         order of its sort keys or else by record number.
+	 * 
+	 * @throws ServicesException
+	 *             If there is a problem reading the database.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code query} is {@code null}.
+	 */
+	public HotelRoom[] find(final HotelRoomQuery query)
+			throws ServicesException, IllegalArgumentException;
+
+	/**
+	 * Returns a single page of the HotelRooms that match {@code criteria},
+	 * ordered by record number; the rooms match as
+	 * {@link #find(HotelRoomCriteria) find} would have them. The next page is
+	 * fetched by invoking this method again with the
+	 * {@link HotelRoomPage#getNextPageToken() token} returned with the
+	 * previous one, until the last page is reached. This allows the matches
+	 * of a broad search to be fetched a few at a time, rather than all at
+	 * once; {@link HotelRoomCursor} walks through them that way.
+	 * 
+	 * <p>
+	 * A page may hold fewer than {@code limit} rooms, or even none, without
+	 * being the last; only a {@code null} token marks the end. Each page is
+	 * read as of the time it is fetched, so a room changed in the meantime may
+	 * no longer match, but no room is returned twice.
+	 * 
+	 * @param criteria
+	 *            Criteria to use when searching for records.
+	 * 
+	 * @param pageToken
+	 *            Token returned with the previous page, or {@code null} to
+	 *            fetch the first page.
+	 * 
+	 * @param limit
+	 *            Maximum number of rooms on the page.
+	 * 
+	 * @return A page of the HotelRooms that match {@code criteria}.
+	 * 
+	 * @throws ServicesException
+	 *             If there is a problem reading the database.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code criteria} is {@code null}, {@code pageToken} was
+	 *             not returned by this method or {@code limit} is less than
+	 *             one.
+	 */
+	public HotelRoomPage find(final HotelRoomCriteria criteria,
+			final String pageToken, final int limit) throws ServicesException,
+			IllegalArgumentException;
+
+	/**
+	 * Returns the HotelRooms whose name or location holds {@code text}, or
+	 * resembles it closely enough, best match first, regardless of case. This
+	 * allows a room to be found from part of its name or location, or from a
+	 * misspelling of it, where {@link #find(HotelRoomCriteria) find} would
+	 * only find the exact value.
+	 * 
+	 * <p>
+	 * <b>Example:</b> Searching for {@code pala} finds the rooms of the
+	 * {@code Palace}, as does searching for {@code Palase}; the rooms holding
+	 * the text come before those that only resemble it.
+	 * 
+	 * @param text
+	 *            Text to search for; leading and trailing whitespace is
+	 *            ignored.
+	 * 
+	 * @param limit
+	 *            Maximum number of rooms returned.
+	 * 
+	 * @return An array of the HotelRooms found, best match first.
+	 * 
+	 * @throws ServicesException
+	 *             If there is a problem reading the database.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code text} is {@code null} or blank, or {@code limit} is
+	 *             less than one.
+	 */
+	public HotelRoom[] search(final String text, final int limit)
+			throws ServicesException, IllegalArgumentException;
+
+	/**
+	 * Returns the number of HotelRooms in {@code location} that are available
+	 * on {@code date}. Either may be {@code null}, in which case the rooms of
+	 * every location or every date are counted; both {@code null} counts every
+	 * available room. The values are matched exactly, as
+	 * {@link #find(HotelRoomCriteria) find} would match them.
+	 * 
+	 * <p>
+	 * The count is read without searching for the rooms, so it costs the same
+	 * however many rooms there are.
+	 * 
+	 * @param location
+	 *            Location of the rooms; {@code null} for any location.
+	 * 
+	 * @param date
+	 *            Date the rooms are available on; {@code null} for any date.
+	 * 
+	 * @return Number of available rooms.
+	 * 
+	 * @throws ServicesException
+	 *             If the rooms could not be counted.
+	 */
+	public int countAvailableRooms(final String location, final String date)
+			throws ServicesException;
+
+	/**
+	 * Returns the HotelRooms booked by the customer represented by {@code id},
+	 * in record number order. The rooms are found without reading the
+	 * customer of every room, so it costs the same however many rooms there
+	 * are.
+	 * 
+	 * @param id
+	 *            Identification code of the customer.
+	 * 
+	 * @return An array of the HotelRooms booked by the customer; empty if
+	 *         there are none.
+	 * 
+	 * @throws ServicesException
+	 *             If there is a problem reading the database.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code id} is not an eight digit String.
+	 */
+	public HotelRoom[] findByCustomer(final String id)
+			throws ServicesException, IllegalArgumentException;
+
+	/**
+	 * Returns the number of booked HotelRooms of the hotel called {@code name}
+	 * in {@code location}. Either may be {@code null}, in which case the
+	 * bookings of every hotel of that name or in that location are counted;
+	 * both {@code null} counts every booked room.
+	 * 
+	 * <p>
+	 * The count is read without searching for the rooms, so it costs the same
+	 * however many rooms there are.
+	 * 
+	 * @param name
+	 *            Name of the hotel; {@code null} for any name.
+	 * 
+	 * @param location
+	 *            Location of the hotel; {@code null} for any location.
+	 * 
+	 * @return Number of booked rooms.
+	 * 
+	 * @throws ServicesException
+	 *             If the rooms could not be counted.
+	 */
+	public int countBookedRooms(final String name, final String location)
+			throws ServicesException;
+
 	/**
 	 * Saves the changes made to the records.
 	 * 
@@ -0,0 +1,111 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.service;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+import suncertify.db.SortKeyOrder;
+
+/**
+ * Orders the values of a numeric field, such as {@link HotelRoom.Field#COST
+ * COST}, by the numbers they represent rather than as text, so that
+ * {@code $90.00} comes before {@code $100.00}. Anything but the digits, the
+ * decimal point and the sign is ignored, which drops the currency symbol. A
+ * value that is not a number comes after every number; such values are
+ * ordered as text among themselves.
+ * 
+ * @author rsmall
+ */
+class NumericOrder implements SortKeyOrder<NumericOrder.Key>, Serializable {
+	private static final long serialVersionUID = 8297467052417713920L;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int compare(final String a, final String b) {
+		return sortKey(a).compareTo(sortKey(b));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Key sortKey(final String value) {
+		return new Key(parse(value), value);
+	}
+
+	/**
+	 * Returns the number {@code value} represents.
+	 * 
+	 * @param value
+	 *            Value of a numeric field.
+	 * 
+	 * @return The number, or {@code null} if {@code value} is not a number.
+	 */
+	static BigDecimal parse(final String value) {
+		final StringBuilder number = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			if (((c >= '0') && (c <= '9')) || (c == '.') || (c == '-')) {
+				number.append(c);
+			}
+		}
+
+		/* Spare the exception for the common case of a blank value. */
+		if (number.length() == 0) {
+			return null;
+		}
+
+		try {
+			return new BigDecimal(number.toString());
+		} catch (final NumberFormatException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Sort key of a value: the number it represents, if any, and otherwise
+	 * its text.
+	 */
+	static final class Key implements Comparable<Key> {
+
+		/** The number; {@code null} if the value is not a number. */
+		private final BigDecimal number;
+
+		/** Text of the value. */
+		private final String text;
+
+		/**
+		 * Constructs a new {@code Key}.
+		 * 
+		 * @param number
+		 *            The number; {@code null} if the value is not a number.
+		 * 
+		 * @param text
+		 *            Text of the value.
+		 */
+		Key(final BigDecimal number, final String text) {
+			this.number = number;
+			this.text = text;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int compareTo(final Key other) {
+			if ((number != null) && (other.number != null)) {
+				return number.compareTo(other.number);
+			} else if (number != null) {
+				return -1;
+			} else if (other.number != null) {
+				return 1;
+			}
+			return text.compareTo(other.text);
+		}
+	}
+}
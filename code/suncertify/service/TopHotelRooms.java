@@ -0,0 +1,191 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import suncertify.service.HotelRoom.Field;
+import suncertify.service.HotelRoomQuery.SortKey;
+
+/**
+ * Collects the first HotelRooms in the order of a {@link HotelRoomQuery}'s
+ * sort keys, out of every room offered. Only the rooms that may still be among
+ * the first are held: once {@code limit} rooms are held, the last of them is
+ * kept at the head of a heap, and a room offered afterwards either replaces it
+ * or is dropped straight away.
+ * 
+ * <p>
+ * The value each room is sorted by is parsed once, when the room is offered,
+ * rather than every time two rooms are compared.
+ * 
+ * @author rsmall
+ */
+class TopHotelRooms {
+
+	/** A room along with the values it is sorted by. */
+	private static class Ranked {
+
+		/** The room. */
+		private final HotelRoom hotelRoom;
+
+		/** Value of each sort key; {@code null} if it cannot be compared. */
+		private final Comparable<?>[] values;
+
+		/**
+		 * Constructs a new {@code Ranked}.
+		 * 
+		 * @param hotelRoom
+		 *            The room.
+		 * 
+		 * @param values
+		 *            Value of each sort key.
+		 */
+		private Ranked(final HotelRoom hotelRoom, final Comparable<?>[] values) {
+			this.hotelRoom = hotelRoom;
+			this.values = values;
+		}
+	}
+
+	/** Number of rooms the heap has room for before it grows. */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** Keys the rooms are sorted by, most significant first. */
+	private final SortKey[] sortKeys;
+
+	/** Maximum number of rooms collected. */
+	private final int limit;
+
+	/** Orders the rooms as the query wants them. */
+	private final Comparator<Ranked> order = new Comparator<Ranked>() {
+
+		@Override
+		public int compare(final Ranked a, final Ranked b) {
+			for (int i = 0; i < sortKeys.length; i++) {
+				final Comparable<?> aValue = a.values[i];
+				final Comparable<?> bValue = b.values[i];
+
+				/* A value that cannot be compared goes last either way. */
+				if ((aValue == null) || (bValue == null)) {
+					if (aValue != bValue) {
+						return (aValue == null) ? 1 : -1;
+					}
+					continue;
+				}
+
+				final int result = compareValues(aValue, bValue);
+				if (result != 0) {
+					return sortKeys[i].isAscending() ? result : -result;
+				}
+			}
+
+			final int aRecNo = a.hotelRoom.getRecordNumber();
+			final int bRecNo = b.hotelRoom.getRecordNumber();
+			return (aRecNo < bRecNo) ? -1 : ((aRecNo == bRecNo) ? 0 : 1);
+		}
+	};
+
+	/** Rooms collected; the last in order at the head. */
+	private final PriorityQueue<Ranked> heap;
+
+	/**
+	 * Constructs a new {@code TopHotelRooms}.
+	 * 
+	 * @param sortKeys
+	 *            Keys the rooms are sorted by, most significant first.
+	 * 
+	 * @param limit
+	 *            Maximum number of rooms collected; zero if there is no
+	 *            maximum.
+	 */
+	TopHotelRooms(final List<SortKey> sortKeys, final int limit) {
+		this.sortKeys = sortKeys.toArray(new SortKey[sortKeys.size()]);
+		this.limit = (limit == 0) ? Integer.MAX_VALUE : limit;
+		this.heap = new PriorityQueue<Ranked>(INITIAL_CAPACITY,
+				Collections.reverseOrder(order));
+	}
+
+	/**
+	 * Offers {@code hotelRoom}, which is held if it is among the first rooms
+	 * offered so far.
+	 * 
+	 * @param hotelRoom
+	 *            Room to offer; holds the value of every sort key.
+	 */
+	void offer(final HotelRoom hotelRoom) {
+		final Comparable<?>[] values = new Comparable<?>[sortKeys.length];
+		for (int i = 0; i < sortKeys.length; i++) {
+			final Field field = sortKeys[i].getField();
+			values[i] = toValue(field, hotelRoom.getField(field));
+		}
+
+		final Ranked ranked = new Ranked(hotelRoom, values);
+		if (heap.size() < limit) {
+			heap.add(ranked);
+
+		} else if (order.compare(ranked, heap.peek()) < 0) {
+			heap.poll();
+			heap.add(ranked);
+		}
+	}
+
+	/**
+	 * Returns the rooms held, in order.
+	 * 
+	 * @return The first rooms offered.
+	 */
+	HotelRoom[] toArray() {
+		final List<Ranked> ranked = new ArrayList<Ranked>(heap);
+		Collections.sort(ranked, order);
+
+		final HotelRoom[] hotelRooms = new HotelRoom[ranked.size()];
+		for (int i = 0; i < hotelRooms.length; i++) {
+			hotelRooms[i] = ranked.get(i).hotelRoom;
+		}
+		return hotelRooms;
+	}
+
+	/**
+	 * Returns the value {@code value} of {@code field} is sorted by.
+	 * 
+	 * @param field
+	 *            Field the value belongs to.
+	 * 
+	 * @param value
+	 *            Value of the field.
+	 * 
+	 * @return The number of a numeric field, the text of any other field or
+	 *         {@code null} if the value cannot be compared.
+	 */
+	private static Comparable<?> toValue(final Field field, final String value) {
+		if (value == null) {
+			return null;
+		}
+
+		return field.isNumeric() ? NumericOrder.parse(value) : value;
+	}
+
+	/**
+	 * Compares two values of the same sort key, which are always of the same
+	 * type.
+	 * 
+	 * @param a
+	 *            First value.
+	 * 
+	 * @param b
+	 *            Second value.
+	 * 
+	 * @return A negative number, zero or a positive number as {@code a} is
+	 *         less than, equal to or greater than {@code b}.
+	 */
+	@SuppressWarnings("unchecked")
+	private static int compareValues(final Comparable<?> a,
+			final Comparable<?> b) {
+		return ((Comparable<Object>) a).compareTo(b);
+	}
+}
@@ -0,0 +1,103 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.service.socket;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides, on behalf of a {@code HotelServer}, which requests are taken on
+ * and which are refused as "server busy", as specified by its
+ * {@code WorkloadLimits}.
+ * 
+ * <p>
+ * Every request must be {@link #admit() admitted} before it is queued for
+ * execution and, once admitted, must {@link #begin(long) begin} once a worker
+ * gets to it. Both methods are safe to call from any number of threads and
+ * never block.
+ * 
+ * @author rsmall
+ */
+class AdmissionControl {
+
+	/** Number of requests that may be waiting to be executed. */
+	private final int queueLimit;
+
+	/** Nanoseconds a request may wait; {@code 0} for no limit. */
+	private final long targetQueueNanos;
+
+	/** Number of requests admitted that have not begun yet. */
+	private final AtomicInteger queued = new AtomicInteger();
+
+	/**
+	 * Indicates that the last request to begin had waited longer than the
+	 * target; new requests are refused until this changes or the queue has
+	 * drained.
+	 */
+	private volatile boolean isOverloaded;
+
+	/**
+	 * Constructs a new {@code AdmissionControl}.
+	 * 
+	 * @param limits
+	 *            Limits to enforce.
+	 */
+	AdmissionControl(final WorkloadLimits limits) {
+		queueLimit = limits.getQueueLimit();
+		targetQueueNanos =
+				TimeUnit.MILLISECONDS.toNanos(limits.getTargetQueueTime());
+	}
+
+	/**
+	 * Decides whether a newly arrived request may be queued for execution.
+	 * 
+	 * @return {@code true} if the request has been admitted; {@code false} if
+	 *         it must be refused.
+	 */
+	boolean admit() {
+		/*
+		 * The overload is only trusted while there is a queue; otherwise, a
+		 * late request that began just before the queue drained could keep
+		 * every request out for good.
+		 */
+		if (isOverloaded && (queued.get() > 0)) {
+			return false;
+		}
+
+		while (true) {
+			final int count = queued.get();
+			if (count >= queueLimit) {
+				return false;
+			}
+
+			if (queued.compareAndSet(count, count + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Records that a worker has got to an admitted request and decides
+	 * whether it should still be executed.
+	 * 
+	 * @param admittedAt
+	 *            Value of {@link System#nanoTime()} when the request was
+	 *            admitted.
+	 * 
+	 * @return {@code true} if the request should be executed; {@code false}
+	 *         if it has waited too long and must be refused.
+	 */
+	boolean begin(final long admittedAt) {
+		final int remaining = queued.decrementAndGet();
+
+		if (targetQueueNanos == 0) {
+			return true;
+		}
+
+		final boolean isLate = (System.nanoTime() - admittedAt) > targetQueueNanos;
+		isOverloaded = isLate && (remaining > 0);
+		return !isLate;
+	}
+}
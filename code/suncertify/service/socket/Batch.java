@@ -0,0 +1,190 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.service.socket;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import suncertify.service.HotelRoom;
+import suncertify.service.HotelRoomCriteria;
+
+/**
+ * Collects several finds and bookings to be sent to the server as a single
+ * request (see {@link HotelClient#execute(Batch)}), saving a round trip for
+ * each of them.
+ * 
+ * <p>
+ * The operations are executed as though one after another, in the order they
+ * were added; however, finds that are not separated by a booking are
+ * independent of each other and are executed in parallel. Each operation
+ * succeeds or fails on its own; a failed booking does not prevent the
+ * operations after it from being executed. The outcome of each is found in the
+ * {@link BatchResult} at the index returned when it was added.
+ * 
+ * <p>
+ * A {@code Batch} is not thread-safe. It may be executed any number of times.
+ * 
+ * @author rsmall
+ */
+public class Batch {
+
+	/** Largest number of operations a batch may hold. */
+	public static final int MAX_SIZE = 1000;
+
+	/** Operations added so far. */
+	private final List<Operation> operations = new ArrayList<Operation>();
+
+	/**
+	 * Adds the operation to book {@code hotelRoom} for the customer
+	 * represented by {@code id} (see {@link HotelClient#bookRoom(HotelRoom,
+	 * String) bookRoom}).
+	 * 
+	 * @param hotelRoom
+	 *            {@code HotelRoom} to be booked.
+	 * 
+	 * @param id
+	 *            Identification code of the customer booking {@code hotelRoom}.
+	 * 
+	 * @return Index of the outcome within the {@code BatchResult}.
+	 * 
+	 * @throws IllegalStateException
+	 *             If the batch already holds {@link #MAX_SIZE} operations.
+	 */
+	public int bookRoom(final HotelRoom hotelRoom, final String id) {
+		final Operation operation = new Operation(Protocol.BOOK);
+		operation.hotelRooms = new HotelRoom[] {hotelRoom};
+		operation.id = id;
+		return add(operation);
+	}
+
+	/**
+	 * Adds the operation to book every room within {@code hotelRooms} for the
+	 * customer represented by {@code id} as a single unit (see
+	 * {@link HotelClient#bookRooms(HotelRoom[], String) bookRooms}).
+	 * 
+	 * @param hotelRooms
+	 *            HotelRooms to be booked.
+	 * 
+	 * @param id
+	 *            Identification code of the customer booking the rooms.
+	 * 
+	 * @return Index of the outcome within the {@code BatchResult}.
+	 * 
+	 * @throws IllegalStateException
+	 *             If the batch already holds {@link #MAX_SIZE} operations.
+	 */
+	public int bookRooms(final HotelRoom[] hotelRooms, final String id) {
+		final Operation operation = new Operation(Protocol.BOOK_ROOMS);
+		operation.hotelRooms = (hotelRooms == null) ? null : hotelRooms.clone();
+		operation.id = id;
+		return add(operation);
+	}
+
+	/**
+	 * Adds the operation to find the HotelRooms that match {@code criteria}
+	 * (see {@link HotelClient#find(HotelRoomCriteria) find}). Later changes
+	 * to {@code criteria} do not affect the batch.
+	 * 
+	 * @param criteria
+	 *            Criteria to use when searching for records.
+	 * 
+	 * @return Index of the outcome within the {@code BatchResult}.
+	 * 
+	 * @throws IllegalStateException
+	 *             If the batch already holds {@link #MAX_SIZE} operations.
+	 */
+	public int find(final HotelRoomCriteria criteria) {
+		final Operation operation = new Operation(Protocol.FIND);
+		if (criteria != null) {
+			operation.criteria = new HotelRoomCriteria();
+			operation.criteria.name = criteria.name;
+			operation.criteria.location = criteria.location;
+		}
+		return add(operation);
+	}
+
+	/**
+	 * Returns the number of operations added so far.
+	 * 
+	 * @return Number of operations in the batch.
+	 */
+	public int size() {
+		return operations.size();
+	}
+
+	/**
+	 * Adds {@code operation} to the end of the batch.
+	 * 
+	 * @param operation
+	 *            Operation to add.
+	 * 
+	 * @return Index of the operation.
+	 */
+	private int add(final Operation operation) {
+		if (operations.size() == MAX_SIZE) {
+			throw new IllegalStateException("batch is full");
+		}
+
+		operations.add(operation);
+		return operations.size() - 1;
+	}
+
+	/**
+	 * Writes the operations as the arguments of a {@link Protocol#BATCH}
+	 * request.
+	 * 
+	 * @param request
+	 *            The request being written.
+	 */
+	void writeTo(final WireWriter request) {
+		request.writeVarInt(operations.size());
+		for (final Operation operation : operations) {
+			request.writeByte(operation.opcode);
+			switch (operation.opcode) {
+			case Protocol.BOOK:
+				request.writeHotelRoom(operation.hotelRooms[0]);
+				request.writeString(operation.id);
+				break;
+
+			case Protocol.BOOK_ROOMS:
+				request.writeHotelRooms(operation.hotelRooms);
+				request.writeString(operation.id);
+				break;
+
+			default:
+				request.writeCriteria(operation.criteria);
+				break;
+			}
+		}
+	}
+
+	/**
+	 * A single operation of the batch along with its arguments.
+	 */
+	private static class Operation {
+
+		/** Opcode of the operation. */
+		private final int opcode;
+
+		/** Rooms to book, if a booking. */
+		private HotelRoom[] hotelRooms;
+
+		/** Customer booking the rooms, if a booking. */
+		private String id;
+
+		/** Criteria to search with, if a find. */
+		private HotelRoomCriteria criteria;
+
+		/**
+		 * Constructs a new {@code Operation}.
+		 * 
+		 * @param opcode
+		 *            Opcode of the operation.
+		 */
+		Operation(final int opcode) {
+			this.opcode = opcode;
+		}
+	}
+}
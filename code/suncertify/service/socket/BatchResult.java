@@ -0,0 +1,121 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.service.socket;
+
+import suncertify.service.HotelRoom;
+import suncertify.service.ServicesException;
+
+/**
+ * Holds the outcome of every operation of an executed {@link Batch}, at the
+ * index returned when the operation was added to the batch.
+ * 
+ * @author rsmall
+ */
+public class BatchResult {
+
+	/** The rooms found by each find; {@code null} for the bookings. */
+	private final HotelRoom[][] results;
+
+	/**
+	 * The exception each operation failed with, either a
+	 * {@code ServicesException} or an {@code IllegalArgumentException};
+	 * {@code null} for the operations that succeeded.
+	 */
+	private final Exception[] failures;
+
+	/**
+	 * Constructs a new {@code BatchResult} with room for {@code size}
+	 * outcomes.
+	 * 
+	 * @param size
+	 *            Number of operations in the batch.
+	 */
+	BatchResult(final int size) {
+		results = new HotelRoom[size][];
+		failures = new Exception[size];
+	}
+
+	/**
+	 * Records the outcome of a successful operation.
+	 * 
+	 * @param index
+	 *            Index of the operation.
+	 * 
+	 * @param hotelRooms
+	 *            The rooms found, or {@code null} for a booking.
+	 */
+	void succeeded(final int index, final HotelRoom[] hotelRooms) {
+		results[index] = hotelRooms;
+	}
+
+	/**
+	 * Records the outcome of a failed operation.
+	 * 
+	 * @param index
+	 *            Index of the operation.
+	 * 
+	 * @param failure
+	 *            Either a {@code ServicesException} or an
+	 *            {@code IllegalArgumentException}.
+	 */
+	void failed(final int index, final Exception failure) {
+		failures[index] = failure;
+	}
+
+	/**
+	 * Returns the number of operations in the batch.
+	 * 
+	 * @return Number of outcomes held.
+	 */
+	public int size() {
+		return results.length;
+	}
+
+	/**
+	 * Returns {@code true} if the operation at {@code index} succeeded.
+	 * 
+	 * @param index
+	 *            Index of the operation.
+	 * 
+	 * @return {@code true} if the operation succeeded.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *             If there is no operation at {@code index}.
+	 */
+	public boolean isSuccessful(final int index) {
+		return failures[index] == null;
+	}
+
+	/**
+	 * Returns the outcome of the operation at {@code index}, throwing the
+	 * exception it failed with, if any, just as the corresponding method of
+	 * {@code HotelClient} would have.
+	 * 
+	 * @param index
+	 *            Index of the operation.
+	 * 
+	 * @return The rooms found for a find; {@code null} for a booking.
+	 * 
+	 * @throws ServicesException
+	 *             If the operation failed with a {@code ServicesException},
+	 *             including {@code HotelRoomNotFoundException}.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the server rejected the arguments of the operation.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *             If there is no operation at {@code index}.
+	 */
+	public HotelRoom[] get(final int index) throws ServicesException {
+		final Exception failure = failures[index];
+		if (failure instanceof ServicesException) {
+			throw (ServicesException) failure;
+		}
+		if (failure != null) {
+			throw (IllegalArgumentException) failure;
+		}
+		return results[index];
+	}
+}
@@ -0,0 +1,222 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.service.socket;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Delimits the messages exchanged between the {@code HotelClient} and the
+ * {@code HotelServer}. A frame consists of a four byte length followed by
+ * that many bytes holding the message, as laid out by {@link Protocol}. Since
+ * the length of a message is known before it is read, the server can collect
+ * a frame a piece at a time as the bytes arrive and only decode it once it is
+ * complete.
+ * 
+ * <p>
+ * Once a client has agreed to it (see {@link Protocol#HELLO}), the server may
+ * compress the body of a large frame, which is marked by setting the highest
+ * bit of the length. The body of a compressed frame holds the four byte length
+ * of the original body followed by the original body, compressed with
+ * {@code Deflater}. Room listings compress well, since the names and
+ * locations repeat heavily; small frames are never compressed, as they would
+ * gain little and cost time.
+ * 
+ * @author rsmall
+ */
+final class Frames {
+
+	/** Number of bytes used to hold the length of a frame. */
+	static final int HEADER_SIZE = 4;
+
+	/** Largest message, in bytes, that will be accepted. */
+	static final int MAX_MESSAGE_SIZE = 16 * 1024 * 1024;
+
+	/** Bit of the length that is set when the body is compressed. */
+	static final int COMPRESSED = 0x80000000;
+
+	/** Size, in bytes, a body must exceed for it to be compressed. */
+	static final int COMPRESSION_THRESHOLD = 1024;
+
+	/**
+	 * Private constructor to prevent it from being instantiated.
+	 */
+	private Frames() {
+	}
+
+	/**
+	 * Checks the length read from the header of a frame.
+	 * 
+	 * @param length
+	 *            Length read from the header of a frame.
+	 * 
+	 * @return {@code length}
+	 * 
+	 * @throws StreamCorruptedException
+	 *             If {@code length} is negative or greater than
+	 *             {@link #MAX_MESSAGE_SIZE}.
+	 */
+	static int checkLength(final int length) throws StreamCorruptedException {
+		if ((length < 0) || (length > MAX_MESSAGE_SIZE)) {
+			throw new StreamCorruptedException("invalid frame length: "
+					+ length);
+		}
+		return length;
+	}
+
+	/**
+	 * Blocks until a complete frame has been read from {@code in} and returns
+	 * its body.
+	 * 
+	 * @param in
+	 *            Stream to read the frame from.
+	 * 
+	 * @return The body of the frame.
+	 * 
+	 * @throws IOException
+	 *             If the frame could not be read; including reaching the end
+	 *             of the stream.
+	 */
+	static byte[] read(final DataInputStream in) throws IOException {
+		final int length = in.readInt();
+		final byte[] body = new byte[checkLength(length & ~COMPRESSED)];
+		in.readFully(body);
+
+		if ((length & COMPRESSED) != 0) {
+			return inflate(body);
+		}
+		return body;
+	}
+
+	/**
+	 * Returns {@code frame} with its body compressed, unless the body is too
+	 * small to be worth compressing or does not get any smaller.
+	 * 
+	 * @param frame
+	 *            The frame to compress, including its header.
+	 * 
+	 * @return The compressed frame, or {@code frame} itself.
+	 */
+	static byte[] compress(final byte[] frame) {
+		final int length = frame.length - HEADER_SIZE;
+		if (length <= COMPRESSION_THRESHOLD) {
+			return frame;
+		}
+
+		final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			deflater.setInput(frame, HEADER_SIZE, length);
+			deflater.finish();
+
+			/* Anything larger than the original is not worth sending. */
+			final byte[] compressed = new byte[frame.length];
+			int size = 2 * HEADER_SIZE;
+			while (!deflater.finished() && (size < compressed.length)) {
+				size += deflater.deflate(compressed, size, compressed.length
+						- size);
+			}
+			if (!deflater.finished()) {
+				return frame;
+			}
+
+			writeInt(compressed, 0, (size - HEADER_SIZE) | COMPRESSED);
+			writeInt(compressed, HEADER_SIZE, length);
+
+			final byte[] result = new byte[size];
+			System.arraycopy(compressed, 0, result, 0, size);
+			return result;
+
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Returns the original body of a compressed frame.
+	 * 
+	 * @param body
+	 *            Body of the compressed frame.
+	 * 
+	 * @return The original body.
+	 * 
+	 * @throws StreamCorruptedException
+	 *             If {@code body} could not be decompressed.
+	 */
+	private static byte[] inflate(final byte[] body)
+			throws StreamCorruptedException {
+		if (body.length < HEADER_SIZE) {
+			throw new StreamCorruptedException("compressed frame is truncated");
+		}
+
+		final byte[] original = new byte[checkLength(readInt(body, 0))];
+		final Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(body, HEADER_SIZE, body.length - HEADER_SIZE);
+			int size = 0;
+			while ((size < original.length) && !inflater.finished()) {
+				final int inflated =
+						inflater.inflate(original, size, original.length - size);
+				if ((inflated == 0) && inflater.needsInput()) {
+					break;
+				}
+				size += inflated;
+			}
+
+			if ((size != original.length) || !inflater.finished()) {
+				throw new StreamCorruptedException(
+						"compressed frame does not match its length");
+			}
+			return original;
+
+		} catch (final DataFormatException ex) {
+			throw new StreamCorruptedException("compressed frame is invalid");
+
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Writes {@code value} into {@code bytes} as four bytes, most significant
+	 * first.
+	 * 
+	 * @param bytes
+	 *            Array to write into.
+	 * 
+	 * @param offset
+	 *            Position of the first byte.
+	 * 
+	 * @param value
+	 *            Value to write.
+	 */
+	private static void writeInt(final byte[] bytes, final int offset,
+			final int value) {
+		bytes[offset] = (byte) (value >>> 24);
+		bytes[offset + 1] = (byte) (value >>> 16);
+		bytes[offset + 2] = (byte) (value >>> 8);
+		bytes[offset + 3] = (byte) value;
+	}
+
+	/**
+	 * Reads four bytes from {@code bytes}, most significant first.
+	 * 
+	 * @param bytes
+	 *            Array to read from.
+	 * 
+	 * @param offset
+	 *            Position of the first byte.
+	 * 
+	 * @return The value read.
+	 */
+	private static int readInt(final byte[] bytes, final int offset) {
+		return ((bytes[offset] & 0xFF) << 24)
+				| ((bytes[offset + 1] & 0xFF) << 16)
+				| ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+	}
+}
@@ -4,11 +4,29 @@
  */
 package suncertify.service.socket;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import suncertify.service.*;
 import suncertify.ui.LaunchException;
@@ -21,10 +39,48 @@ import suncertify.ui.LaunchException;
  * <p>
  * Client based implementation of {@code HotelServices}. Invoking any method
  * here will be handled by the server. The server will send back the results.
- * All communication with the server is handled through sockets. The server must
+ * All communication with the server is handled through sockets, using the
+ * binary {@link Protocol}. The server must
  * be available at all times.
  * 
  * <p>
+ * A single connection to the server is opened when the {@code HotelClient} is
+ * constructed and is shared by every request made afterwards, no matter how
+ * many threads are making them. Each request is tagged with an identifier so
+ * that any number of requests may be waiting on the connection at once; the
+ * results are handed back to the waiting threads as they arrive. Should the
+ * connection be lost, the requests waiting on it fail and the next request
+ * opens a new connection. A new connection announces which optional
+ * capabilities of the protocol the client supports, such as having large
+ * results compressed, and the server uses those it supports as well.
+ * 
+ * <p>
+ * Besides the blocking methods of {@code HotelServices}, every operation is
+ * also offered as an asynchronous method, such as
+ * {@link #findAsync(HotelRoomCriteria) findAsync}, that sends the request and
+ * returns a {@code Future} straight away. A single thread can thus send many
+ * requests back to back without waiting a full round trip for each; the
+ * server executes them concurrently and answers each as soon as it is done,
+ * so the results may arrive in any order. Requests sent this way may also be
+ * executed in any order; a request that depends on the outcome of another
+ * should only be sent once the other's {@code Future} is done.
+ * 
+ * <p>
+ * Several finds and bookings may also be sent as a single request by
+ * collecting them in a {@link Batch} and passing it to
+ * {@link #execute(Batch) execute}.
+ * 
+ * <p>
+ * Once a {@link HotelRoomListener} has been added, the client subscribes to
+ * the changes made to the rooms and the server pushes an event for each one
+ * on the same connection. The listeners are notified by the thread reading
+ * the results. Should the connection be lost, perhaps because the server
+ * found the client falling too far behind on the events, a new connection is
+ * opened straight away, the subscription is renewed and the changes made in
+ * the meantime are fetched and reported as events. Should that not be
+ * possible, the listeners are told that they have missed events instead.
+ * 
+ * <p>
  * Note that failure to call {@link #save() save} after the last record has been
  * modified will result in some lost data.
  * 
@@ -38,6 +94,25 @@ public class HotelClient implements HotelServices {
 	/** Port the server is listening on. */
 	private final int port;
 
+	/** Identifier assigned to the most recently sent request. */
+	private final AtomicInteger requestId = new AtomicInteger();
+
+	/** Limits access to {@code connection}. */
+	private final Lock connectionLock = new ReentrantLock();
+
+	/** Connection shared by every request; replaced once it is lost. */
+	private Connection connection;
+
+	/** Listeners notified of the events pushed by the server. */
+	private final CopyOnWriteArrayList<HotelRoomListener> listeners =
+			new CopyOnWriteArrayList<HotelRoomListener>();
+
+	/**
+	 * Version of the most recent change reported to the listeners; {@code 0}
+	 * until the first one, which no delta can be fetched after.
+	 */
+	private volatile long lastEventVersion;
+
 	/**
 	 * Constructs a new {@code HotelClient} using the {@code hostname} and
 	 * {@code port} to connect with the server. It is expected that the server
@@ -66,71 +141,398 @@ public class HotelClient implements HotelServices {
 					"Port number must be greater than 1024 and less than 65535.");
 		}
 
+		this.hostname = hostname;
+		this.port = port;
+
 		try {
-			/* Perform a quick check to ensure that the server is available. */
-			final Socket socket = new Socket(hostname, port);
-			socket.close();
+			/*
+			 * Opening the connection up front doubles as a check that the
+			 * server is available; the connection is then kept for the first
+			 * request.
+			 */
+			getConnection();
 
-		} catch (final IOException ex) {
+		} catch (final ServicesException ex) {
 			throw new LaunchException("Server not found.");
 		}
+	}
 
-		this.hostname = hostname;
-		this.port = port;
+	/**
+	 * Returns the connection to the server, opening a new one if there is no
+	 * connection or the previous one has been lost.
+	 * 
+	 * @return An open connection to the server.
+	 * 
+	 * @throws ServicesException
+	 *             If a connection to the server could not be opened.
+	 */
+	private Connection getConnection() throws ServicesException {
+		connectionLock.lock();
+		try {
+			if ((connection == null) || connection.isClosed()) {
+				connection = new Connection(connection != null);
+			}
+			return connection;
+
+		} finally {
+			connectionLock.unlock();
+		}
+	}
+
+	/**
+	 * Closes the connection to the server. Any request still waiting on the
+	 * connection will fail. Making another request will open a new
+	 * connection.
+	 */
+	public void close() {
+		connectionLock.lock();
+		try {
+			if (connection != null) {
+				connection.close();
+				connection = null;
+			}
+
+		} finally {
+			connectionLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the exception used to report that the server could not be
+	 * communicated with.
+	 * 
+	 * @return Exception describing the communication failure.
+	 */
+	private static ServicesException communicationError() {
+		/*
+		 * The most likely reason for the failure would be due to the server
+		 * not being available.
+		 */
+		String err = "Error communicating with the server.\n";
+		err += "Please check that the server is still running.";
+		return new ServicesException(err);
 	}
 
 	/**
-	 * Sends the {@code ServiceRequest} to the server to be executed and returns
-	 * the result. The result can take any form; including {@code null} and an
-	 * exception.
+	 * Returns the identifier to tag the next request with. The identifier of
+	 * the events is skipped when the identifiers wrap around.
+	 * 
+	 * @return Identifier of the next request.
+	 */
+	private int nextRequestId() {
+		int id = requestId.incrementAndGet();
+		if (id == Protocol.EVENT_ID) {
+			id = requestId.incrementAndGet();
+		}
+		return id;
+	}
+
+	/**
+	 * Sends {@code request} to the server to be executed, without waiting for
+	 * the response.
 	 * 
 	 * @param request
-	 *            {@code ServiceRequest} to send to the server to be executed.
+	 *            The request to send, with its arguments already written.
 	 * 
-	 * @return The return value of {@code execute} on {@code request}. This
-	 *         value could be an exception.
+	 * @return Holder the response to {@code request} will be handed to.
 	 * 
 	 * @throws ServicesException
-	 *             If there is a problem communicating with the server.
+	 *             If the request could not be sent to the server.
 	 */
-	private Object execute(final ServiceRequest request)
+	private PendingResponse submit(final WireWriter request)
 			throws ServicesException {
-		Socket socket = null;
+		final int id = nextRequestId();
+		request.setRequestId(id);
+		final byte[] frame = request.toFrame();
+
+		Connection sender = getConnection();
+		try {
+			return sender.send(id, frame);
+
+		} catch (final NotSentException ex) {
+			/*
+			 * The connection was lost before the request could be sent, most
+			 * likely because the server was restarted since the last request.
+			 * Since none of the request reached the server, it is safe to send
+			 * it once more on a new connection.
+			 */
+
+		} catch (final IOException ex) {
+			/*
+			 * Some of the request may have reached the server and it may well
+			 * be executed; sending it again could book a room twice.
+			 */
+			sender.close();
+			throw communicationError();
+		}
+
+		sender = getConnection();
 		try {
-			socket = new Socket(hostname, port);
+			return sender.send(id, frame);
 
-			final ObjectOutputStream oos =
-					new ObjectOutputStream(socket.getOutputStream());
+		} catch (final IOException ex) {
+			sender.close();
+			throw communicationError();
+		}
+	}
 
-			final ObjectInputStream ois =
-					new ObjectInputStream(socket.getInputStream());
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * This operation will be executed on the server.
+	 * 
+	 * @throws ServicesException
+	 *             If there is a problem communicating with the server or the
+	 *             server cannot satisfy the request.
+	 */
+	@Override
+	public HotelRoomDelta changesSince(final long version)
+			throws ServicesException {
+		return changesSinceAsync(version).join();
+	}
 
-			/* Send the request to the server to be executed. */
-			oos.writeObject(request);
+	/**
+	 * Sends the request to fetch the rooms changed since {@code version}
+	 * without waiting for it to be executed (see {@link #changesSince(long)
+	 * changesSince}).
+	 * 
+	 * @param version
+	 *            Version of the database the changes are wanted after.
+	 * 
+	 * @return Completes with the rooms changed since {@code version}.
+	 * 
+	 * @throws ServicesException
+	 *             If the request could not be sent to the server.
+	 */
+	public ResponseFuture<HotelRoomDelta> changesSinceAsync(final long version)
+			throws ServicesException {
+		final WireWriter request = WireWriter.request(Protocol.CHANGES_SINCE);
+		request.writeVarLong(version);
+		return changesSinceAsync(submit(request));
+	}
 
-			/* Read the results. */
-			return ois.readObject();
+	/**
+	 * Returns the future decoding the response to a
+	 * {@link Protocol#CHANGES_SINCE} request.
+	 * 
+	 * @param pending
+	 *            Holder the response will be handed to.
+	 * 
+	 * @return Completes with the rooms changed.
+	 */
+	private ResponseFuture<HotelRoomDelta> changesSinceAsync(
+			final PendingResponse pending) {
+		return new ResponseFuture<HotelRoomDelta>(pending) {
+			@Override
+			HotelRoomDelta decode(final WireReader response)
+					throws ServicesException {
+				checkStatus(response);
+				try {
+					return response.readHotelRoomDelta();
 
-		} catch (final Exception ex) {
-			/*
-			 * The most likely reason for the exception to occur would be due to
-			 * the server not being available.
-			 */
-			String err = "Error communicating with the server.\n";
-			err += "Please check that the server is still running.";
-			throw new ServicesException(err);
+				} catch (final StreamCorruptedException ex) {
+					throw communicationError();
+				}
+			}
+		};
+	}
 
-		} finally {
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * Adding the first listener subscribes to the changes on the server. The
+	 * listeners are notified by the thread reading the results, so a listener
+	 * that invokes this client would wait forever for its own result.
+	 * 
+	 * @throws ServicesException
+	 *             If there is a problem communicating with the server.
+	 */
+	@Override
+	public void addHotelRoomListener(final HotelRoomListener listener)
+			throws ServicesException, IllegalArgumentException {
+		if (listener == null) {
+			throw new IllegalArgumentException("listener cannot be null.");
+		}
+
+		synchronized (listeners) {
+			if (listeners.addIfAbsent(listener) && (listeners.size() == 1)) {
+				try {
+					sendSubscription(Protocol.SUBSCRIBE);
+
+				} catch (final ServicesException ex) {
+					listeners.remove(listener);
+					throw ex;
+				}
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * Removing the last listener unsubscribes from the changes on the server.
+	 * 
+	 * @throws ServicesException
+	 *             If there is a problem communicating with the server; the
+	 *             listener has been removed regardless.
+	 */
+	@Override
+	public void removeHotelRoomListener(final HotelRoomListener listener)
+			throws ServicesException {
+		synchronized (listeners) {
+			if (listeners.remove(listener) && listeners.isEmpty()) {
+				sendSubscription(Protocol.UNSUBSCRIBE);
+			}
+		}
+	}
+
+	/**
+	 * Subscribes to or unsubscribes from the changes on the server, waiting
+	 * for the server to confirm it.
+	 * 
+	 * @param opcode
+	 *            Either {@link Protocol#SUBSCRIBE} or
+	 *            {@link Protocol#UNSUBSCRIBE}.
+	 * 
+	 * @throws ServicesException
+	 *             If there is a problem communicating with the server.
+	 */
+	private void sendSubscription(final int opcode) throws ServicesException {
+		new ResponseFuture<Void>(submit(WireWriter.request(opcode))) {
+			@Override
+			Void decode(final WireReader response) throws ServicesException {
+				checkStatus(response);
+				return null;
+			}
+		}.join();
+	}
+
+	/**
+	 * Notifies the listeners of an event pushed by the server.
+	 * 
+	 * @param event
+	 *            Describes the change made to a room.
+	 */
+	private void fireHotelRoomChanged(final HotelRoomEvent event) {
+		if (event.getVersion() > lastEventVersion) {
+			lastEventVersion = event.getVersion();
+		}
+
+		for (final HotelRoomListener listener : listeners) {
 			try {
-				socket.close();
-			} catch (final Exception ignore) {
-				/*
-				 * There is little we can do here; we have either already ready
-				 * the results or an exception has been thrown. In either case
-				 * there is no need to supercede either situation so we should
-				 * just ignore it.
-				 */
+				listener.hotelRoomChanged(event);
+
+			} catch (final RuntimeException ignore) {
+				/* A failing listener must not stop the results being read. */
+			}
+		}
+	}
+
+	/**
+	 * Notifies the listeners that changes were made while the connection was
+	 * lost which could not be reported.
+	 */
+	private void fireHotelRoomEventsMissed() {
+		for (final HotelRoomListener listener : listeners) {
+			try {
+				listener.hotelRoomEventsMissed();
+
+			} catch (final RuntimeException ignore) {
+				/* A failing listener must not stop the others being told. */
+			}
+		}
+	}
+
+	/**
+	 * Returns the event reporting {@code hotelRoom} as it is in
+	 * {@code version}, with every field it holds as changed.
+	 * 
+	 * @param hotelRoom
+	 *            Room that changed.
+	 * 
+	 * @param version
+	 *            Version of the database the room is read as of.
+	 * 
+	 * @return The event.
+	 */
+	private static HotelRoomEvent toEvent(final HotelRoom hotelRoom,
+			final long version) {
+		final Map<HotelRoom.Field, String> fields =
+				new EnumMap<HotelRoom.Field, String>(HotelRoom.Field.class);
+		for (final HotelRoom.Field field : HotelRoom.Field.values()) {
+			if (hotelRoom.hasField(field)) {
+				fields.put(field, hotelRoom.getField(field));
+			}
+		}
+		return new HotelRoomEvent(hotelRoom.getRecordNumber(), version, false,
+				fields);
+	}
+
+	/**
+	 * Reads the status of {@code response} and, if the request failed, throws
+	 * the exception the server reported.
+	 * 
+	 * @param response
+	 *            The response, positioned at its status.
+	 * 
+	 * @throws HotelRoomNotFoundException
+	 *             If the server reported that a room does not exist.
+	 * 
+	 * @throws ServicesException
+	 *             If the server could not satisfy the request or the response
+	 *             could not be read.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the server rejected the arguments of the request.
+	 */
+	private static void checkStatus(final WireReader response)
+			throws HotelRoomNotFoundException, ServicesException,
+			IllegalArgumentException {
+		final int status;
+		final String message;
+		try {
+			status = response.readUnsignedByte();
+			if (status == Protocol.OK) {
+				return;
 			}
+			message = response.readString();
+
+		} catch (final StreamCorruptedException ex) {
+			throw communicationError();
+		}
+
+		final Exception failure = failureOf(status, message);
+		if (failure instanceof ServicesException) {
+			throw (ServicesException) failure;
+		}
+		throw (IllegalArgumentException) failure;
+	}
+
+	/**
+	 * Returns the exception reported by the server for a failed request.
+	 * 
+	 * @param status
+	 *            Status of the request; anything but {@link Protocol#OK}.
+	 * 
+	 * @param message
+	 *            Message of the exception.
+	 * 
+	 * @return Either a {@code ServicesException} or an
+	 *         {@code IllegalArgumentException}.
+	 */
+	private static Exception failureOf(final int status, final String message) {
+		switch (status) {
+		case Protocol.HOTEL_ROOM_NOT_FOUND:
+			return new HotelRoomNotFoundException(message);
+
+		case Protocol.ILLEGAL_ARGUMENT:
+			return new IllegalArgumentException(message);
+
+		default:
+			return new ServicesException(message);
 		}
 	}
 
@@ -148,25 +550,88 @@ public class HotelClient implements HotelServices {
 	public void bookRoom(final HotelRoom hotelRoom, final String id)
 			throws HotelRoomNotFoundException, ServicesException,
 			IllegalArgumentException {
-		final ServiceRequest request =
-				ServiceFactory.getBookService(hotelRoom, id);
-		final Object results = execute(request);
+		bookRoomAsync(hotelRoom, id).join();
+	}
 
-		if (results instanceof Exception) {
-			if (results instanceof HotelRoomNotFoundException) {
-				throw (HotelRoomNotFoundException) results;
-			}
+	/**
+	 * Sends the request to book {@code hotelRoom} for the customer represented
+	 * by {@code id} without waiting for it to be executed (see
+	 * {@link #bookRoom(HotelRoom, String) bookRoom}). Should the booking fail,
+	 * {@code Future.get} throws an {@code ExecutionException} caused by the
+	 * exception {@code bookRoom} would have thrown.
+	 * 
+	 * @param hotelRoom
+	 *            {@code HotelRoom} to be booked.
+	 * 
+	 * @param id
+	 *            Identification code of the customer booking {@code hotelRoom}.
+	 * 
+	 * @return Completes once the room has been booked.
+	 * 
+	 * @throws ServicesException
+	 *             If the request could not be sent to the server.
+	 */
+	public ResponseFuture<Void> bookRoomAsync(final HotelRoom hotelRoom,
+			final String id) throws ServicesException {
+		final WireWriter request = WireWriter.request(Protocol.BOOK);
+		request.writeHotelRoom(hotelRoom);
+		request.writeString(id);
 
-			if (results instanceof ServicesException) {
-				throw (ServicesException) results;
+		return new ResponseFuture<Void>(submit(request)) {
+			@Override
+			Void decode(final WireReader response) throws ServicesException {
+				checkStatus(response);
+				return null;
 			}
+		};
+	}
 
-			if (results instanceof IllegalArgumentException) {
-				throw (IllegalArgumentException) results;
-			}
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * This operation will be executed on the server.
+	 * 
+	 * @throws ServicesException
+	 *             If there is a problem communicating with the server or the
+	 *             server cannot satisfy the request.
+	 */
+	@Override
+	public void bookRooms(final HotelRoom[] hotelRooms, final String id)
+			throws HotelRoomNotFoundException, ServicesException,
+			IllegalArgumentException {
+		bookRoomsAsync(hotelRooms, id).join();
+	}
 
-			throw (RuntimeException) results;
-		}
+	/**
+	 * Sends the request to book every room within {@code hotelRooms} for the
+	 * customer represented by {@code id} without waiting for it to be executed
+	 * (see {@link #bookRooms(HotelRoom[], String) bookRooms}).
+	 * 
+	 * @param hotelRooms
+	 *            HotelRooms to be booked.
+	 * 
+	 * @param id
+	 *            Identification code of the customer booking the rooms.
+	 * 
+	 * @return Completes once every room has been booked.
+	 * 
+	 * @throws ServicesException
+	 *             If the request could not be sent to the server.
+	 */
+	public ResponseFuture<Void> bookRoomsAsync(final HotelRoom[] hotelRooms,
+			final String id) throws ServicesException {
+		final WireWriter request = WireWriter.request(Protocol.BOOK_ROOMS);
+		request.writeHotelRooms(hotelRooms);
+		request.writeString(id);
+
+		return new ResponseFuture<Void>(submit(request)) {
+			@Override
+			Void decode(final WireReader response) throws ServicesException {
+				checkStatus(response);
+				return null;
+			}
+		};
 	}
 
 	/**
@@ -195,21 +660,41 @@ public class HotelClient implements HotelServices {
 	 *             server cannot satisfy the request.
 	 */
 	@Override
-	public HotelRoom[] find(final HotelRoomCriteria criteria)
-			throws ServicesException, IllegalArgumentException {
-		final ServiceRequest request = ServiceFactory.getFindRequest(criteria);
-		final Object results = execute(request);
+	public HotelRoomImage exportHotelRooms() throws ServicesException {
+		return exportHotelRoomsAsync().join();
+	}
 
-		if (results instanceof ServicesException) {
-			throw (ServicesException) results;
-		}
+	/**
+	 * Sends the request to export every room without waiting for it to be
+	 * executed (see {@link #exportHotelRooms() exportHotelRooms}).
+	 * 
+	 * @return Completes with the image of every room.
+	 * 
+	 * @throws ServicesException
+	 *             If the request could not be sent to the server.
+	 */
+	public ResponseFuture<HotelRoomImage> exportHotelRoomsAsync()
+			throws ServicesException {
+		final WireWriter request = WireWriter.request(Protocol.EXPORT);
 
-		if (results instanceof IllegalArgumentException) {
-			throw (IllegalArgumentException) results;
-		}
+		return new ResponseFuture<HotelRoomImage>(submit(request)) {
+			@Override
+			HotelRoomImage decode(final WireReader response)
+					throws ServicesException {
+				checkStatus(response);
+				try {
+					final long version = response.readVarLong();
+					return new HotelRoomImage(version,
+							response.readRemaining());
 
-		return (HotelRoom[]) results;
+				} catch (final StreamCorruptedException ex) {
+					throw communicationError();
 
+				} catch (final IllegalArgumentException ex) {
+					throw communicationError();
+				}
+			}
+		};
 	}
 
 	/**
@@ -223,12 +708,1141 @@ public class HotelClient implements HotelServices {
 	 *             server cannot satisfy the request.
 	 */
 	@Override
-	public void save() throws ServicesException {
-		final ServiceRequest request = ServiceFactory.getSaveRequest();
-		final Object results = execute(request);
+	public HotelRoom[] find(final HotelRoomCriteria criteria)
+			throws ServicesException, IllegalArgumentException {
+		return findAsync(criteria).join();
+	}
+
+	/**
+	 * Sends the request to find the HotelRooms that match {@code criteria}
+	 * without waiting for it to be executed (see
+	 * {@link #find(HotelRoomCriteria) find}).
+	 * 
+	 * @param criteria
+	 *            Criteria to use when searching for records.
+	 * 
+	 * @return Completes with the HotelRooms that match {@code criteria}.
+	 * 
+	 * @throws ServicesException
+	 *             If the request could not be sent to the server.
+	 */
+	public ResponseFuture<HotelRoom[]> findAsync(
+			final HotelRoomCriteria criteria) throws ServicesException {
+		final WireWriter request = WireWriter.request(Protocol.FIND);
+		request.writeCriteria(criteria);
+
+		return new ResponseFuture<HotelRoom[]>(submit(request)) {
+			@Override
+			HotelRoom[] decode(final WireReader response)
+					throws ServicesException {
+				checkStatus(response);
+				try {
+					return response.readHotelRooms();
 
-		if (results instanceof ServicesException) {
-			throw (ServicesException) results;
+				} catch (final StreamCorruptedException ex) {
+					throw communicationError();
+				}
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * This operation will be executed on the server. Only the selected fields
+	 * are sent back.
+	 * 
+	 * @throws ServicesException
+	 *             If there is a problem communicating with the server or the
+	 *             server cannot satisfy the request.
+	 */
+	@Override
+	public HotelRoom[] find(final HotelRoomQuery query)
+			throws ServicesException, IllegalArgumentException {
+		return findAsync(query).join();
+	}
+
+	/**
+	 * Sends the request to find the HotelRooms that match {@code query}
+	 * without waiting for it to be executed (see
+	 * {@link #find(HotelRoomQuery) find}).
+	 * 
+	 * @param query
+	 *            Specifies the rooms to find and the fields to return.
+	 * 
+	 * @return Completes with the HotelRooms that match {@code query}.
+	 * 
+	 * @throws ServicesException
+	 *             If the request could not be sent to the server.
+	 */
+	public ResponseFuture<HotelRoom[]> findAsync(final HotelRoomQuery query)
+			throws ServicesException {
+		final WireWriter request = WireWriter.request(Protocol.FIND_QUERY);
+		request.writeQuery(query);
+
+		return new ResponseFuture<HotelRoom[]>(submit(request)) {
+			@Override
+			HotelRoom[] decode(final WireReader response)
+					throws ServicesException {
+				checkStatus(response);
+				try {
+					return response.readHotelRooms();
+
+				} catch (final StreamCorruptedException ex) {
+					throw communicationError();
+				}
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * This operation will be executed on the server.
+	 * 
+	 * @throws ServicesException
+	 *             If there is a problem communicating with the server or the
+	 *             server cannot satisfy the request.
+	 */
+	@Override
+	public HotelRoomPage find(final HotelRoomCriteria criteria,
+			final String pageToken, final int limit) throws ServicesException,
+			IllegalArgumentException {
+		return findAsync(criteria, pageToken, limit).join();
+	}
+
+	/**
+	 * Sends the request to find a page of the HotelRooms that match
+	 * {@code criteria} without waiting for it to be executed (see
+	 * {@link #find(HotelRoomCriteria, String, int) find}).
+	 * 
+	 * @param criteria
+	 *            Criteria to use when searching for records.
+	 * 
+	 * @param pageToken
+	 *            Token returned with the previous page, or {@code null} to
+	 *            fetch the first page.
+	 * 
+	 * @param limit
+	 *            Maximum number of rooms on the page.
+	 * 
+	 * @return Completes with a page of the HotelRooms that match
+	 *         {@code criteria}.
+	 * 
+	 * @throws ServicesException
+	 *             If the request could not be sent to the server.
+	 */
+	public ResponseFuture<HotelRoomPage> findAsync(
+			final HotelRoomCriteria criteria, final String pageToken,
+			final int limit) throws ServicesException {
+		final WireWriter request = WireWriter.request(Protocol.FIND_PAGE);
+		request.writeCriteria(criteria);
+		request.writeString(pageToken);
+		request.writeVarInt(limit);
+
+		return new ResponseFuture<HotelRoomPage>(submit(request)) {
+			@Override
+			HotelRoomPage decode(final WireReader response)
+					throws ServicesException {
+				checkStatus(response);
+				try {
+					return response.readHotelRoomPage();
+
+				} catch (final StreamCorruptedException ex) {
+					throw communicationError();
+				}
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * This operation will be executed on the server.
+	 * 
+	 * @throws ServicesException
+	 *             If there is a problem communicating with the server or the
+	 *             server cannot satisfy the request.
+	 */
+	@Override
+	public HotelRoom[] search(final String text, final int limit)
+			throws ServicesException, IllegalArgumentException {
+		return searchAsync(text, limit).join();
+	}
+
+	/**
+	 * Sends the request to search the names and locations of the rooms for
+	 * {@code text} without waiting for it to be executed (see
+	 * {@link #search(String, int) search}).
+	 * 
+	 * @param text
+	 *            Text to search for.
+	 * 
+	 * @param limit
+	 *            Maximum number of rooms returned.
+	 * 
+	 * @return Completes with the HotelRooms found, best match first.
+	 * 
+	 * @throws ServicesException
+	 *             If the request could not be sent to the server.
+	 */
+	public ResponseFuture<HotelRoom[]> searchAsync(final String text,
+			final int limit) throws ServicesException {
+		final WireWriter request = WireWriter.request(Protocol.SEARCH);
+		request.writeString(text);
+		request.writeVarInt(limit);
+
+		return new ResponseFuture<HotelRoom[]>(submit(request)) {
+			@Override
+			HotelRoom[] decode(final WireReader response)
+					throws ServicesException {
+				checkStatus(response);
+				try {
+					return response.readHotelRooms();
+
+				} catch (final StreamCorruptedException ex) {
+					throw communicationError();
+				}
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * This operation will be executed on the server.
+	 * 
+	 * @throws ServicesException
+	 *             If there is a problem communicating with the server or the
+	 *             server cannot satisfy the request.
+	 */
+	@Override
+	public HotelRoom[] findByCustomer(final String id)
+			throws ServicesException, IllegalArgumentException {
+		return findByCustomerAsync(id).join();
+	}
+
+	/**
+	 * Sends the request to find the rooms booked by the customer represented
+	 * by {@code id} without waiting for it to be executed (see
+	 * {@link #findByCustomer(String) findByCustomer}).
+	 * 
+	 * @param id
+	 *            Identification code of the customer.
+	 * 
+	 * @return Completes with the HotelRooms booked by the customer.
+	 * 
+	 * @throws ServicesException
+	 *             If the request could not be sent to the server.
+	 */
+	public ResponseFuture<HotelRoom[]> findByCustomerAsync(final String id)
+			throws ServicesException {
+		final WireWriter request =
+				WireWriter.request(Protocol.FIND_BY_CUSTOMER);
+		request.writeString(id);
+
+		return new ResponseFuture<HotelRoom[]>(submit(request)) {
+			@Override
+			HotelRoom[] decode(final WireReader response)
+					throws ServicesException {
+				checkStatus(response);
+				try {
+					return response.readHotelRooms();
+
+				} catch (final StreamCorruptedException ex) {
+					throw communicationError();
+				}
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * This operation will be executed on the server.
+	 * 
+	 * @throws ServicesException
+	 *             If there is a problem communicating with the server or the
+	 *             server cannot satisfy the request.
+	 */
+	@Override
+	public int countAvailableRooms(final String location, final String date)
+			throws ServicesException {
+		return countAvailableRoomsAsync(location, date).join();
+	}
+
+	/**
+	 * Sends the request to count the rooms available in {@code location} on
+	 * {@code date} without waiting for it to be executed (see
+	 * {@link #countAvailableRooms(String, String) countAvailableRooms}).
+	 * 
+	 * @param location
+	 *            Location of the rooms; {@code null} for any location.
+	 * 
+	 * @param date
+	 *            Date the rooms are available on; {@code null} for any date.
+	 * 
+	 * @return Completes with the number of available rooms.
+	 * 
+	 * @throws ServicesException
+	 *             If the request could not be sent to the server.
+	 */
+	public ResponseFuture<Integer> countAvailableRoomsAsync(
+			final String location, final String date) throws ServicesException {
+		final WireWriter request =
+				WireWriter.request(Protocol.COUNT_AVAILABLE);
+		request.writeString(location);
+		request.writeString(date);
+		return count(request);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * This operation will be executed on the server.
+	 * 
+	 * @throws ServicesException
+	 *             If there is a problem communicating with the server or the
+	 *             server cannot satisfy the request.
+	 */
+	@Override
+	public int countBookedRooms(final String name, final String location)
+			throws ServicesException {
+		return countBookedRoomsAsync(name, location).join();
+	}
+
+	/**
+	 * Sends the request to count the booked rooms of the hotel called
+	 * {@code name} in {@code location} without waiting for it to be executed
+	 * (see {@link #countBookedRooms(String, String) countBookedRooms}).
+	 * 
+	 * @param name
+	 *            Name of the hotel; {@code null} for any name.
+	 * 
+	 * @param location
+	 *            Location of the hotel; {@code null} for any location.
+	 * 
+	 * @return Completes with the number of booked rooms.
+	 * 
+	 * @throws ServicesException
+	 *             If the request could not be sent to the server.
+	 */
+	public ResponseFuture<Integer> countBookedRoomsAsync(final String name,
+			final String location) throws ServicesException {
+		final WireWriter request = WireWriter.request(Protocol.COUNT_BOOKED);
+		request.writeString(name);
+		request.writeString(location);
+		return count(request);
+	}
+
+	/**
+	 * Submits {@code request}, whose result is a count.
+	 * 
+	 * @param request
+	 *            Request to submit.
+	 * 
+	 * @return Completes with the count.
+	 * 
+	 * @throws ServicesException
+	 *             If the request could not be sent to the server.
+	 */
+	private ResponseFuture<Integer> count(final WireWriter request)
+			throws ServicesException {
+		return new ResponseFuture<Integer>(submit(request)) {
+			@Override
+			Integer decode(final WireReader response)
+					throws ServicesException {
+				checkStatus(response);
+				try {
+					return response.readVarInt();
+
+				} catch (final StreamCorruptedException ex) {
+					throw communicationError();
+				}
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * This operation will be executed on the server.
+	 * 
+	 * @throws ServicesException
+	 *             If there is a problem communicating with the server or the
+	 *             server cannot satisfy the request.
+	 */
+	@Override
+	public void save() throws ServicesException {
+		saveAsync().join();
+	}
+
+	/**
+	 * Sends the request to save the changes made to the records without
+	 * waiting for it to be executed (see {@link #save() save}).
+	 * 
+	 * @return Completes once the changes have been saved.
+	 * 
+	 * @throws ServicesException
+	 *             If the request could not be sent to the server.
+	 */
+	public ResponseFuture<Void> saveAsync() throws ServicesException {
+		return new ResponseFuture<Void>(submit(WireWriter
+				.request(Protocol.SAVE))) {
+			@Override
+			Void decode(final WireReader response) throws ServicesException {
+				checkStatus(response);
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * Executes every operation of {@code batch} on the server in a single
+	 * request and returns the outcome of each. A failed operation does not
+	 * cause this method to throw; its exception is held by the result.
+	 * 
+	 * @param batch
+	 *            The operations to execute.
+	 * 
+	 * @return The outcome of every operation.
+	 * 
+	 * @throws ServicesException
+	 *             If there is a problem communicating with the server or the
+	 *             server cannot satisfy the request as a whole.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code batch} is {@code null}.
+	 */
+	public BatchResult execute(final Batch batch) throws ServicesException,
+			IllegalArgumentException {
+		return executeAsync(batch).join();
+	}
+
+	/**
+	 * Sends every operation of {@code batch} to the server in a single
+	 * request without waiting for them to be executed (see
+	 * {@link #execute(Batch) execute}).
+	 * 
+	 * @param batch
+	 *            The operations to execute.
+	 * 
+	 * @return Completes with the outcome of every operation.
+	 * 
+	 * @throws ServicesException
+	 *             If the request could not be sent to the server.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code batch} is {@code null}.
+	 */
+	public ResponseFuture<BatchResult> executeAsync(final Batch batch)
+			throws ServicesException, IllegalArgumentException {
+		if (batch == null) {
+			throw new IllegalArgumentException("batch cannot be null");
+		}
+
+		final WireWriter request = WireWriter.request(Protocol.BATCH);
+		batch.writeTo(request);
+
+		return new ResponseFuture<BatchResult>(submit(request)) {
+			@Override
+			BatchResult decode(final WireReader response)
+					throws ServicesException {
+				checkStatus(response);
+				try {
+					final BatchResult result =
+							new BatchResult(response.readVarInt());
+					for (int i = 0; i < result.size(); i++) {
+						final int status = response.readUnsignedByte();
+						if (status == Protocol.OK) {
+							result.succeeded(i, response.readHotelRooms());
+						} else {
+							result.failed(i, failureOf(status, response
+									.readString()));
+						}
+					}
+					return result;
+
+				} catch (final StreamCorruptedException ex) {
+					throw communicationError();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Signals that a request was not sent because its connection had already
+	 * been lost; none of it reached the server.
+	 */
+	private static class NotSentException extends IOException {
+
+		/** Identifies the version of the class when serialized. */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Constructs a new {@code NotSentException}.
+		 */
+		NotSentException() {
+			super("connection is closed");
+		}
+	}
+
+	/**
+	 * Holds the result of a request until it arrives from the server.
+	 */
+	private static class PendingResponse {
+
+		/** Released once the result has arrived or the connection is lost. */
+		private final CountDownLatch arrived = new CountDownLatch(1);
+
+		/** Response to the request; only valid once {@code arrived} is released. */
+		private WireReader result;
+
+		/** Indicates the connection was lost before the result arrived. */
+		private boolean isFailed;
+
+		/**
+		 * Hands the response to the request to the waiting thread.
+		 * 
+		 * @param result
+		 *            The response, positioned at its status.
+		 */
+		void complete(final WireReader result) {
+			this.result = result;
+			arrived.countDown();
+		}
+
+		/**
+		 * Releases the waiting thread without a result.
+		 */
+		void fail() {
+			isFailed = true;
+			arrived.countDown();
+		}
+
+		/**
+		 * Returns {@code true} if the response has arrived or the connection
+		 * has been lost.
+		 * 
+		 * @return {@code true} if waiting would not block.
+		 */
+		boolean isDone() {
+			return arrived.getCount() == 0;
+		}
+
+		/**
+		 * Waits at most {@code timeout} until the response to the request has
+		 * arrived and returns it.
+		 * 
+		 * @param timeout
+		 *            Maximum time to wait.
+		 * 
+		 * @param unit
+		 *            Unit of {@code timeout}.
+		 * 
+		 * @return The response, positioned at its status.
+		 * 
+		 * @throws InterruptedException
+		 *             If the thread was interrupted while waiting.
+		 * 
+		 * @throws TimeoutException
+		 *             If the response did not arrive in time.
+		 * 
+		 * @throws ServicesException
+		 *             If the connection was lost before the result arrived.
+		 */
+		WireReader await(final long timeout, final TimeUnit unit)
+				throws InterruptedException, TimeoutException,
+				ServicesException {
+			if (!arrived.await(timeout, unit)) {
+				throw new TimeoutException();
+			}
+			return outcome();
+		}
+
+		/**
+		 * Waits until the response to the request has arrived and returns it.
+		 * 
+		 * @return The response, positioned at its status.
+		 * 
+		 * @throws InterruptedException
+		 *             If the thread was interrupted while waiting.
+		 * 
+		 * @throws ServicesException
+		 *             If the connection was lost before the result arrived.
+		 */
+		WireReader awaitInterruptibly() throws InterruptedException,
+				ServicesException {
+			arrived.await();
+			return outcome();
+		}
+
+		/**
+		 * Waits until the response to the request has arrived and returns it.
+		 * 
+		 * @return The response, positioned at its status.
+		 * 
+		 * @throws ServicesException
+		 *             If the connection was lost before the result arrived.
+		 */
+		WireReader await() throws ServicesException {
+			boolean isInterrupted = false;
+			while (true) {
+				try {
+					arrived.await();
+					break;
+
+				} catch (final InterruptedException ex) {
+					/*
+					 * The request has already been sent, so the result must be
+					 * waited for regardless; the interrupt is restored once it
+					 * arrives.
+					 */
+					isInterrupted = true;
+				}
+			}
+
+			if (isInterrupted) {
+				Thread.currentThread().interrupt();
+			}
+			return outcome();
+		}
+
+		/**
+		 * Returns the response once it has arrived.
+		 * 
+		 * @return The response, positioned at its status.
+		 * 
+		 * @throws ServicesException
+		 *             If the connection was lost before the result arrived.
+		 */
+		private WireReader outcome() throws ServicesException {
+			if (isFailed) {
+				throw communicationError();
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * The result of a request sent to the server without waiting for it to be
+	 * executed. The result is decoded from the response the first time it is
+	 * asked for.
+	 * 
+	 * <p>
+	 * Since the request has already been sent, it cannot be cancelled.
+	 * 
+	 * @param <V>
+	 *            Type of the result.
+	 */
+	public abstract static class ResponseFuture<V> implements Future<V> {
+
+		/** Holds the response once it arrives. */
+		private final PendingResponse response;
+
+		/** Indicates that the response has been decoded; guarded by this. */
+		private boolean isDecoded;
+
+		/** Result decoded from the response; guarded by this. */
+		private V value;
+
+		/**
+		 * Exception decoded from the response, either a
+		 * {@code ServicesException} or an {@code IllegalArgumentException};
+		 * guarded by this.
+		 */
+		private Exception failure;
+
+		/**
+		 * Constructs a new {@code ResponseFuture}.
+		 * 
+		 * @param response
+		 *            Holds the response once it arrives.
+		 */
+		ResponseFuture(final PendingResponse response) {
+			this.response = response;
+		}
+
+		/**
+		 * Decodes the result from {@code response}, throwing the exception the
+		 * server reported if the request failed.
+		 * 
+		 * @param response
+		 *            The response, positioned at its status.
+		 * 
+		 * @return The result of the request.
+		 * 
+		 * @throws ServicesException
+		 *             If the request failed or the response could not be read.
+		 */
+		abstract V decode(WireReader response) throws ServicesException;
+
+		/**
+		 * Decodes {@code result} on the first call and returns the outcome of
+		 * that first call on every call.
+		 * 
+		 * @param result
+		 *            The response, positioned at its status.
+		 * 
+		 * @return The result of the request.
+		 * 
+		 * @throws ServicesException
+		 *             If the request failed or the response could not be read.
+		 */
+		private synchronized V resolve(final WireReader result)
+				throws ServicesException {
+			if (!isDecoded) {
+				try {
+					value = decode(result);
+
+				} catch (final ServicesException ex) {
+					failure = ex;
+
+				} catch (final IllegalArgumentException ex) {
+					failure = ex;
+				}
+				isDecoded = true;
+			}
+
+			if (failure instanceof ServicesException) {
+				throw (ServicesException) failure;
+			}
+			if (failure != null) {
+				throw (IllegalArgumentException) failure;
+			}
+			return value;
+		}
+
+		/**
+		 * Waits until the request has been executed and returns its result,
+		 * throwing the same exceptions as the blocking method would.
+		 * 
+		 * @return The result of the request.
+		 * 
+		 * @throws ServicesException
+		 *             If the request failed or there is a problem
+		 *             communicating with the server.
+		 * 
+		 * @throws IllegalArgumentException
+		 *             If the server rejected the arguments of the request.
+		 */
+		public V join() throws ServicesException {
+			return resolve(response.await());
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @throws ExecutionException
+		 *             If the request failed or there is a problem
+		 *             communicating with the server; the cause is the
+		 *             exception the blocking method would have thrown.
+		 */
+		@Override
+		public V get() throws InterruptedException, ExecutionException {
+			try {
+				return resolve(response.awaitInterruptibly());
+
+			} catch (final ServicesException ex) {
+				throw new ExecutionException(ex);
+
+			} catch (final IllegalArgumentException ex) {
+				throw new ExecutionException(ex);
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @throws ExecutionException
+		 *             If the request failed or there is a problem
+		 *             communicating with the server; the cause is the
+		 *             exception the blocking method would have thrown.
+		 */
+		@Override
+		public V get(final long timeout, final TimeUnit unit)
+				throws InterruptedException, ExecutionException,
+				TimeoutException {
+			try {
+				return resolve(response.await(timeout, unit));
+
+			} catch (final ServicesException ex) {
+				throw new ExecutionException(ex);
+
+			} catch (final IllegalArgumentException ex) {
+				throw new ExecutionException(ex);
+			}
+		}
+
+		/**
+		 * Does nothing, since the request has already been sent.
+		 * 
+		 * @return {@code false}.
+		 */
+		@Override
+		public boolean cancel(final boolean mayInterruptIfRunning) {
+			return false;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isDone() {
+			return response.isDone();
+		}
+	}
+
+	/**
+	 * A connection to the server shared by any number of requests. Requests
+	 * are written to the connection by the threads making them, while a
+	 * single reader thread hands each result to the thread waiting on it.
+	 */
+	private class Connection implements Runnable {
+
+		/** Connection to the server. */
+		private final Socket socket;
+
+		/** Stream requests are written to. */
+		private final DataOutputStream out;
+
+		/** Stream results are read from. */
+		private final DataInputStream in;
+
+		/** Limits writing to {@code out} to one request at a time. */
+		private final Lock writeLock = new ReentrantLock();
+
+		/** Requests that have been sent but have not received a result. */
+		private final Map<Integer, PendingResponse> pendingResponses =
+				new ConcurrentHashMap<Integer, PendingResponse>();
+
+		/** Indicates the connection has been closed or lost. */
+		private volatile boolean isClosed;
+
+		/** Limits access to {@code heldEvents}. */
+		private final Lock heldLock = new ReentrantLock();
+
+		/**
+		 * Events pushed while the changes missed before the connection was
+		 * opened are being fetched; {@code null} once they have been
+		 * reported, or if there was nothing to catch up on.
+		 */
+		private List<HotelRoomEvent> heldEvents;
+
+		/**
+		 * Opens a new connection to the server and starts reading the results
+		 * sent back on it.
+		 * 
+		 * @param isReplacement
+		 *            {@code true} if the connection replaces one that was
+		 *            lost, in which case the changes missed in the meantime
+		 *            are caught up on if there are any listeners.
+		 * 
+		 * @throws ServicesException
+		 *             If the connection could not be opened.
+		 */
+		Connection(final boolean isReplacement) throws ServicesException {
+			try {
+				socket = new Socket(hostname, port);
+				socket.setTcpNoDelay(true);
+
+				out = new DataOutputStream(new BufferedOutputStream(
+						socket.getOutputStream()));
+				in = new DataInputStream(new BufferedInputStream(
+						socket.getInputStream()));
+
+			} catch (final IOException ex) {
+				throw communicationError();
+			}
+
+			final boolean isSubscribing = !listeners.isEmpty();
+			if (isReplacement && isSubscribing) {
+				heldEvents = new ArrayList<HotelRoomEvent>();
+			}
+
+			final Thread reader = new Thread(this, "HotelClient reader");
+			reader.setDaemon(true);
+			reader.start();
+
+			/*
+			 * The capabilities are announced without waiting for the answer;
+			 * a compressed result is recognized by its frame, whenever the
+			 * server starts sending them. The same goes for renewing the
+			 * subscription of the listeners, if there are any.
+			 */
+			final WireWriter hello = WireWriter.request(Protocol.HELLO);
+			hello.writeVarInt(Protocol.CAPABILITY_COMPRESSION);
+			try {
+				announce(hello);
+				if (isSubscribing) {
+					announce(WireWriter.request(Protocol.SUBSCRIBE));
+				}
+
+			} catch (final IOException ex) {
+				close();
+				throw communicationError();
+			}
+
+			if (heldEvents != null) {
+				/*
+				 * The reader is needed to receive the changes, and whoever
+				 * opened the connection should not wait on them.
+				 */
+				final Thread catchUp = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						catchUp();
+					}
+				}, "HotelClient catch-up");
+				catchUp.setDaemon(true);
+				catchUp.start();
+			}
+		}
+
+		/**
+		 * Fetches the changes made since the last event was reported and
+		 * reports them, followed by the events held back in the meantime.
+		 * Since the subscription was renewed before the changes were fetched,
+		 * none is missed.
+		 */
+		private void catchUp() {
+			HotelRoomDelta delta = null;
+			try {
+				/*
+				 * The changes of a single commit share its version, and the
+				 * connection may have been lost before all of those of the
+				 * last one were received, so that one is fetched again.
+				 */
+				final WireWriter request =
+						WireWriter.request(Protocol.CHANGES_SINCE);
+				request.writeVarLong(Math.max(0, lastEventVersion - 1));
+				final int id = nextRequestId();
+				request.setRequestId(id);
+				delta = changesSinceAsync(send(id, request.toFrame())).join();
+
+			} catch (final IOException ex) {
+				/* The listeners are told below that they missed the changes. */
+
+			} catch (final ServicesException ex) {
+				/* The listeners are told below that they missed the changes. */
+			}
+
+			heldLock.lock();
+			try {
+				long reported = Long.MIN_VALUE;
+				if ((delta == null) || delta.isFull()) {
+					fireHotelRoomEventsMissed();
+
+				} else {
+					reported = delta.getVersion();
+					for (final HotelRoom hotelRoom : delta.getHotelRooms()) {
+						fireHotelRoomChanged(toEvent(hotelRoom, reported));
+					}
+
+					final Map<HotelRoom.Field, String> none =
+							Collections.emptyMap();
+					for (final int recNo : delta.getDeletedRecordNumbers()) {
+						fireHotelRoomChanged(new HotelRoomEvent(recNo, reported,
+								true, none));
+					}
+				}
+
+				/* Those already reflected by the delta are not reported twice. */
+				for (final HotelRoomEvent event : heldEvents) {
+					if (event.getVersion() > reported) {
+						fireHotelRoomChanged(event);
+					}
+				}
+				heldEvents = null;
+
+			} finally {
+				heldLock.unlock();
+			}
+		}
+
+		/**
+		 * Reports an event pushed by the server to the listeners, unless it
+		 * must be held back until the missed changes have been reported.
+		 * 
+		 * @param event
+		 *            Describes the change made to a room.
+		 */
+		private void dispatch(final HotelRoomEvent event) {
+			heldLock.lock();
+			try {
+				if (heldEvents != null) {
+					heldEvents.add(event);
+					return;
+				}
+
+			} finally {
+				heldLock.unlock();
+			}
+			fireHotelRoomChanged(event);
+		}
+
+		/**
+		 * Sends {@code request} without waiting for its result.
+		 * 
+		 * @param request
+		 *            The request to send, with its arguments already written.
+		 * 
+		 * @throws IOException
+		 *             If the request could not be sent.
+		 */
+		private void announce(final WireWriter request) throws IOException {
+			final int id = nextRequestId();
+			request.setRequestId(id);
+			send(id, request.toFrame());
+		}
+
+		/**
+		 * Returns {@code true} if this connection has been closed or lost.
+		 * 
+		 * @return {@code true} if this connection can no longer be used.
+		 */
+		boolean isClosed() {
+			return isClosed;
+		}
+
+		/**
+		 * Sends the frame holding a request to the server.
+		 * 
+		 * @param id
+		 *            Identifier the request has been tagged with.
+		 * 
+		 * @param frame
+		 *            Frame holding the request.
+		 * 
+		 * @return Holder the response will be handed to once it arrives.
+		 * 
+		 * @throws NotSentException
+		 *             If the connection had already been lost, so that none
+		 *             of the request was sent.
+		 * 
+		 * @throws IOException
+		 *             If the request could not be sent; some of it may have
+		 *             reached the server.
+		 */
+		PendingResponse send(final int id, final byte[] frame)
+				throws IOException {
+			final PendingResponse response = new PendingResponse();
+			pendingResponses.put(id, response);
+
+			/*
+			 * If the connection was closed before the response was registered,
+			 * then it was missed when the pending responses were failed.
+			 */
+			if (isClosed) {
+				pendingResponses.remove(id);
+				throw new NotSentException();
+			}
+
+			writeLock.lock();
+			try {
+				out.write(frame);
+				out.flush();
+
+			} catch (final IOException ex) {
+				pendingResponses.remove(id);
+				throw ex;
+
+			} finally {
+				writeLock.unlock();
+			}
+			return response;
+		}
+
+		/**
+		 * Reads the responses sent back by the server and hands each one to
+		 * the thread waiting on it, and the events to the listeners, until the
+		 * connection is lost or closed.
+		 */
+		@Override
+		public void run() {
+			try {
+				while (!isClosed) {
+					final WireReader reader = new WireReader(Frames.read(in));
+					if (reader.readUnsignedByte() != Protocol.VERSION) {
+						throw new StreamCorruptedException(
+								"unsupported protocol version");
+					}
+
+					final int id = reader.readInt();
+					if (id == Protocol.EVENT_ID) {
+						dispatch(reader.readHotelRoomEvent());
+						continue;
+					}
+
+					final PendingResponse response = pendingResponses.remove(id);
+					if (response != null) {
+						response.complete(reader);
+					}
+				}
+
+			} catch (final Exception ignore) {
+				/*
+				 * Either the server went away or the connection was closed;
+				 * in both cases the waiting requests are failed below.
+				 */
+
+			} finally {
+				final boolean isLost = !isClosed;
+				close();
+				if (isLost && !listeners.isEmpty()) {
+					reconnect();
+				}
+			}
+		}
+
+		/**
+		 * Opens a new connection straight away, rather than on the next
+		 * request, so that the listeners catch up on the changes they missed
+		 * while they are still fresh. Should that fail, the listeners are told
+		 * that they missed the changes.
+		 */
+		private void reconnect() {
+			try {
+				getConnection();
+
+			} catch (final ServicesException ex) {
+				fireHotelRoomEventsMissed();
+			}
+		}
+
+		/**
+		 * Closes the connection and fails every request still waiting on it.
+		 */
+		void close() {
+			isClosed = true;
+			try {
+				socket.close();
+
+			} catch (final IOException ignore) {
+				/* The connection is being abandoned anyways. */
+			}
+
+			for (final Integer id : pendingResponses.keySet()) {
+				final PendingResponse response = pendingResponses.remove(id);
+				if (response != null) {
+					response.fail();
+				}
+			}
 		}
 	}
 }
@@ -4,12 +4,35 @@
  */
 package suncertify.service.socket;
 
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketTimeoutException;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import suncertify.service.DefaultHotelServices;
 import suncertify.service.HotelServices;
@@ -17,16 +40,85 @@ import suncertify.service.ServicesException;
 import suncertify.service.ServicesInitializationException;
 
 /**
- * This class is responsible for satisfying {@code ServiceRequest} made by any
- * number of {@code HotelClient} instances. Each time a {@code HotelClient}
- * sends a {@code ServiceRequest}, the {@code HotelServer} will
- * {@link ServiceRequest#execute(HotelServices) execute} it. The result will be
- * sent back to the {@code HotelClient} that sent the {@code ServiceRequest}.
+ * This class is responsible for satisfying the requests made by any number of
+ * {@code HotelClient} instances. Each time a {@code HotelClient} sends a
+ * request, the {@code HotelServer} will execute it against its
+ * {@code HotelServices} (see {@link RequestProcessor}). The result will be
+ * sent back to the {@code HotelClient} that sent the request.
+ * 
+ * <p>
+ * A {@code HotelClient} keeps its connection open and sends all of its
+ * requests on it as frames (see {@link Protocol}). The connections are served
+ * by a small, fixed number of dispatcher threads, each of which uses a
+ * {@code Selector} to read and write any number of connections without
+ * blocking. Once a request has been read in full, it is handed to a pool of
+ * worker threads to be executed. Thus, the number of threads used by the
+ * server does not grow with the number of clients.
+ * 
+ * <p>
+ * A client need not wait for a result before sending its next request. The
+ * requests sent on the same connection are executed concurrently and each
+ * result is sent back as soon as it is ready, tagged with the id of its
+ * request, so a slow request does not hold up the ones sent after it.
+ * 
+ * <p>
+ * Alternatively, the server can be constructed to use
+ * {@link ThreadModel#VIRTUAL_THREAD virtual threads}, in which case every
+ * connection is read by its own virtual thread that simply blocks while
+ * reading the requests, each of which is executed on a virtual thread of its
+ * own. Since idle virtual threads cost little more than the memory holding
+ * their stacks, this serves just as many clients with much simpler code; it
+ * requires Java 21 or later.
+ * 
+ * <p>
+ * Either way, the number of requests executed at once and the number waiting
+ * to be executed are bounded by the server's {@link WorkloadLimits}. A request
+ * that would exceed them is answered straight away with a "server busy"
+ * {@code ServicesException} instead of being executed. The finds of a batch
+ * count against the same limits; those that would exceed them are executed
+ * one after another by the thread executing the batch.
+ * 
+ * <p>
+ * A client that subscribes to the changes made to the rooms is pushed an
+ * event for every change, made by any client, as soon as it is made. The
+ * events are queued behind the results already waiting to be sent, so the
+ * thread making the change never waits on a client. A client that stops
+ * reading its events has its connection closed once too many are waiting.
  * 
  * @author rsmall
  */
 public class HotelServer implements Server {
 
+	/**
+	 * Identifies how the server assigns threads to the client connections.
+	 */
+	public enum ThreadModel {
+
+		/**
+		 * A few dispatcher threads serve every connection using selectors and
+		 * hand the requests to a fixed pool of worker threads.
+		 */
+		SELECTOR,
+
+		/**
+		 * Every connection is read by its own virtual thread, which hands
+		 * each request to a virtual thread of its own to be executed, so the
+		 * requests sent on a connection run concurrently. Requires Java 21 or
+		 * later.
+		 */
+		VIRTUAL_THREAD
+	}
+
+	/** Number of threads reading and writing the client connections. */
+	private static final int DISPATCHER_COUNT = Math.max(1,
+			Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+	/**
+	 * Number of milliseconds the results still waiting to be sent are given
+	 * to reach the clients when the server is being stopped.
+	 */
+	private static final long FLUSH_TIMEOUT = 1500;
+
 	/** Used as a lock to control {@code start} and {@code shutdown} operations. */
 	private final Object lock = new Object();
 
@@ -36,8 +128,42 @@ public class HotelServer implements Server {
 	/** Handles data access. */
 	private final HotelServices services;
 
-	/** Responsible for handling socket connections. */
-	private Thread serverThread;
+	/** Executes the requests against {@code services}. */
+	private final RequestProcessor processor;
+
+	/** How threads are assigned to the client connections. */
+	private final ThreadModel threadModel;
+
+	/** Limits the amount of work taken on at once. */
+	private final WorkloadLimits limits;
+
+	/** Decides which requests are taken on and which are refused. */
+	private final AdmissionControl admission;
+
+	/**
+	 * Limits the number of requests executed at once when using virtual
+	 * threads; the workers do so when using the selectors.
+	 */
+	private final Semaphore executionPermits;
+
+	/** Accepts the connections made by clients. */
+	private ServerSocketChannel serverChannel;
+
+	/**
+	 * Executes the requests read by the dispatchers or, when using virtual
+	 * threads, serves the connections.
+	 */
+	private ExecutorService workers;
+
+	/** Responsible for reading and writing the client connections. */
+	private volatile Dispatcher[] dispatchers;
+
+	/** Accepts the connections when using virtual threads. */
+	private volatile Thread acceptorThread;
+
+	/** Connections currently being served when using virtual threads. */
+	private final Set<BlockingConnection> blockingConnections = Collections
+			.newSetFromMap(new ConcurrentHashMap<BlockingConnection, Boolean>());
 
 	/**
 	 * Constructs a new {@code HotelServer} that will be responsible for
@@ -65,6 +191,47 @@ public class HotelServer implements Server {
 	 */
 	public HotelServer(final File database, final int port)
 			throws ServicesInitializationException {
+		this(database, port, ThreadModel.SELECTOR, WorkloadLimits.DEFAULT);
+	}
+
+	/**
+	 * Constructs a new {@code HotelServer} that will be responsible for
+	 * monitoring the {@code port} for client connections, serving them as
+	 * specified by {@code threadModel} within the given {@code limits}.
+	 * Request made from these client connections will be transacted against
+	 * the data supplied by the data stored in {@code database}.
+	 * {@code database} should reference an existing file used for storing the
+	 * data.
+	 * 
+	 * @param database
+	 *            Path to the physical file on disk that contains the records.
+	 *            Cannot be {@code null}.
+	 * 
+	 * @param port
+	 *            Port number to use when listening for client connections. Must
+	 *            be between {@code 1024} and {@code 65535}.
+	 * 
+	 * @param threadModel
+	 *            How threads are assigned to the client connections. Cannot be
+	 *            {@code null}.
+	 * 
+	 * @param limits
+	 *            Limits the amount of work taken on at once. Cannot be
+	 *            {@code null}.
+	 * 
+	 * @throws ServicesInitializationException
+	 *             If the given file does not denote an existing, writable
+	 *             regular file or if some other error occurs while opening the
+	 *             file or if an I/O error occurs while reading the file.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If {@code database}, {@code threadModel} or {@code limits}
+	 *             is {@code null} or {@code port} is not between {@code 1024}
+	 *             and {@code 65535}.
+	 */
+	public HotelServer(final File database, final int port,
+			final ThreadModel threadModel, final WorkloadLimits limits)
+			throws ServicesInitializationException {
 
 		if (database == null) {
 			throw new IllegalArgumentException("database cannot be null");
@@ -75,41 +242,151 @@ public class HotelServer implements Server {
 					"Port must be between 1024 and 65535.");
 		}
 
+		if (threadModel == null) {
+			throw new IllegalArgumentException("threadModel cannot be null");
+		}
+
+		if (limits == null) {
+			throw new IllegalArgumentException("limits cannot be null");
+		}
+
 		services = new DefaultHotelServices(database);
+		processor = new RequestProcessor(services, new BatchExecutor());
 		this.port = port;
+		this.threadModel = threadModel;
+		this.limits = limits;
+		admission = new AdmissionControl(limits);
+		executionPermits = new Semaphore(limits.getWorkerCount(), true);
 	}
 
 	/**
 	 * Starts the process of listening for incoming connections from clients.
 	 * 
+	 * @throws ServicesException
+	 *             If the server could not listen on the port or virtual
+	 *             threads were requested but are not supported by this Java
+	 *             runtime.
+	 * 
 	 * @throws IllegalStateException
 	 *             If the server is currently running.
 	 */
 	@Override
-	public void start() {
+	public void start() throws ServicesException {
 		/*
 		 * We want to avoid starting the server if it is already in the process
 		 * of starting or stopping; thus, we synchronize on the lock to force
 		 * any subsequent calls being made to wait until the server is started.
 		 */
 		synchronized (lock) {
-			if ((serverThread == null) || !serverThread.isAlive()) {
-				final Runnable socketListener = new SocketListener();
-				serverThread = new Thread(socketListener);
-				serverThread.start();
+			if (isRunning()) {
+				throw new IllegalStateException("server already running");
+			}
 
+			if (threadModel == ThreadModel.VIRTUAL_THREAD) {
+				startVirtualThreads();
 			} else {
-				throw new IllegalStateException("server already running");
+				startSelector();
+			}
+		}
+	}
+
+	/**
+	 * Starts the dispatchers and the workers. Must be called while holding
+	 * {@code lock}.
+	 * 
+	 * @throws ServicesException
+	 *             If the server could not listen on the port.
+	 */
+	private void startSelector() throws ServicesException {
+		final Dispatcher[] newDispatchers = new Dispatcher[DISPATCHER_COUNT];
+		try {
+			serverChannel = ServerSocketChannel.open();
+			serverChannel.socket().bind(new InetSocketAddress(port));
+			serverChannel.configureBlocking(false);
+
+			for (int i = 0; i < newDispatchers.length; i++) {
+				newDispatchers[i] = new Dispatcher(i);
+			}
+
+			/* The first dispatcher is also responsible for accepting. */
+			serverChannel.register(newDispatchers[0].selector,
+					SelectionKey.OP_ACCEPT);
+
+		} catch (final IOException ex) {
+			closeQuietly(serverChannel);
+			for (final Dispatcher dispatcher : newDispatchers) {
+				if (dispatcher != null) {
+					closeQuietly(dispatcher.selector);
+				}
 			}
+			throw new ServicesException("Port " + port
+					+ " could not be opened.");
+		}
+
+		workers = Executors.newFixedThreadPool(limits.getWorkerCount());
+		dispatchers = newDispatchers;
+		for (final Dispatcher dispatcher : dispatchers) {
+			dispatcher.thread.start();
+		}
+	}
+
+	/**
+	 * Starts accepting connections, serving each on its own virtual thread.
+	 * Must be called while holding {@code lock}.
+	 * 
+	 * @throws ServicesException
+	 *             If the server could not listen on the port or virtual
+	 *             threads are not supported by this Java runtime.
+	 */
+	private void startVirtualThreads() throws ServicesException {
+		final ExecutorService executor = newVirtualThreadExecutor();
+		try {
+			serverChannel = ServerSocketChannel.open();
+			serverChannel.socket().bind(new InetSocketAddress(port));
+
+		} catch (final IOException ex) {
+			closeQuietly(serverChannel);
+			executor.shutdown();
+			throw new ServicesException("Port " + port
+					+ " could not be opened.");
+		}
+
+		workers = executor;
+		acceptorThread = new Thread(new Acceptor(), "HotelServer acceptor");
+		acceptorThread.start();
+	}
+
+	/**
+	 * Returns an executor that runs every task on a new virtual thread. The
+	 * executor is looked up reflectively so that the server can still be
+	 * built and run, using the selectors, on a runtime that predates virtual
+	 * threads.
+	 * 
+	 * @return An executor that runs every task on a new virtual thread.
+	 * 
+	 * @throws ServicesException
+	 *             If virtual threads are not supported by this Java runtime.
+	 */
+	private static ExecutorService newVirtualThreadExecutor()
+			throws ServicesException {
+		try {
+			final Method factory =
+					Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+
+		} catch (final Exception ex) {
+			throw new ServicesException(
+					"Virtual threads require Java 21 or later.");
 		}
 	}
 
 	/**
 	 * Stops the process of listening for incoming connections from clients.
-	 * This has no effect on connections that have already been established, as
-	 * they will be allowed to finish. This method will block until all
-	 * remaining clients have been satisfied and the server has been shutdown.
-	 * Once shutdown, the changes will be saved.
+	 * Connections that have already been established stop accepting requests,
+	 * but the requests that have already been received on them will be
+	 * allowed to finish. This method will block until all remaining clients
+	 * have been satisfied and the server has been shutdown. Once shutdown, the
+	 * changes will be saved.
 	 * 
 	 * @throws ServicesException
 	 *             If the changes could not be saved.
@@ -128,17 +405,39 @@ public class HotelServer implements Server {
 			if (isRunning()) {
 
 				/*
-				 * Interrupt the thread the server is running on and politely
-				 * wait until the server finishes handling any requests in
-				 * progress before continuing on.
+				 * Stop taking on new work, then politely wait until the
+				 * requests in progress have been executed and their results
+				 * sent before continuing on.
 				 */
-				serverThread.interrupt();
-				while (isRunning()) {
+				closeQuietly(serverChannel);
+				if (threadModel == ThreadModel.VIRTUAL_THREAD) {
+					join(acceptorThread);
+					for (final BlockingConnection connection : blockingConnections) {
+						connection.shutdown();
+					}
+
+				} else {
+					for (final Dispatcher dispatcher : dispatchers) {
+						dispatcher.stopReading();
+					}
+				}
+
+				workers.shutdown();
+				while (!workers.isTerminated()) {
 					try {
-						serverThread.join();
+						workers.awaitTermination(1, TimeUnit.SECONDS);
 
 					} catch (final InterruptedException ignore) {
-						/* Join until the thread has finished. */
+						/* Wait until the workers have finished. */
+					}
+				}
+
+				if (threadModel == ThreadModel.SELECTOR) {
+					for (final Dispatcher dispatcher : dispatchers) {
+						dispatcher.close();
+					}
+					for (final Dispatcher dispatcher : dispatchers) {
+						join(dispatcher.thread);
 					}
 				}
 
@@ -159,130 +458,911 @@ public class HotelServer implements Server {
 	 */
 	@Override
 	public boolean isRunning() {
-		return (serverThread != null) && serverThread.isAlive();
+		if (threadModel == ThreadModel.VIRTUAL_THREAD) {
+			final Thread acceptor = acceptorThread;
+			return (acceptor != null) && acceptor.isAlive();
+		}
+
+		final Dispatcher[] current = dispatchers;
+		if (current == null) {
+			return false;
+		}
+
+		for (final Dispatcher dispatcher : current) {
+			if (dispatcher.thread.isAlive()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Waits until {@code thread} has finished.
+	 * 
+	 * @param thread
+	 *            Thread to wait on.
+	 */
+	private static void join(final Thread thread) {
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+
+			} catch (final InterruptedException ignore) {
+				/* Join until the thread has finished. */
+			}
+		}
+	}
+
+	/**
+	 * Returns the frame refusing the request held by {@code body} because the
+	 * server is busy.
+	 * 
+	 * @param body
+	 *            Body of the frame holding the request.
+	 * 
+	 * @return Frame holding the "server busy" response.
+	 */
+	private static ByteBuffer[] refuse(final byte[] body) {
+		String err = "The server is busy.\n";
+		err += "Please try again later.";
+		return RequestProcessor.refuse(body, err);
+	}
+
+	/**
+	 * Closes {@code closeable}, ignoring any problem doing so.
+	 * 
+	 * @param closeable
+	 *            Channel or selector to close; may be {@code null}.
+	 */
+	private static void closeQuietly(final Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+
+			} catch (final IOException ignore) {
+				/* The resource is being abandoned anyways. */
+			}
+		}
 	}
 
 	/**
-	 * Responsible for handling the connection requests made by clients.
+	 * Responsible for reading and writing the connections assigned to it
+	 * without blocking on any one of them. The first dispatcher also accepts
+	 * new connections and assigns them to the dispatchers in turn.
 	 */
-	private class SocketListener implements Runnable {
+	private class Dispatcher implements Runnable {
+
+		/** Reports which of the connections are ready. */
+		private final Selector selector;
+
+		/** Thread the dispatcher runs on. */
+		private final Thread thread;
+
+		/** Connections that have been assigned but not yet registered. */
+		private final Queue<SocketChannel> assignedChannels =
+				new ConcurrentLinkedQueue<SocketChannel>();
+
+		/** Connections that have results waiting to be sent. */
+		private final Queue<ClientConnection> flushedConnections =
+				new ConcurrentLinkedQueue<ClientConnection>();
+
+		/** Dispatcher the next accepted connection is assigned to. */
+		private int nextDispatcher;
+
+		/** Indicates that requests are still being read. */
+		private volatile boolean isReading = true;
+
+		/** Indicates that the dispatcher has not been closed. */
+		private volatile boolean isOpen = true;
+
+		/** Time by which the remaining results must have been sent. */
+		private volatile long closeDeadline;
 
 		/**
-		 * Number of milliseconds to elapse before checking if the server needs
-		 * to shutdown. Decrease the value in order to increase response time
-		 * when shutting down.
+		 * Constructs a new {@code Dispatcher}.
+		 * 
+		 * @param index
+		 *            Position of the dispatcher amongst its peers.
+		 * 
+		 * @throws IOException
+		 *             If the selector could not be opened.
 		 */
-		private static final int TIMEOUT = 1500;
+		Dispatcher(final int index) throws IOException {
+			selector = Selector.open();
+			thread = new Thread(this, "HotelServer dispatcher " + index);
+		}
 
 		/**
-		 * Starts the process of listening for incoming connections from
-		 * clients. Once a {@code ServiceRequest} has been received by the
-		 * {@code socket} it will be executed and the returned value (or
-		 * exception) will be sent back to the client using the same
-		 * {@code socket} the request was received on as a {@code Results}
-		 * object.
+		 * Hands a newly accepted connection to this dispatcher.
+		 * 
+		 * @param channel
+		 *            The connection to serve.
+		 */
+		void assign(final SocketChannel channel) {
+			assignedChannels.add(channel);
+			selector.wakeup();
+		}
+
+		/**
+		 * Notifies this dispatcher that {@code connection} has results waiting
+		 * to be sent.
+		 * 
+		 * @param connection
+		 *            Connection with results waiting to be sent.
+		 */
+		void flush(final ClientConnection connection) {
+			flushedConnections.add(connection);
+			selector.wakeup();
+		}
+
+		/**
+		 * Stops accepting connections and reading requests. The results of
+		 * requests already read will still be sent.
+		 */
+		void stopReading() {
+			isReading = false;
+			selector.wakeup();
+		}
+
+		/**
+		 * Closes every connection once its remaining results have been sent,
+		 * or once {@link HotelServer#FLUSH_TIMEOUT} has elapsed.
+		 */
+		void close() {
+			closeDeadline = System.currentTimeMillis() + FLUSH_TIMEOUT;
+			isOpen = false;
+			selector.wakeup();
+		}
+
+		/**
+		 * Serves the connections until the dispatcher is closed.
 		 */
 		@Override
 		public void run() {
+			boolean isReadInterestCleared = false;
 			try {
-				final ServerSocket serverSocket = new ServerSocket(port);
-				serverSocket.setSoTimeout(TIMEOUT);
+				while (isOpen || (hasUnsentResults()
+						&& (System.currentTimeMillis() < closeDeadline))) {
+
+					selector.select(isOpen ? 0 : 100);
+
+					registerAssignedChannels();
+					if (!isReading && !isReadInterestCleared) {
+						clearReadInterest();
+						isReadInterestCleared = true;
+					}
+
+					ClientConnection flushed;
+					while ((flushed = flushedConnections.poll()) != null) {
+						flushed.write();
+					}
+
+					final Iterator<SelectionKey> keys =
+							selector.selectedKeys().iterator();
+
+					while (keys.hasNext()) {
+						final SelectionKey key = keys.next();
+						keys.remove();
+
+						if (!key.isValid()) {
+							continue;
+						}
+
+						if (key.isAcceptable()) {
+							accept();
+							continue;
+						}
+
+						final ClientConnection connection =
+								(ClientConnection) key.attachment();
+
+						if (isReading && key.isReadable()) {
+							connection.read();
+						}
+						if (key.isValid() && key.isWritable()) {
+							connection.write();
+						}
+					}
+				}
 
+			} catch (final IOException ignore) {
 				/*
-				 * If the thread is interrupted, then we will want to stop
-				 * listening for connections and preform any cleanup.
+				 * The selector itself has failed. There is nothing we can
+				 * really do at this point to recover, so just drop the
+				 * connections below.
 				 */
-				while (!Thread.interrupted()) {
-					try {
-						final Socket socket = serverSocket.accept();
-						final Thread socketHandler =
-								new Thread(new ServiceRequestHandler(socket));
 
-						socketHandler.start();
+			} finally {
+				for (final SelectionKey key : selector.keys()) {
+					if (key.attachment() instanceof ClientConnection) {
+						((ClientConnection) key.attachment()).close();
+					}
+				}
+				SocketChannel channel;
+				while ((channel = assignedChannels.poll()) != null) {
+					closeQuietly(channel);
+				}
+				closeQuietly(selector);
+			}
+		}
 
-					} catch (final SocketTimeoutException ignore) {
-						/*
-						 * We want to periodically check to see if the thread
-						 * has been interrupted, indicating that the server is
-						 * attempting to shutdown. If the thread has been
-						 * interrupted, then we clean up resources.
-						 */
+		/**
+		 * Accepts every connection that is waiting and assigns each to a
+		 * dispatcher in turn.
+		 */
+		private void accept() {
+			try {
+				SocketChannel channel;
+				while ((channel = serverChannel.accept()) != null) {
+					dispatchers[nextDispatcher].assign(channel);
+					nextDispatcher = (nextDispatcher + 1) % dispatchers.length;
+				}
+
+			} catch (final IOException ignore) {
+				/*
+				 * The connection was dropped before it could be accepted; the
+				 * client will find out when it attempts to use it.
+				 */
+			}
+		}
+
+		/**
+		 * Registers the connections assigned to this dispatcher for reading.
+		 */
+		private void registerAssignedChannels() {
+			SocketChannel channel;
+			while ((channel = assignedChannels.poll()) != null) {
+				if (!isReading) {
+					closeQuietly(channel);
+					continue;
+				}
+
+				try {
+					channel.configureBlocking(false);
+					channel.socket().setTcpNoDelay(true);
+
+					final ClientConnection connection =
+							new ClientConnection(this, channel);
+					connection.key = channel.register(selector,
+							SelectionKey.OP_READ, connection);
+
+				} catch (final IOException ex) {
+					closeQuietly(channel);
+				}
+			}
+		}
+
+		/**
+		 * Stops every connection from being selected for reading.
+		 */
+		private void clearReadInterest() {
+			for (final SelectionKey key : selector.keys()) {
+				if (key.isValid()
+						&& (key.attachment() instanceof ClientConnection)) {
+					key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+				}
+			}
+		}
+
+		/**
+		 * Returns {@code true} if any connection still has results waiting to
+		 * be sent.
+		 * 
+		 * @return {@code true} if there are results waiting to be sent.
+		 */
+		private boolean hasUnsentResults() {
+			for (final SelectionKey key : selector.keys()) {
+				if (key.isValid()
+						&& (key.attachment() instanceof ClientConnection)) {
+
+					final ClientConnection connection =
+							(ClientConnection) key.attachment();
+					if (connection.hasUnsentResults()) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * A request that has been admitted and is waiting to be executed by one
+	 * of the workers.
+	 */
+	private class QueuedRequest implements Runnable {
+
+		/** Connection the request was received on. */
+		private final ClientConnection connection;
+
+		/** Body of the frame holding the request. */
+		private final byte[] body;
+
+		/** Value of {@link System#nanoTime()} when it was admitted. */
+		private final long admittedAt = System.nanoTime();
+
+		/**
+		 * Constructs a new {@code QueuedRequest}.
+		 * 
+		 * @param connection
+		 *            Connection the request was received on.
+		 * 
+		 * @param body
+		 *            Body of the frame holding the request.
+		 */
+		QueuedRequest(final ClientConnection connection, final byte[] body) {
+			this.connection = connection;
+			this.body = body;
+		}
+
+		/**
+		 * Executes the request, unless it has waited too long, and queues its
+		 * result to be sent back to the client.
+		 */
+		@Override
+		public void run() {
+			if (admission.begin(admittedAt)) {
+				connection.send(processor.process(body, connection.session));
+			} else {
+				connection.send(refuse(body));
+			}
+		}
+	}
+
+	/**
+	 * Executes the finds of a batch in parallel, as long as they are admitted
+	 * like any other request. A find that is refused, or that has waited too
+	 * long by the time it is reached, is left to the thread executing the
+	 * batch.
+	 */
+	private class BatchExecutor implements Executor {
+
+		/**
+		 * Admits {@code command} and queues it to be executed by the workers.
+		 * 
+		 * @param command
+		 *            The find to execute.
+		 * 
+		 * @throws RejectedExecutionException
+		 *             If the find was not admitted or the workers have been
+		 *             shut down.
+		 */
+		@Override
+		public void execute(final Runnable command) {
+			if (!admission.admit()) {
+				throw new RejectedExecutionException();
+			}
+
+			final long admittedAt = System.nanoTime();
+			try {
+				/*
+				 * The workers are replaced each time the server is started, so
+				 * they are looked up on every use.
+				 */
+				workers.execute(new Runnable() {
+					@Override
+					public void run() {
+						if (admission.begin(admittedAt)) {
+							runWithPermit(command);
+						}
+					}
+				});
+
+			} catch (final RejectedExecutionException ex) {
+				admission.begin(admittedAt);
+				throw ex;
+			}
+		}
+
+		/**
+		 * Runs {@code command}. When using virtual threads, it is only run if
+		 * an execution permit is available at once, rather than keeping
+		 * another request waiting for one while the batch could run it
+		 * itself.
+		 * 
+		 * @param command
+		 *            The find to execute.
+		 */
+		private void runWithPermit(final Runnable command) {
+			if (threadModel != ThreadModel.VIRTUAL_THREAD) {
+				command.run();
+				return;
+			}
+
+			try {
+				/* Unlike tryAcquire(), this respects the fairness. */
+				if (!executionPermits.tryAcquire(0, TimeUnit.SECONDS)) {
+					return;
+				}
+
+			} catch (final InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+
+			try {
+				command.run();
+
+			} finally {
+				executionPermits.release();
+			}
+		}
+	}
+
+	/**
+	 * Responsible for a single connection to a client. The dispatcher the
+	 * connection was assigned to collects the frames sent by the client as the
+	 * bytes arrive and writes the results back as the client is able to
+	 * receive them. The requests are executed concurrently by the workers and
+	 * their results are sent in the order they are completed.
+	 */
+	private class ClientConnection {
+
+		/** Dispatcher responsible for the connection. */
+		private final Dispatcher dispatcher;
+
+		/** Connection to the client. */
+		private final SocketChannel channel;
+
+		/** Registration of the connection with the dispatcher. */
+		private SelectionKey key;
+
+		/** What has been negotiated with the client. */
+		private final Session session = new Session() {
+
+			@Override
+			void push(final ByteBuffer[] frame) {
+				if (unsentCount.get() >= MAX_PENDING_EVENTS) {
+					ClientConnection.this.close();
+				} else {
+					send(frame);
+				}
+			}
+		};
+
+		/** Collects the header of the frame being read. */
+		private final ByteBuffer header =
+				ByteBuffer.allocate(Frames.HEADER_SIZE);
+
+		/** Collects the body of the frame being read, once its size is known. */
+		private ByteBuffer body;
+
+		/** Frames holding the results that have not been sent yet. */
+		private final Queue<ByteBuffer[]> results =
+				new ConcurrentLinkedQueue<ByteBuffer[]>();
+
+		/** Number of frames in {@code results}. */
+		private final AtomicInteger unsentCount = new AtomicInteger();
+
+		/**
+		 * Constructs a new {@code ClientConnection}.
+		 * 
+		 * @param dispatcher
+		 *            Dispatcher responsible for the connection.
+		 * 
+		 * @param channel
+		 *            Connection to the client.
+		 */
+		ClientConnection(final Dispatcher dispatcher,
+				final SocketChannel channel) {
+			this.dispatcher = dispatcher;
+			this.channel = channel;
+		}
+
+		/**
+		 * Reads whatever bytes are available without blocking. Each frame
+		 * that has been read in full is handed over to be executed. The
+		 * connection is closed if the client has disconnected or has sent
+		 * something other than a request.
+		 */
+		void read() {
+			try {
+				while (true) {
+					if (body == null) {
+						if (channel.read(header) < 0) {
+							throw new EOFException();
+						}
+						if (header.hasRemaining()) {
+							return;
+						}
+
+						header.flip();
+						body = ByteBuffer.allocate(Frames.checkLength(header
+								.getInt()));
+						header.clear();
+					}
+
+					if (channel.read(body) < 0) {
+						throw new EOFException();
+					}
+					if (body.hasRemaining()) {
+						return;
 					}
+
+					final byte[] request = body.array();
+					body = null;
+
+					/* A request without an id cannot even be refused. */
+					RequestProcessor.readRequestId(request);
+					submit(request);
+				}
+
+			} catch (final Exception ex) {
+				/*
+				 * Either the client disconnected or the connection no longer
+				 * makes sense; in both cases we won't be able to notify the
+				 * client of the issue anyways.
+				 */
+				close();
+			}
+		}
+
+		/**
+		 * Queues {@code request} to be executed by the next available worker
+		 * or, if it is not admitted, refuses it straight away.
+		 * 
+		 * @param request
+		 *            Body of the frame holding the request.
+		 */
+		private void submit(final byte[] request) {
+			if (!admission.admit()) {
+				queue(refuse(request));
+				write();
+				return;
+			}
+
+			final QueuedRequest task = new QueuedRequest(this, request);
+			try {
+				workers.execute(task);
+
+			} catch (final RejectedExecutionException ex) {
+				/*
+				 * The server began stopping after the request was read; it is
+				 * still owed a result.
+				 */
+				task.run();
+			}
+		}
+
+		/**
+		 * Queues {@code frame} to be sent back to the client once the results
+		 * queued before it have been sent. May be called by any thread.
+		 * 
+		 * @param frame
+		 *            Buffers holding the frame with the result of a request.
+		 */
+		void send(final ByteBuffer[] frame) {
+			queue(frame);
+			dispatcher.flush(this);
+		}
+
+		/**
+		 * Adds {@code frame} to the results waiting to be sent.
+		 * 
+		 * @param frame
+		 *            Buffers holding the frame to send.
+		 */
+		private void queue(final ByteBuffer[] frame) {
+			unsentCount.incrementAndGet();
+			results.add(frame);
+		}
+
+		/**
+		 * Writes as much of the waiting results as the client is able to
+		 * receive without blocking. If some remain, the dispatcher is asked to
+		 * report when the client is able to receive more.
+		 */
+		void write() {
+			if (!key.isValid()) {
+				return;
+			}
+
+			try {
+				ByteBuffer[] result;
+				while ((result = results.peek()) != null) {
+					channel.write(result);
+					if (result[result.length - 1].hasRemaining()) {
+						key.interestOps(key.interestOps()
+								| SelectionKey.OP_WRITE);
+						return;
+					}
+					results.poll();
+					unsentCount.decrementAndGet();
+				}
+				key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+
+			} catch (final IOException ex) {
+				close();
+			}
+		}
+
+		/**
+		 * Returns {@code true} if there are results waiting to be sent.
+		 * 
+		 * @return {@code true} if there are results waiting to be sent.
+		 */
+		boolean hasUnsentResults() {
+			return !results.isEmpty();
+		}
+
+		/**
+		 * Closes the connection; any results not yet sent are discarded.
+		 */
+		void close() {
+			session.close();
+			key.cancel();
+			results.clear();
+			unsentCount.set(0);
+			closeQuietly(channel);
+		}
+	}
+
+	/**
+	 * Responsible for accepting the connections made by clients when using
+	 * virtual threads. Each connection is handed to its own virtual thread.
+	 */
+	private class Acceptor implements Runnable {
+
+		/**
+		 * Accepts connections until the server channel is closed.
+		 */
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					final SocketChannel channel = serverChannel.accept();
+					channel.socket().setTcpNoDelay(true);
+
+					final BlockingConnection connection =
+							new BlockingConnection(channel);
+					blockingConnections.add(connection);
+					workers.execute(connection);
 				}
-				serverSocket.close();
 
 			} catch (final Exception ignore) {
 				/*
-				 * For some reason the server has failed to start or maybe stop.
-				 * There is nothing we can really do at this point to recover,
-				 * so just ignore it.
+				 * The server channel has been closed because the server is
+				 * being stopped or, for some reason, has failed. There is
+				 * nothing we can really do at this point to recover, so just
+				 * stop accepting.
 				 */
 			}
 		}
 	}
 
 	/**
-	 * Responsible for handling the {@code ServiceRequest} sent by the client.
+	 * Responsible for a single connection to a client when using virtual
+	 * threads. The requests are read one at a time, blocking the virtual
+	 * thread whenever the client is not ready, and each is executed and
+	 * answered on a virtual thread of its own.
 	 */
-	private class ServiceRequestHandler implements Runnable {
+	private class BlockingConnection implements Runnable {
 
 		/** Connection to the client. */
-		private final Socket socket;
+		private final SocketChannel channel;
 
 		/**
-		 * Constructs a new {@code ServiceRequestHandler} using the specified
-		 * {@code socket} to communicate with the client.
+		 * Serializes the writing of the results. A lock rather than a monitor,
+		 * so that a virtual thread blocked on a slow client does not pin its
+		 * carrier thread.
+		 */
+		private final Lock writeLock = new ReentrantLock();
+
+		/** What has been negotiated with the client. */
+		private final Session session = new Session() {
+
+			@Override
+			void push(final ByteBuffer[] frame) {
+				if (eventCount.incrementAndGet() > MAX_PENDING_EVENTS) {
+					/* The reader finds the connection closed and stops. */
+					close();
+					closeQuietly(channel);
+					events.clear();
+					return;
+				}
+
+				events.add(frame);
+				pushEvents();
+			}
+		};
+
+		/** Events waiting to be pushed to the client. */
+		private final Queue<ByteBuffer[]> events =
+				new ConcurrentLinkedQueue<ByteBuffer[]>();
+
+		/** Number of events pushed that have not been written yet. */
+		private final AtomicInteger eventCount = new AtomicInteger();
+
+		/** Indicates a thread has been given the events to push. */
+		private final AtomicBoolean isPushing = new AtomicBoolean();
+
+		/**
+		 * Number of threads still using the connection: the one reading it
+		 * plus one for every request being executed. The last one to finish
+		 * closes the connection.
+		 */
+		private final AtomicInteger users = new AtomicInteger(1);
+
+		/**
+		 * Constructs a new {@code BlockingConnection}.
 		 * 
-		 * @param socket
-		 *            {@code Socket} that the {@code ServiceRequest} will be
-		 *            sent on. This is the same {@code Socket} that the
-		 *            {@code Results} will be returned on.
+		 * @param channel
+		 *            Connection to the client, in blocking mode.
 		 */
-		public ServiceRequestHandler(final Socket socket) {
-			this.socket = socket;
+		BlockingConnection(final SocketChannel channel) {
+			this.channel = channel;
 		}
 
 		/**
-		 * Once a {@code ServiceRequest} has been received by the {@code socket}
-		 * it will be executed and the returned value (or exception) will be
-		 * sent back to the client using the same {@code socket} the request was
-		 * received on as a {@code Results} object.
+		 * Stops accepting requests from the client. The requests in progress,
+		 * if any, are still executed and their results are sent back.
+		 */
+		void shutdown() {
+			try {
+				channel.socket().shutdownInput();
+
+			} catch (final IOException ignore) {
+				/* The client has already disconnected. */
+			}
+		}
+
+		/**
+		 * Each time a request has been received it will be handed to a virtual
+		 * thread of its own to be executed and the result sent back to the
+		 * client. This continues until the client disconnects or the server is
+		 * stopped.
 		 */
 		@Override
 		public void run() {
 			try {
-				final ObjectInputStream ois =
-						new ObjectInputStream(socket.getInputStream());
+				final DataInputStream in = new DataInputStream(
+						new BufferedInputStream(channel.socket()
+								.getInputStream()));
+
+				/*
+				 * Reading past the last request, once the client disconnects
+				 * or the server is stopped, ends the loop with an exception.
+				 */
+				while (true) {
+					final byte[] request = Frames.read(in);
 
-				final ObjectOutputStream oos =
-						new ObjectOutputStream(socket.getOutputStream());
+					/* A request without an id cannot even be refused. */
+					RequestProcessor.readRequestId(request);
 
-				final ServiceRequest request =
-						(ServiceRequest) ois.readObject();
+					users.incrementAndGet();
+					final Runnable task = new Runnable() {
+						@Override
+						public void run() {
+							try {
+								send(execute(request));
+							} finally {
+								release();
+							}
+						}
+					};
 
-				final Object returnValue = request.execute(services);
-				oos.writeObject(returnValue);
-				oos.flush();
+					try {
+						workers.execute(task);
 
+					} catch (final RejectedExecutionException ex) {
+						/*
+						 * The server began stopping after the request was
+						 * read; it is still owed a result.
+						 */
+						task.run();
+					}
+				}
+
+			} catch (final Exception ignore) {
 				/*
-				 * The client should only be sending a single request per
-				 * connection. At this point in time, we have satisfied that
-				 * request and are now safe to close the socket.
+				 * Either the client disconnected, the server is being stopped
+				 * or the connection no longer makes sense; in any case we
+				 * won't be able to notify the client of the issue anyways.
 				 */
-				socket.close();
 
-			} catch (final Exception ignore) {
+			} finally {
+				session.close();
+				release();
+			}
+		}
+
+		/**
+		 * Hands the waiting events to a thread of their own to be written, in
+		 * order, unless a thread is already writing them; the thread that
+		 * made the change must not wait on the client.
+		 */
+		private void pushEvents() {
+			if (events.isEmpty() || !isPushing.compareAndSet(false, true)) {
+				return;
+			}
+
+			try {
+				workers.execute(new Runnable() {
+					@Override
+					public void run() {
+						ByteBuffer[] event;
+						while ((event = events.poll()) != null) {
+							send(event);
+							eventCount.decrementAndGet();
+						}
+						isPushing.set(false);
+
+						/*
+						 * An event may have been added just before the flag
+						 * was cleared.
+						 */
+						pushEvents();
+					}
+				});
 
+			} catch (final RejectedExecutionException ex) {
+				/* The server is stopping; the events are no longer needed. */
+				events.clear();
+				isPushing.set(false);
+			}
+		}
+
+		/**
+		 * Writes {@code frame} back to the client.
+		 * 
+		 * @param frame
+		 *            Buffers holding the frame with the result of a request.
+		 */
+		private void send(final ByteBuffer[] frame) {
+			writeLock.lock();
+			try {
+				while (frame[frame.length - 1].hasRemaining()) {
+					channel.write(frame);
+				}
+
+			} catch (final IOException ex) {
 				/*
-				 * If we reach this point, then it means that either a
-				 * SocketException occurred because a client disconnected, an
-				 * I/O error occurred with the streams or the ServiceRequest
-				 * class wasn't found. Since the server and client are bundled
-				 * as one, the latter is unlikely; and if the client
-				 * disconnected or there is a problem with the socket streams,
-				 * then we won't be able to notify the client of the issue
-				 * anyways. So, at this point there is little we can do.
+				 * The client disconnected; the reader will find out as well
+				 * and stop.
 				 */
+				closeQuietly(channel);
+
+			} finally {
+				writeLock.unlock();
+			}
+		}
+
+		/**
+		 * Records that a thread is done using the connection, closing it if
+		 * that was the last one.
+		 */
+		private void release() {
+			if (users.decrementAndGet() == 0) {
+				blockingConnections.remove(this);
+				closeQuietly(channel);
+			}
+		}
+
+		/**
+		 * Executes the request held by {@code request} once one of the
+		 * execution permits is available, unless it is refused for exceeding
+		 * the limits.
+		 * 
+		 * @param request
+		 *            Body of the frame holding the request.
+		 * 
+		 * @return Frame holding the response to the request.
+		 */
+		private ByteBuffer[] execute(final byte[] request) {
+			if (!admission.admit()) {
+				return refuse(request);
+			}
+
+			final long admittedAt = System.nanoTime();
+			executionPermits.acquireUninterruptibly();
+			try {
+				if (admission.begin(admittedAt)) {
+					return processor.process(request, session);
+				}
+				return refuse(request);
+
+			} finally {
+				executionPermits.release();
 			}
 		}
 	}
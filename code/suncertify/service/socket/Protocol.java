@@ -0,0 +1,159 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.service.socket;
+
+/**
+ * Defines the binary protocol spoken between the {@code HotelClient} and the
+ * {@code HotelServer}. Every message is sent as a frame (see {@link Frames})
+ * whose body is laid out as follows:
+ * 
+ * <pre>
+ * request:  version (1 byte) | request id (4 bytes) | opcode (1 byte) | arguments
+ * response: version (1 byte) | request id (4 bytes) | status (1 byte) | result
+ * event:    version (1 byte) | {@link #EVENT_ID} (4 bytes) | event
+ * </pre>
+ * 
+ * <p>
+ * The version and the request id are found at the same position in every
+ * version of the protocol, so that a request in a version the server does not
+ * speak can still be answered. The arguments and results are written by
+ * {@link WireWriter} and read by {@link WireReader}; if the status is not
+ * {@link #OK}, the result is the message of the exception to throw. A
+ * request whose response would exceed {@link Frames#MAX_MESSAGE_SIZE} fails
+ * with {@link #SERVICES_ERROR} rather than being sent.
+ * 
+ * <p>
+ * Once a client has sent a {@link #SUBSCRIBE} request, the server also sends
+ * it an event, unprompted, every time a room changes: the record number, the
+ * version of the change, whether the room was deleted, then the number of
+ * fields that changed followed by the ordinal and new value of each.
+ * 
+ * @author rsmall
+ */
+final class Protocol {
+
+	/** Version of the protocol described here. */
+	static final int VERSION = 1;
+
+	/** Opcode for booking a room: a room, then a customer id. */
+	static final int BOOK = 1;
+
+	/** Opcode for booking several rooms: an array of rooms, then an id. */
+	static final int BOOK_ROOMS = 2;
+
+	/** Opcode for finding rooms: a criteria; the result is an array of rooms. */
+	static final int FIND = 3;
+
+	/** Opcode for saving the changes: no arguments. */
+	static final int SAVE = 4;
+
+	/**
+	 * Opcode for executing several bookings and finds at once: the number of
+	 * operations, then each operation as its opcode followed by its
+	 * arguments. The result is the number of operations, then the status of
+	 * each followed by the array of rooms found, {@code null} for a booking,
+	 * or, if it failed, its message.
+	 */
+	static final int BATCH = 5;
+
+	/**
+	 * Opcode for negotiating the optional capabilities used on the
+	 * connection: the capabilities the client is able to use. The result is
+	 * the capabilities the server agreed to use. A server that predates this
+	 * request fails it, in which case none are used.
+	 */
+	static final int HELLO = 6;
+
+	/**
+	 * Opcode for exporting every room in its raw form: no arguments. The
+	 * result is the version of the database, then the records, exactly as
+	 * they are stored in the database file, up to the end of the frame. The
+	 * records are never compressed. The request fails if the records do not
+	 * fit in a single frame, in which case the rooms must be found a page at
+	 * a time with {@link #FIND_PAGE}.
+	 */
+	static final int EXPORT = 7;
+
+	/**
+	 * Opcode for having an event pushed for every change made to the rooms
+	 * from now on: no arguments. Subscribing again has no effect.
+	 */
+	static final int SUBSCRIBE = 8;
+
+	/** Opcode for no longer having the events pushed: no arguments. */
+	static final int UNSUBSCRIBE = 9;
+
+	/**
+	 * Opcode for fetching the rooms changed since a version of the database:
+	 * the version. The result is the version the rooms are read as of,
+	 * whether every room is held, the array of rooms, then the number of
+	 * deleted rooms followed by the record number of each.
+	 */
+	static final int CHANGES_SINCE = 10;
+
+	/**
+	 * Opcode for finding a page of the rooms that match: criteria, page token
+	 * and limit. The result is the array of rooms, then the token of the next
+	 * page.
+	 */
+	static final int FIND_PAGE = 11;
+
+	/**
+	 * Opcode for finding the rooms that match and meet the conditions of a
+	 * query, returning only some of their fields, sorted and limited as the
+	 * query asks: the query. The result is the array of rooms, holding no
+	 * value for the fields that were not selected.
+	 */
+	static final int FIND_QUERY = 12;
+
+	/**
+	 * Opcode for counting the available rooms: the location, then the date,
+	 * either of which may be {@code null}. The result is the count.
+	 */
+	static final int COUNT_AVAILABLE = 13;
+
+	/**
+	 * Opcode for counting the booked rooms: the name of the hotel, then its
+	 * location, either of which may be {@code null}. The result is the count.
+	 */
+	static final int COUNT_BOOKED = 14;
+
+	/**
+	 * Opcode for searching the names and locations of the rooms for a piece
+	 * of text: the text, then the limit. The result is the array of rooms,
+	 * best match first.
+	 */
+	static final int SEARCH = 15;
+
+	/**
+	 * Opcode for finding the rooms booked by a customer: the identification
+	 * code of the customer. The result is the array of rooms.
+	 */
+	static final int FIND_BY_CUSTOMER = 16;
+
+	/** Request id of the events, which is never assigned to a request. */
+	static final int EVENT_ID = 0;
+
+	/** Capability allowing the server to compress large frames. */
+	static final int CAPABILITY_COMPRESSION = 1;
+
+	/** Status of a request that succeeded. */
+	static final int OK = 0;
+
+	/** Status of a request that failed with a HotelRoomNotFoundException. */
+	static final int HOTEL_ROOM_NOT_FOUND = 1;
+
+	/** Status of a request that failed with a ServicesException. */
+	static final int SERVICES_ERROR = 2;
+
+	/** Status of a request that failed with an IllegalArgumentException. */
+	static final int ILLEGAL_ARGUMENT = 3;
+
+	/**
+	 * Private constructor to prevent it from being instantiated.
+	 */
+	private Protocol() {
+	}
+}
@@ -0,0 +1,527 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.service.socket;
+
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import suncertify.service.HotelRoom;
+import suncertify.service.HotelRoomCriteria;
+import suncertify.service.HotelRoomImage;
+import suncertify.service.HotelRoomNotFoundException;
+import suncertify.service.HotelServices;
+import suncertify.service.ServicesException;
+
+/**
+ * Executes the requests received by the {@code HotelServer}. Each request is
+ * decoded from the body of its frame, executed against the
+ * {@code HotelServices} and its result, or the exception it failed with, is
+ * encoded into the frame to be sent back to the client.
+ * 
+ * @author rsmall
+ */
+class RequestProcessor {
+
+	/** Handles data access. */
+	private final HotelServices services;
+
+	/** Executes the finds of a batch in parallel. */
+	private final Executor executor;
+
+	/**
+	 * Constructs a new {@code RequestProcessor}.
+	 * 
+	 * @param services
+	 *            The {@code HotelServices} the requests are executed against.
+	 * 
+	 * @param executor
+	 *            Executes the finds of a batch in parallel. The thread
+	 *            executing the batch runs the finds the executor has not got
+	 *            to yet itself, so the executor may be the very pool the
+	 *            batch is executed on, and may decline to run a find it
+	 *            accepted, or reject it outright.
+	 */
+	RequestProcessor(final HotelServices services, final Executor executor) {
+		this.services = services;
+		this.executor = executor;
+	}
+
+	/**
+	 * Returns the id of the request held by {@code body}. Since the id is
+	 * found at the same position in every version of the protocol, this
+	 * succeeds for any request long enough to hold it.
+	 * 
+	 * @param body
+	 *            Body of the frame holding the request.
+	 * 
+	 * @return Identifies the request.
+	 * 
+	 * @throws StreamCorruptedException
+	 *             If {@code body} is too short to hold a request.
+	 */
+	static int readRequestId(final byte[] body)
+			throws StreamCorruptedException {
+		final WireReader in = new WireReader(body);
+		in.readUnsignedByte();
+		return in.readInt();
+	}
+
+	/**
+	 * Returns the frame refusing the request held by {@code body}, without
+	 * executing it.
+	 * 
+	 * @param body
+	 *            Body of the frame holding the request; its id must already
+	 *            have been checked with {@link #readRequestId(byte[])}.
+	 * 
+	 * @param message
+	 *            Explains why the request was refused.
+	 * 
+	 * @return Frame holding the response.
+	 */
+	static ByteBuffer[] refuse(final byte[] body, final String message) {
+		try {
+			return wrap(failure(readRequestId(body), Protocol.SERVICES_ERROR,
+					message));
+
+		} catch (final StreamCorruptedException ex) {
+			throw new IllegalArgumentException("request id was not checked");
+		}
+	}
+
+	/**
+	 * Returns {@code frame} as the buffers to be written to the client.
+	 * 
+	 * @param frame
+	 *            The frame holding a response.
+	 * 
+	 * @return The frame as a single buffer.
+	 */
+	private static ByteBuffer[] wrap(final byte[] frame) {
+		return new ByteBuffer[] {ByteBuffer.wrap(frame)};
+	}
+
+	/**
+	 * Returns the frame reporting that a request failed.
+	 * 
+	 * @param requestId
+	 *            Identifies the request.
+	 * 
+	 * @param status
+	 *            Identifies the exception the client should throw.
+	 * 
+	 * @param message
+	 *            Message of the exception; may be {@code null}.
+	 * 
+	 * @return Frame holding the response.
+	 */
+	private static byte[] failure(final int requestId, final int status,
+			final String message) {
+		final WireWriter out = WireWriter.response(requestId, status);
+		out.writeString(message);
+		return out.toFrame();
+	}
+
+	/**
+	 * Executes the request held by {@code body} and returns the frame holding
+	 * the response to be sent back to the client. The frame is returned as
+	 * buffers to be written, in order, with a single gathering write; most
+	 * responses fit in a single buffer.
+	 * 
+	 * @param body
+	 *            Body of the frame holding the request; its id must already
+	 *            have been checked with {@link #readRequestId(byte[])}.
+	 * 
+	 * @param session
+	 *            What has been negotiated on the connection the request was
+	 *            received on.
+	 * 
+	 * @return Frame holding the response.
+	 */
+	ByteBuffer[] process(final byte[] body, final Session session) {
+		final WireReader in = new WireReader(body);
+		int requestId = 0;
+		try {
+			final int version = in.readUnsignedByte();
+			requestId = in.readInt();
+
+			if (version != Protocol.VERSION) {
+				throw new ServicesException("Protocol version " + version
+						+ " is not supported by the server.");
+			}
+
+			final WireWriter out =
+					WireWriter.response(requestId, Protocol.OK);
+
+			final int opcode = in.readUnsignedByte();
+			switch (opcode) {
+			case Protocol.BOOK:
+				services.bookRoom(in.readHotelRoom(), in.readString());
+				break;
+
+			case Protocol.BOOK_ROOMS:
+				services.bookRooms(in.readHotelRooms(), in.readString());
+				break;
+
+			case Protocol.FIND:
+				out.writeHotelRooms(services.find(in.readCriteria()));
+				break;
+
+			case Protocol.FIND_PAGE:
+				out.writeHotelRoomPage(services.find(in.readCriteria(),
+						in.readString(), in.readVarInt()));
+				break;
+
+			case Protocol.FIND_QUERY:
+				out.writeHotelRooms(services.find(in.readQuery()));
+				break;
+
+			case Protocol.SEARCH:
+				out.writeHotelRooms(services.search(in.readString(),
+						in.readVarInt()));
+				break;
+
+			case Protocol.FIND_BY_CUSTOMER:
+				out.writeHotelRooms(services.findByCustomer(in.readString()));
+				break;
+
+			case Protocol.COUNT_AVAILABLE:
+				out.writeVarInt(services.countAvailableRooms(in.readString(),
+						in.readString()));
+				break;
+
+			case Protocol.COUNT_BOOKED:
+				out.writeVarInt(services.countBookedRooms(in.readString(),
+						in.readString()));
+				break;
+
+			case Protocol.SAVE:
+				services.save();
+				break;
+
+			case Protocol.BATCH:
+				executeBatch(readBatch(in), out);
+				break;
+
+			case Protocol.HELLO:
+				out.writeVarInt(session.negotiate(in.readVarInt()));
+				break;
+
+			case Protocol.CHANGES_SINCE:
+				out.writeHotelRoomDelta(services.changesSince(in.readVarLong()));
+				break;
+
+			case Protocol.SUBSCRIBE:
+				session.subscribe(services);
+				break;
+
+			case Protocol.UNSUBSCRIBE:
+				session.unsubscribe();
+				break;
+
+			case Protocol.EXPORT:
+				final HotelRoomImage image = services.exportHotelRooms();
+				out.writeVarLong(image.getVersion());
+
+				/*
+				 * The records are sent straight from the image, which is
+				 * shared by every export until the rooms change, rather than
+				 * being decoded and encoded once more.
+				 */
+				final ByteBuffer records = image.getRecords();
+				final byte[] header = out.toFrame(records.remaining());
+				checkLength((long) header.length - Frames.HEADER_SIZE
+						+ records.remaining());
+				return new ByteBuffer[] {ByteBuffer.wrap(header), records};
+
+			default:
+				throw new ServicesException("Request " + opcode
+						+ " is not supported by the server.");
+			}
+
+			final byte[] frame = out.toFrame();
+			checkLength(frame.length - Frames.HEADER_SIZE);
+			if (session.isCompressing()) {
+				return wrap(Frames.compress(frame));
+			}
+			return wrap(frame);
+
+		} catch (final HotelRoomNotFoundException ex) {
+			return wrap(failure(requestId, Protocol.HOTEL_ROOM_NOT_FOUND,
+					ex.getMessage()));
+
+		} catch (final ServicesException ex) {
+			return wrap(failure(requestId, Protocol.SERVICES_ERROR,
+					ex.getMessage()));
+
+		} catch (final IllegalArgumentException ex) {
+			return wrap(failure(requestId, Protocol.ILLEGAL_ARGUMENT,
+					ex.getMessage()));
+
+		} catch (final StreamCorruptedException ex) {
+			return wrap(failure(requestId, Protocol.SERVICES_ERROR,
+					"Request could not be read by the server."));
+
+		} catch (final RuntimeException ex) {
+			/*
+			 * The client has no use for the details of an unexpected failure,
+			 * but it should still learn that the request did not succeed.
+			 */
+			return wrap(failure(requestId, Protocol.SERVICES_ERROR,
+					"The server failed to satisfy the request."));
+		}
+	}
+
+	/**
+	 * Checks that the client will accept a response whose body holds
+	 * {@code length} bytes. The length is checked before any compression,
+	 * since the client checks the original length of a compressed body too.
+	 * 
+	 * @param length
+	 *            Number of bytes in the body of the response.
+	 * 
+	 * @throws ServicesException
+	 *             If {@code length} is greater than
+	 *             {@link Frames#MAX_MESSAGE_SIZE}.
+	 */
+	private static void checkLength(final long length)
+			throws ServicesException {
+		if (length > Frames.MAX_MESSAGE_SIZE) {
+			throw new ServicesException("The result is too large to be sent"
+					+ " at once; find the rooms a page at a time instead.");
+		}
+	}
+
+	/**
+	 * Reads the operations of a {@link Protocol#BATCH} request.
+	 * 
+	 * @param in
+	 *            The request, positioned at its arguments.
+	 * 
+	 * @return The operations, in the order they were sent.
+	 * 
+	 * @throws StreamCorruptedException
+	 *             If the request could not be read.
+	 * 
+	 * @throws ServicesException
+	 *             If the batch holds an operation that cannot be batched.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the batch holds too many operations.
+	 */
+	private List<Operation> readBatch(final WireReader in)
+			throws StreamCorruptedException, ServicesException {
+		final int size = in.readVarInt();
+		if ((size < 0) || (size > Batch.MAX_SIZE)) {
+			throw new IllegalArgumentException("A batch cannot hold more than "
+					+ Batch.MAX_SIZE + " operations.");
+		}
+
+		final List<Operation> operations = new ArrayList<Operation>(size);
+		for (int i = 0; i < size; i++) {
+			final Operation operation = new Operation(in.readUnsignedByte());
+			switch (operation.opcode) {
+			case Protocol.BOOK:
+				operation.hotelRooms = new HotelRoom[] {in.readHotelRoom()};
+				operation.id = in.readString();
+				break;
+
+			case Protocol.BOOK_ROOMS:
+				operation.hotelRooms = in.readHotelRooms();
+				operation.id = in.readString();
+				break;
+
+			case Protocol.FIND:
+				operation.criteria = in.readCriteria();
+				break;
+
+			default:
+				throw new ServicesException("Request " + operation.opcode
+						+ " cannot be batched.");
+			}
+			operations.add(operation);
+		}
+		return operations;
+	}
+
+	/**
+	 * Executes the operations of a batch and writes the outcome of each.
+	 * Each run of consecutive finds is executed in parallel; the bookings are
+	 * executed one at a time, once the operations before them are done.
+	 * 
+	 * @param operations
+	 *            The operations, in the order they were sent.
+	 * 
+	 * @param out
+	 *            The response, positioned at its result.
+	 */
+	private void executeBatch(final List<Operation> operations,
+			final WireWriter out) {
+		final List<FutureTask<Void>> finds = new ArrayList<FutureTask<Void>>();
+		for (final Operation operation : operations) {
+			if (operation.opcode == Protocol.FIND) {
+				final FutureTask<Void> find =
+						new FutureTask<Void>(operation, null);
+				finds.add(find);
+				if (finds.size() > 1) {
+					/* The first of the run is kept for this thread. */
+					try {
+						executor.execute(find);
+
+					} catch (final RejectedExecutionException ignore) {
+						/* It is run by this thread below. */
+					}
+				}
+				continue;
+			}
+
+			awaitAll(finds);
+			operation.run();
+		}
+		awaitAll(finds);
+
+		out.writeVarInt(operations.size());
+		for (final Operation operation : operations) {
+			operation.writeOutcome(out);
+		}
+	}
+
+	/**
+	 * Waits until every find in {@code finds} has been executed, running those
+	 * that have not been started yet on the current thread, then clears
+	 * {@code finds}.
+	 * 
+	 * @param finds
+	 *            The finds to wait on.
+	 */
+	private static void awaitAll(final List<FutureTask<Void>> finds) {
+		for (final FutureTask<Void> find : finds) {
+			/*
+			 * Does nothing if the executor already got to it; otherwise, this
+			 * thread would be left waiting on a busy executor.
+			 */
+			find.run();
+
+			boolean isInterrupted = false;
+			while (true) {
+				try {
+					find.get();
+					break;
+
+				} catch (final InterruptedException ex) {
+					isInterrupted = true;
+
+				} catch (final ExecutionException ex) {
+					/* Operations record their own failures; cannot happen. */
+					break;
+				}
+			}
+
+			if (isInterrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		finds.clear();
+	}
+
+	/**
+	 * A single operation of a batch along with its arguments and, once
+	 * executed, its outcome.
+	 */
+	private class Operation implements Runnable {
+
+		/** Opcode of the operation. */
+		private final int opcode;
+
+		/** Rooms to book, if a booking. */
+		private HotelRoom[] hotelRooms;
+
+		/** Customer booking the rooms, if a booking. */
+		private String id;
+
+		/** Criteria to search with, if a find. */
+		private HotelRoomCriteria criteria;
+
+		/** Status of the operation once executed. */
+		private int status;
+
+		/** The rooms found, if a find that succeeded. */
+		private HotelRoom[] result;
+
+		/** Message of the exception, if the operation failed. */
+		private String message;
+
+		/**
+		 * Constructs a new {@code Operation}.
+		 * 
+		 * @param opcode
+		 *            Opcode of the operation.
+		 */
+		Operation(final int opcode) {
+			this.opcode = opcode;
+		}
+
+		/**
+		 * Executes the operation and records its outcome.
+		 */
+		@Override
+		public void run() {
+			try {
+				switch (opcode) {
+				case Protocol.BOOK:
+					services.bookRoom(hotelRooms[0], id);
+					break;
+
+				case Protocol.BOOK_ROOMS:
+					services.bookRooms(hotelRooms, id);
+					break;
+
+				default:
+					result = services.find(criteria);
+					break;
+				}
+				status = Protocol.OK;
+
+			} catch (final HotelRoomNotFoundException ex) {
+				status = Protocol.HOTEL_ROOM_NOT_FOUND;
+				message = ex.getMessage();
+
+			} catch (final ServicesException ex) {
+				status = Protocol.SERVICES_ERROR;
+				message = ex.getMessage();
+
+			} catch (final IllegalArgumentException ex) {
+				status = Protocol.ILLEGAL_ARGUMENT;
+				message = ex.getMessage();
+
+			} catch (final RuntimeException ex) {
+				status = Protocol.SERVICES_ERROR;
+				message = "The server failed to satisfy the request.";
+			}
+		}
+
+		/**
+		 * Writes the status of the operation followed by the rooms found,
+		 * {@code null} for a booking, or, if it failed, its message.
+		 * 
+		 * @param out
+		 *            The response being written.
+		 */
+		void writeOutcome(final WireWriter out) {
+			out.writeByte(status);
+			if (status == Protocol.OK) {
+				out.writeHotelRooms(result);
+			} else {
+				out.writeString(message);
+			}
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.service.socket;
+
+import java.nio.ByteBuffer;
+
+import suncertify.service.HotelRoomEvent;
+import suncertify.service.HotelRoomListener;
+import suncertify.service.HotelServices;
+import suncertify.service.ServicesException;
+
+/**
+ * Holds what has been negotiated with the client on a single connection to
+ * the {@code HotelServer} by a {@link Protocol#HELLO} request. Until the
+ * client has sent one, none of the optional capabilities are used.
+ * 
+ * <p>
+ * Also holds the client's subscription to the changes made to the rooms, if
+ * it has sent a {@link Protocol#SUBSCRIBE} request. Every change is then
+ * {@link #push(ByteBuffer[]) pushed} to the client as an event, until the
+ * client unsubscribes or the session is {@link #close() closed}. A client
+ * that falls more than {@value #MAX_PENDING_EVENTS} frames behind has its
+ * connection closed rather than have the server hold on to ever more events.
+ * 
+ * @author rsmall
+ */
+abstract class Session {
+
+	/** Capabilities the server is able to use. */
+	static final int SUPPORTED_CAPABILITIES = Protocol.CAPABILITY_COMPRESSION;
+
+	/**
+	 * Number of frames that may be waiting to be sent to a subscribed client
+	 * before its connection is closed.
+	 */
+	static final int MAX_PENDING_EVENTS = 1024;
+
+	/** Capabilities agreed upon with the client. */
+	private volatile int capabilities;
+
+	/** Services the subscription was made with; guarded by {@code this}. */
+	private HotelServices services;
+
+	/** Pushes the changes while subscribed; guarded by {@code this}. */
+	private HotelRoomListener subscription;
+
+	/** Indicates the session has ended; guarded by {@code this}. */
+	private boolean isClosed;
+
+	/**
+	 * Agrees to use those of the {@code requested} capabilities the server
+	 * supports, replacing whatever was agreed before.
+	 * 
+	 * @param requested
+	 *            Capabilities the client is able to use.
+	 * 
+	 * @return Capabilities that will be used.
+	 */
+	int negotiate(final int requested) {
+		capabilities = requested & SUPPORTED_CAPABILITIES;
+		return capabilities;
+	}
+
+	/**
+	 * Returns {@code true} if large responses may be compressed.
+	 * 
+	 * @return {@code true} if the client accepts compressed frames.
+	 */
+	boolean isCompressing() {
+		return (capabilities & Protocol.CAPABILITY_COMPRESSION) != 0;
+	}
+
+	/**
+	 * Starts pushing an event to the client for every change made to the
+	 * rooms through {@code services}, unless already subscribed or the
+	 * session has ended.
+	 * 
+	 * @param services
+	 *            Services the changes are made through.
+	 * 
+	 * @throws ServicesException
+	 *             If the changes could not be subscribed to.
+	 */
+	synchronized void subscribe(final HotelServices services)
+			throws ServicesException {
+		if ((subscription != null) || isClosed) {
+			return;
+		}
+
+		final HotelRoomListener listener = new HotelRoomListener() {
+
+			@Override
+			public void hotelRoomChanged(final HotelRoomEvent event) {
+				final WireWriter writer = WireWriter.event();
+				writer.writeHotelRoomEvent(event);
+				push(new ByteBuffer[] {ByteBuffer.wrap(writer.toFrame())});
+			}
+
+			@Override
+			public void hotelRoomEventsMissed() {
+				/* The services on the server report every change. */
+			}
+		};
+
+		services.addHotelRoomListener(listener);
+		this.services = services;
+		subscription = listener;
+	}
+
+	/**
+	 * Stops pushing the events to the client, if subscribed.
+	 * 
+	 * @throws ServicesException
+	 *             If the changes could not be unsubscribed from.
+	 */
+	synchronized void unsubscribe() throws ServicesException {
+		if (subscription == null) {
+			return;
+		}
+
+		services.removeHotelRoomListener(subscription);
+		services = null;
+		subscription = null;
+	}
+
+	/**
+	 * Ends the session once the connection has been closed; no more events
+	 * are pushed.
+	 */
+	synchronized void close() {
+		isClosed = true;
+		try {
+			unsubscribe();
+
+		} catch (final ServicesException ignore) {
+			/*
+			 * The client is gone; there is nobody left to tell, and the
+			 * events pushed from now on are discarded anyways.
+			 */
+		}
+	}
+
+	/**
+	 * Sends {@code frame}, holding an event, to the client without blocking.
+	 * Invoked by the thread that made the change, so it must return quickly.
+	 * 
+	 * <p>
+	 * If {@value #MAX_PENDING_EVENTS} frames are already waiting to be sent,
+	 * the client has stopped keeping up: the connection is closed and the
+	 * session ends instead, rather than the server queueing the events
+	 * without bound. The client then reconnects and fetches what it missed.
+	 * 
+	 * @param frame
+	 *            Buffers holding the frame with the event.
+	 */
+	abstract void push(final ByteBuffer[] frame);
+}
@@ -0,0 +1,457 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.service.socket;
+
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.EnumMap;
+
+import suncertify.service.HotelRoom;
+import suncertify.service.HotelRoomCriteria;
+import suncertify.service.HotelRoomDelta;
+import suncertify.service.HotelRoomEvent;
+import suncertify.service.HotelRoomPage;
+import suncertify.service.HotelRoomQuery;
+
+/**
+ * Reads a single message of the {@link Protocol} from the body of a frame, in
+ * the format written by {@link WireWriter}.
+ * 
+ * @author rsmall
+ */
+final class WireReader {
+
+	/** Body of the frame. */
+	private final byte[] bytes;
+
+	/** Position of the next byte to read. */
+	private int position;
+
+	/**
+	 * Constructs a new {@code WireReader} positioned at the start of
+	 * {@code body}.
+	 * 
+	 * @param body
+	 *            Body of the frame to read.
+	 */
+	WireReader(final byte[] body) {
+		bytes = body;
+	}
+
+	/**
+	 * Makes sure {@code count} more bytes are available.
+	 * 
+	 * @param count
+	 *            Number of bytes about to be read.
+	 * 
+	 * @throws StreamCorruptedException
+	 *             If the message ends before {@code count} more bytes.
+	 */
+	private void require(final int count) throws StreamCorruptedException {
+		if ((count < 0) || (count > bytes.length - position)) {
+			throw new StreamCorruptedException("message is truncated");
+		}
+	}
+
+	/**
+	 * Reads a single byte as a value between {@code 0} and {@code 255}.
+	 * 
+	 * @return The value read.
+	 * 
+	 * @throws StreamCorruptedException
+	 *             If the message has ended.
+	 */
+	int readUnsignedByte() throws StreamCorruptedException {
+		require(1);
+		return bytes[position++] & 0xFF;
+	}
+
+	/**
+	 * Reads four bytes, most significant first.
+	 * 
+	 * @return The value read.
+	 * 
+	 * @throws StreamCorruptedException
+	 *             If the message ends first.
+	 */
+	int readInt() throws StreamCorruptedException {
+		require(4);
+		return ((bytes[position++] & 0xFF) << 24)
+				| ((bytes[position++] & 0xFF) << 16)
+				| ((bytes[position++] & 0xFF) << 8)
+				| (bytes[position++] & 0xFF);
+	}
+
+	/**
+	 * Reads a varint.
+	 * 
+	 * @return The value read.
+	 * 
+	 * @throws StreamCorruptedException
+	 *             If the message ends first or the varint is too long.
+	 */
+	int readVarInt() throws StreamCorruptedException {
+		final long value = readVarLong();
+		if ((value >>> 32) != 0) {
+			throw new StreamCorruptedException("varint is too long");
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Reads a varint.
+	 * 
+	 * @return The value read.
+	 * 
+	 * @throws StreamCorruptedException
+	 *             If the message ends first or the varint is too long.
+	 */
+	long readVarLong() throws StreamCorruptedException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final int b = readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new StreamCorruptedException("varint is too long");
+	}
+
+	/**
+	 * Reads a length written with an offset of one, where zero denotes
+	 * {@code null}.
+	 * 
+	 * @return The length, or {@code -1} for {@code null}.
+	 * 
+	 * @throws StreamCorruptedException
+	 *             If the message ends first.
+	 */
+	private int readLength() throws StreamCorruptedException {
+		return readVarInt() - 1;
+	}
+
+	/**
+	 * Returns the bytes that have not been read yet, without copying them.
+	 * 
+	 * @return View of the rest of the message.
+	 */
+	ByteBuffer readRemaining() {
+		final ByteBuffer remaining =
+				ByteBuffer.wrap(bytes, position, bytes.length - position)
+						.slice();
+		position = bytes.length;
+		return remaining;
+	}
+
+	/**
+	 * Reads a string.
+	 * 
+	 * @return The string read; may be {@code null}.
+	 * 
+	 * @throws StreamCorruptedException
+	 *             If the message ends first.
+	 */
+	String readString() throws StreamCorruptedException {
+		final int length = readLength();
+		if (length < 0) {
+			return null;
+		}
+
+		require(length);
+		final String value =
+				new String(bytes, position, length, WireWriter.UTF_8);
+		position += length;
+		return value;
+	}
+
+	/**
+	 * Reads a room.
+	 * 
+	 * @return The room read; may be {@code null}.
+	 * 
+	 * @throws StreamCorruptedException
+	 *             If the message ends first.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If a field exceeds its size constraint.
+	 */
+	HotelRoom readHotelRoom() throws StreamCorruptedException {
+		final int recNo = readLength();
+		if (recNo < 0) {
+			return null;
+		}
+
+		final String[] fields = new String[HotelRoom.Field.values().length];
+		/* A missing field is one the query did not select. */
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = readString();
+		}
+		return new HotelRoom(recNo, fields);
+	}
+
+	/**
+	 * Reads an array of rooms.
+	 * 
+	 * @return The rooms read; may be {@code null}.
+	 * 
+	 * @throws StreamCorruptedException
+	 *             If the message ends first.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If a field exceeds its size constraint.
+	 */
+	HotelRoom[] readHotelRooms() throws StreamCorruptedException {
+		final int length = readLength();
+		if (length < 0) {
+			return null;
+		}
+
+		/* Every room takes at least one byte; guard against bogus lengths. */
+		require(length);
+		final HotelRoom[] hotelRooms = new HotelRoom[length];
+		for (int i = 0; i < length; i++) {
+			hotelRooms[i] = readHotelRoom();
+		}
+		return hotelRooms;
+	}
+
+	/**
+	 * Reads an event.
+	 * 
+	 * @return The event read.
+	 * 
+	 * @throws StreamCorruptedException
+	 *             If the message ends first or a field is unknown or missing.
+	 */
+	HotelRoomEvent readHotelRoomEvent() throws StreamCorruptedException {
+		final int recNo = readVarInt();
+		final long version = readVarLong();
+		final boolean isDeleted = readUnsignedByte() != 0;
+
+		final HotelRoom.Field[] fields = HotelRoom.Field.values();
+		final EnumMap<HotelRoom.Field, String> changedFields =
+				new EnumMap<HotelRoom.Field, String>(HotelRoom.Field.class);
+		final int count = readVarInt();
+		for (int i = 0; i < count; i++) {
+			final int ordinal = readVarInt();
+			final String value = readString();
+			if ((ordinal < 0) || (ordinal >= fields.length) || (value == null)) {
+				throw new StreamCorruptedException("invalid field");
+			}
+			changedFields.put(fields[ordinal], value);
+		}
+		return new HotelRoomEvent(recNo, version, isDeleted, changedFields);
+	}
+
+	/**
+	 * Reads a delta.
+	 * 
+	 * @return The delta read.
+	 * 
+	 * @throws StreamCorruptedException
+	 *             If the message ends first or a room is missing.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If a field exceeds its size constraint.
+	 */
+	HotelRoomDelta readHotelRoomDelta() throws StreamCorruptedException {
+		final long version = readVarLong();
+		final boolean isFull = readUnsignedByte() != 0;
+		final HotelRoom[] hotelRooms = readHotelRooms();
+		if (hotelRooms == null) {
+			throw new StreamCorruptedException("rooms are missing");
+		}
+
+		/* Every record number takes at least one byte. */
+		final int count = readVarInt();
+		require(count);
+		final int[] deleted = new int[count];
+		for (int i = 0; i < count; i++) {
+			deleted[i] = readVarInt();
+		}
+		return new HotelRoomDelta(version, isFull, hotelRooms, deleted);
+	}
+
+	/**
+	 * Reads a page of rooms.
+	 * 
+	 * @return The page read.
+	 * 
+	 * @throws StreamCorruptedException
+	 *             If the message ends first or the rooms are missing.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If a field exceeds its size constraint.
+	 */
+	HotelRoomPage readHotelRoomPage() throws StreamCorruptedException {
+		final HotelRoom[] hotelRooms = readHotelRooms();
+		if (hotelRooms == null) {
+			throw new StreamCorruptedException("rooms are missing");
+		}
+		return new HotelRoomPage(hotelRooms, readString());
+	}
+
+	/**
+	 * Reads a query.
+	 * 
+	 * @return The query read; may be {@code null}.
+	 * 
+	 * @throws StreamCorruptedException
+	 *             If the message ends first or a part of the query is
+	 *             invalid.
+	 */
+	HotelRoomQuery readQuery() throws StreamCorruptedException {
+		final HotelRoomCriteria criteria = readCriteria();
+		if (criteria == null) {
+			return null;
+		}
+
+		final int mask = readVarInt();
+		final ArrayList<HotelRoom.Field> selected =
+				new ArrayList<HotelRoom.Field>();
+		for (final HotelRoom.Field field : HotelRoom.Field.values()) {
+			if ((mask & (1 << field.ordinal())) != 0) {
+				selected.add(field);
+			}
+		}
+
+		final HotelRoomQuery query = new HotelRoomQuery(criteria);
+		query.setFields(selected.toArray(new HotelRoom.Field[selected.size()]));
+
+		final HotelRoom.Field[] fields = HotelRoom.Field.values();
+		final int count = readVarInt();
+		for (int i = 0; i < count; i++) {
+			final int ordinal = readVarInt();
+			if ((ordinal < 0) || (ordinal >= fields.length)) {
+				throw new StreamCorruptedException("invalid sort key");
+			}
+			query.addSortKey(fields[ordinal], readUnsignedByte() != 0);
+		}
+
+		final int limit = readVarInt();
+		if (limit < 0) {
+			throw new StreamCorruptedException("invalid limit");
+		}
+		query.setLimit(limit);
+
+		final int conditionCount = readVarInt();
+		for (int i = 0; i < conditionCount; i++) {
+			readCondition(query);
+		}
+
+		switch (readUnsignedByte()) {
+		case 0:
+			break;
+		case 1:
+			query.whereAvailable(true);
+			break;
+		case 2:
+			query.whereAvailable(false);
+			break;
+		default:
+			throw new StreamCorruptedException("invalid availability");
+		}
+
+		query.setCaseSensitive(readUnsignedByte() != 0);
+		return query;
+	}
+
+	/**
+	 * Reads a condition and adds it to {@code query}.
+	 * 
+	 * @param query
+	 *            Query to add the condition to.
+	 * 
+	 * @throws StreamCorruptedException
+	 *             If the message ends first or the condition is invalid.
+	 */
+	private void readCondition(final HotelRoomQuery query)
+			throws StreamCorruptedException {
+		final HotelRoom.Field[] fields = HotelRoom.Field.values();
+		final HotelRoomQuery.Operator[] operators =
+				HotelRoomQuery.Operator.values();
+
+		final int field = readVarInt();
+		final int operator = readVarInt();
+		if ((field < 0) || (field >= fields.length) || (operator < 0)
+				|| (operator >= operators.length)) {
+			throw new StreamCorruptedException("invalid condition");
+		}
+
+		/* Every value takes at least one byte. */
+		final int count = readVarInt();
+		require(count);
+		final String[] values = new String[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = readString();
+		}
+
+		try {
+			switch (operators[operator]) {
+			case EQUALS:
+				query.whereEquals(fields[field], single(values));
+				break;
+
+			case PREFIX:
+				query.whereStartsWith(fields[field], single(values));
+				break;
+
+			case RANGE:
+				if (values.length != 2) {
+					throw new StreamCorruptedException("invalid range");
+				}
+				query.whereBetween(fields[field], values[0], values[1]);
+				break;
+
+			default:
+				query.whereIn(fields[field], values);
+				break;
+			}
+
+		} catch (final IllegalArgumentException ex) {
+			throw new StreamCorruptedException("invalid condition");
+		}
+	}
+
+	/**
+	 * Returns the only one of {@code values}.
+	 * 
+	 * @param values
+	 *            Values of a condition.
+	 * 
+	 * @return The only value.
+	 * 
+	 * @throws StreamCorruptedException
+	 *             If there is not exactly one value.
+	 */
+	private static String single(final String[] values)
+			throws StreamCorruptedException {
+		if (values.length != 1) {
+			throw new StreamCorruptedException("invalid condition");
+		}
+		return values[0];
+	}
+
+	/**
+	 * Reads a criteria.
+	 * 
+	 * @return The criteria read; may be {@code null}.
+	 * 
+	 * @throws StreamCorruptedException
+	 *             If the message ends first.
+	 */
+	HotelRoomCriteria readCriteria() throws StreamCorruptedException {
+		if (readLength() < 0) {
+			return null;
+		}
+
+		final HotelRoomCriteria criteria = new HotelRoomCriteria();
+		criteria.name = readString();
+		criteria.location = readString();
+		return criteria;
+	}
+}
@@ -0,0 +1,390 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.service.socket;
+
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+
+import suncertify.service.HotelRoom;
+import suncertify.service.HotelRoomCriteria;
+import suncertify.service.HotelRoomDelta;
+import suncertify.service.HotelRoomEvent;
+import suncertify.service.HotelRoomPage;
+import suncertify.service.HotelRoomQuery;
+
+/**
+ * Writes a single message of the {@link Protocol} into a growable array of
+ * bytes, which is then turned into a frame ready to be sent. Numbers are
+ * written as varints, taking one byte for values under {@code 128}, and
+ * strings are written as a varint length followed by their UTF-8 bytes. A
+ * {@code null} string, room or array is written as a length of zero, with the
+ * lengths of everything else offset by one.
+ * 
+ * @author rsmall
+ */
+final class WireWriter {
+
+	/** Character set used for encoding strings. */
+	static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/** The bytes written so far, starting with the frame header. */
+	private byte[] bytes = new byte[128];
+
+	/** Number of bytes written so far. */
+	private int size;
+
+	/**
+	 * Constructs a new {@code WireWriter} with room for the frame header.
+	 */
+	private WireWriter() {
+		size = Frames.HEADER_SIZE;
+	}
+
+	/**
+	 * Returns a writer for a request. The request id is assigned later with
+	 * {@link #setRequestId(int)}.
+	 * 
+	 * @param opcode
+	 *            Identifies the request.
+	 * 
+	 * @return Writer positioned at the arguments of the request.
+	 */
+	static WireWriter request(final int opcode) {
+		final WireWriter writer = new WireWriter();
+		writer.writeByte(Protocol.VERSION);
+		writer.writeInt(0);
+		writer.writeByte(opcode);
+		return writer;
+	}
+
+	/**
+	 * Returns a writer for the response to the request identified by
+	 * {@code requestId}.
+	 * 
+	 * @param requestId
+	 *            Identifies the request being answered.
+	 * 
+	 * @param status
+	 *            Status of the request.
+	 * 
+	 * @return Writer positioned at the result of the request.
+	 */
+	static WireWriter response(final int requestId, final int status) {
+		final WireWriter writer = new WireWriter();
+		writer.writeByte(Protocol.VERSION);
+		writer.writeInt(requestId);
+		writer.writeByte(status);
+		return writer;
+	}
+
+	/**
+	 * Returns a writer for an event pushed to a subscribed client.
+	 * 
+	 * @return Writer positioned at the event.
+	 */
+	static WireWriter event() {
+		final WireWriter writer = new WireWriter();
+		writer.writeByte(Protocol.VERSION);
+		writer.writeInt(Protocol.EVENT_ID);
+		return writer;
+	}
+
+	/**
+	 * Makes room for {@code count} more bytes.
+	 * 
+	 * @param count
+	 *            Number of bytes about to be written.
+	 */
+	private void ensureCapacity(final int count) {
+		if (size + count > bytes.length) {
+			final byte[] larger =
+					new byte[Math.max(bytes.length * 2, size + count)];
+			System.arraycopy(bytes, 0, larger, 0, size);
+			bytes = larger;
+		}
+	}
+
+	/**
+	 * Writes the lowest eight bits of {@code value}.
+	 * 
+	 * @param value
+	 *            Value to write.
+	 */
+	void writeByte(final int value) {
+		ensureCapacity(1);
+		bytes[size++] = (byte) value;
+	}
+
+	/**
+	 * Writes {@code value} as four bytes, most significant first.
+	 * 
+	 * @param value
+	 *            Value to write.
+	 */
+	void writeInt(final int value) {
+		ensureCapacity(4);
+		bytes[size++] = (byte) (value >>> 24);
+		bytes[size++] = (byte) (value >>> 16);
+		bytes[size++] = (byte) (value >>> 8);
+		bytes[size++] = (byte) value;
+	}
+
+	/**
+	 * Writes {@code value} as a varint; seven bits per byte, least significant
+	 * first, with the high bit set on every byte but the last. The value is
+	 * treated as unsigned.
+	 * 
+	 * @param value
+	 *            Value to write.
+	 */
+	void writeVarInt(final int value) {
+		int remaining = value;
+		while ((remaining & ~0x7F) != 0) {
+			writeByte((remaining & 0x7F) | 0x80);
+			remaining >>>= 7;
+		}
+		writeByte(remaining);
+	}
+
+	/**
+	 * Writes {@code value} as a varint, treating it as unsigned.
+	 * 
+	 * @param value
+	 *            Value to write.
+	 */
+	void writeVarLong(final long value) {
+		long remaining = value;
+		while ((remaining & ~0x7FL) != 0) {
+			writeByte((int) ((remaining & 0x7F) | 0x80));
+			remaining >>>= 7;
+		}
+		writeByte((int) remaining);
+	}
+
+	/**
+	 * Writes {@code value}, which may be {@code null}.
+	 * 
+	 * @param value
+	 *            Value to write.
+	 */
+	void writeString(final String value) {
+		if (value == null) {
+			writeVarInt(0);
+			return;
+		}
+
+		final byte[] encoded = value.getBytes(UTF_8);
+		writeVarInt(encoded.length + 1);
+		ensureCapacity(encoded.length);
+		System.arraycopy(encoded, 0, bytes, size, encoded.length);
+		size += encoded.length;
+	}
+
+	/**
+	 * Writes {@code hotelRoom} as its record number followed by its fields,
+	 * in the order of {@code Field}.
+	 * 
+	 * @param hotelRoom
+	 *            Room to write; may be {@code null}.
+	 */
+	void writeHotelRoom(final HotelRoom hotelRoom) {
+		if (hotelRoom == null) {
+			writeVarInt(0);
+			return;
+		}
+
+		writeVarInt(hotelRoom.getRecordNumber() + 1);
+		for (final HotelRoom.Field field : HotelRoom.Field.values()) {
+			writeString(hotelRoom.getField(field));
+		}
+	}
+
+	/**
+	 * Writes {@code hotelRooms} as their number followed by each room.
+	 * 
+	 * @param hotelRooms
+	 *            Rooms to write; may be {@code null}.
+	 */
+	void writeHotelRooms(final HotelRoom[] hotelRooms) {
+		if (hotelRooms == null) {
+			writeVarInt(0);
+			return;
+		}
+
+		writeVarInt(hotelRooms.length + 1);
+		for (final HotelRoom hotelRoom : hotelRooms) {
+			writeHotelRoom(hotelRoom);
+		}
+	}
+
+	/**
+	 * Writes {@code event} as the record number, the version and the deletion
+	 * status of the room, followed by the number of changed fields and the
+	 * ordinal and new value of each.
+	 * 
+	 * @param event
+	 *            Event to write.
+	 */
+	void writeHotelRoomEvent(final HotelRoomEvent event) {
+		writeVarInt(event.getRecordNumber());
+		writeVarLong(event.getVersion());
+		writeByte(event.isDeleted() ? 1 : 0);
+
+		final Map<HotelRoom.Field, String> changedFields =
+				event.getChangedFields();
+		writeVarInt(changedFields.size());
+		for (final Map.Entry<HotelRoom.Field, String> entry : changedFields
+				.entrySet()) {
+			writeVarInt(entry.getKey().ordinal());
+			writeString(entry.getValue());
+		}
+	}
+
+	/**
+	 * Writes {@code delta} as its version and whether it is full, followed by
+	 * its rooms, then the number of deleted rooms and the record number of
+	 * each.
+	 * 
+	 * @param delta
+	 *            Delta to write.
+	 */
+	void writeHotelRoomDelta(final HotelRoomDelta delta) {
+		writeVarLong(delta.getVersion());
+		writeByte(delta.isFull() ? 1 : 0);
+		writeHotelRooms(delta.getHotelRooms());
+
+		final int[] deleted = delta.getDeletedRecordNumbers();
+		writeVarInt(deleted.length);
+		for (final int recNo : deleted) {
+			writeVarInt(recNo);
+		}
+	}
+
+	/**
+	 * Writes {@code page} as its rooms followed by the token of the next page.
+	 * 
+	 * @param page
+	 *            Page to write.
+	 */
+	void writeHotelRoomPage(final HotelRoomPage page) {
+		writeHotelRooms(page.getHotelRooms());
+		writeString(page.getNextPageToken());
+	}
+
+	/**
+	 * Writes {@code query} as its criteria followed by a mask of its fields,
+	 * with bit {@code n} set if the field with ordinal {@code n} is selected,
+	 * then the number of sort keys, the ordinal of the field of each along
+	 * with whether it is ascending, and the limit. Finally come the number of
+	 * conditions, each as the ordinal of its field and operator followed by
+	 * its values, the availability: 0 for either, 1 for the available rooms
+	 * and 2 for the booked rooms, and 1 if the query is case sensitive or 0 if
+	 * it is not.
+	 * 
+	 * @param query
+	 *            Query to write; may be {@code null}.
+	 */
+	void writeQuery(final HotelRoomQuery query) {
+		if (query == null) {
+			writeCriteria(null);
+			return;
+		}
+
+		writeCriteria(query.getCriteria());
+
+		int mask = 0;
+		for (final HotelRoom.Field field : query.getFields()) {
+			mask |= 1 << field.ordinal();
+		}
+		writeVarInt(mask);
+
+		final List<HotelRoomQuery.SortKey> sortKeys = query.getSortKeys();
+		writeVarInt(sortKeys.size());
+		for (final HotelRoomQuery.SortKey sortKey : sortKeys) {
+			writeVarInt(sortKey.getField().ordinal());
+			writeByte(sortKey.isAscending() ? 1 : 0);
+		}
+		writeVarInt(query.getLimit());
+
+		final List<HotelRoomQuery.Condition> conditions = query.getConditions();
+		writeVarInt(conditions.size());
+		for (final HotelRoomQuery.Condition condition : conditions) {
+			writeVarInt(condition.getField().ordinal());
+			writeVarInt(condition.getOperator().ordinal());
+
+			final String[] values = condition.getValues();
+			writeVarInt(values.length);
+			for (final String value : values) {
+				writeString(value);
+			}
+		}
+
+		final Boolean isAvailable = query.getAvailability();
+		writeByte((isAvailable == null) ? 0 : (isAvailable ? 1 : 2));
+		writeByte(query.isCaseSensitive() ? 1 : 0);
+	}
+
+	/**
+	 * Writes {@code criteria} as each of its values.
+	 * 
+	 * @param criteria
+	 *            Criteria to write; may be {@code null}.
+	 */
+	void writeCriteria(final HotelRoomCriteria criteria) {
+		if (criteria == null) {
+			writeVarInt(0);
+			return;
+		}
+
+		writeVarInt(1);
+		writeString(criteria.name);
+		writeString(criteria.location);
+	}
+
+	/**
+	 * Assigns the id of the request being written.
+	 * 
+	 * @param requestId
+	 *            Identifies the request.
+	 */
+	void setRequestId(final int requestId) {
+		int position = Frames.HEADER_SIZE + 1;
+		bytes[position++] = (byte) (requestId >>> 24);
+		bytes[position++] = (byte) (requestId >>> 16);
+		bytes[position++] = (byte) (requestId >>> 8);
+		bytes[position] = (byte) requestId;
+	}
+
+	/**
+	 * Returns the frame holding the message written so far.
+	 * 
+	 * @return The frame, including its header.
+	 */
+	byte[] toFrame() {
+		return toFrame(0);
+	}
+
+	/**
+	 * Returns the start of a frame holding the message written so far,
+	 * followed by {@code trailingLength} bytes that are sent separately.
+	 * 
+	 * @param trailingLength
+	 *            Number of bytes following the message within the frame.
+	 * 
+	 * @return The start of the frame, including its header.
+	 */
+	byte[] toFrame(final int trailingLength) {
+		final int length = size - Frames.HEADER_SIZE + trailingLength;
+		bytes[0] = (byte) (length >>> 24);
+		bytes[1] = (byte) (length >>> 16);
+		bytes[2] = (byte) (length >>> 8);
+		bytes[3] = (byte) length;
+
+		final byte[] frame = new byte[size];
+		System.arraycopy(bytes, 0, frame, 0, size);
+		return frame;
+	}
+}
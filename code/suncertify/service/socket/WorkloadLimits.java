@@ -0,0 +1,113 @@
+/* 
+ * Java Developer Assignment 1Z0-855 
+ * URLyBird 1.4.0_01
+ */
+package suncertify.service.socket;
+
+/**
+ * Limits the amount of work a {@code HotelServer} takes on at once. At most
+ * {@link #getWorkerCount() workerCount} requests are executed at the same
+ * time; the requests that arrive in the meantime wait in a queue. Once
+ * {@link #getQueueLimit() queueLimit} requests are waiting, any further
+ * request is immediately refused as "server busy" rather than being left to
+ * wait behind the others.
+ * 
+ * <p>
+ * Optionally, requests can also be refused based on how long they have been
+ * waiting. If a request has waited longer than
+ * {@link #getTargetQueueTime() targetQueueTime} milliseconds by the time a
+ * worker gets to it, then it is refused instead of executed, and new requests
+ * are refused until the queue has drained or the requests are once more
+ * being reached in time. Under overload this refuses some requests quickly
+ * instead of letting every request wait until its client gives up.
+ * 
+ * @author rsmall
+ */
+public final class WorkloadLimits {
+
+	/**
+	 * Limits used unless others are specified: two workers per processor, a
+	 * queue of {@code 1000} requests and no limit on the time spent waiting.
+	 */
+	public static final WorkloadLimits DEFAULT = new WorkloadLimits(
+			2 * Runtime.getRuntime().availableProcessors(), 1000, 0);
+
+	/** Number of requests that may be executed at the same time. */
+	private final int workerCount;
+
+	/** Number of requests that may be waiting to be executed. */
+	private final int queueLimit;
+
+	/** Milliseconds a request may wait; {@code 0} for no limit. */
+	private final long targetQueueTime;
+
+	/**
+	 * Constructs a new {@code WorkloadLimits}.
+	 * 
+	 * @param workerCount
+	 *            Number of requests that may be executed at the same time.
+	 *            Must be at least {@code 1}.
+	 * 
+	 * @param queueLimit
+	 *            Number of requests that may be waiting to be executed. Must be
+	 *            at least {@code 1}.
+	 * 
+	 * @param targetQueueTime
+	 *            Number of milliseconds a request may wait before it is
+	 *            refused; {@code 0} to let requests wait for as long as it
+	 *            takes. Cannot be negative.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If any of the limits are out of range.
+	 */
+	public WorkloadLimits(final int workerCount, final int queueLimit,
+			final long targetQueueTime) {
+
+		if (workerCount < 1) {
+			throw new IllegalArgumentException(
+					"Number of worker threads must be at least 1.");
+		}
+
+		if (queueLimit < 1) {
+			throw new IllegalArgumentException(
+					"Request queue limit must be at least 1.");
+		}
+
+		if (targetQueueTime < 0) {
+			throw new IllegalArgumentException(
+					"Target queue time cannot be negative.");
+		}
+
+		this.workerCount = workerCount;
+		this.queueLimit = queueLimit;
+		this.targetQueueTime = targetQueueTime;
+	}
+
+	/**
+	 * Returns the number of requests that may be executed at the same time.
+	 * 
+	 * @return Number of requests that may be executed at the same time.
+	 */
+	public int getWorkerCount() {
+		return workerCount;
+	}
+
+	/**
+	 * Returns the number of requests that may be waiting to be executed.
+	 * 
+	 * @return Number of requests that may be waiting to be executed.
+	 */
+	public int getQueueLimit() {
+		return queueLimit;
+	}
+
+	/**
+	 * Returns the number of milliseconds a request may wait before it is
+	 * refused.
+	 * 
+	 * @return Milliseconds a request may wait; {@code 0} for no limit.
+	 */
+	public long getTargetQueueTime() {
+		return targetQueueTime;
+	}
+}
@@ -7,6 +7,7 @@ package suncertify.ui;
 import javax.swing.table.AbstractTableModel;
 
 import suncertify.service.HotelRoom;
+import suncertify.service.HotelRoomEvent;
 
 /**
  * Allows the underlying data associated with a {@code TableModelEvent} to be
@@ -39,4 +40,14 @@ abstract class AbstractHotelRoomTableModel extends AbstractTableModel {
 	 *            New data to be used by the model.
 	 */
 	public abstract void setHotelRooms(final HotelRoom[] hotelRooms);
+
+	/**
+	 * Applies {@code event} to the {@code HotelRoom} it describes, if that
+	 * room is displayed by the table model; a deleted room is removed. Any
+	 * listeners will be notified of the rows that changed.
+	 * 
+	 * @param event
+	 *            Describes a change made to a room.
+	 */
+	public abstract void updateHotelRoom(final HotelRoomEvent event);
 }
@@ -5,6 +5,7 @@
 package suncertify.ui;
 
 import suncertify.service.HotelRoom;
+import suncertify.service.HotelRoomEvent;
 import suncertify.service.HotelRoom.Field;
 
 /**
@@ -44,6 +45,32 @@ class DefaultHotelRoomTableModel extends AbstractHotelRoomTableModel {
 		fireTableDataChanged();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void updateHotelRoom(final HotelRoomEvent event) {
+		for (int index = 0; index < rooms.length; index++) {
+			if (rooms[index].getRecordNumber() != event.getRecordNumber()) {
+				continue;
+			}
+
+			if (event.isDeleted()) {
+				final HotelRoom[] remaining = new HotelRoom[rooms.length - 1];
+				System.arraycopy(rooms, 0, remaining, 0, index);
+				System.arraycopy(rooms, index + 1, remaining, index,
+						remaining.length - index);
+				rooms = remaining;
+				fireTableRowsDeleted(index, index);
+
+			} else {
+				event.applyTo(rooms[index]);
+				fireTableRowsUpdated(index, index);
+			}
+			return;
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -18,6 +18,11 @@ import suncertify.service.HotelRoom.Field;
  * These rooms can be searched by specifying criteria to eliminate undesired
  * rooms. When a desired room is found it can be booked.
  * 
+ * <p>
+ * The window listens for the changes made to the rooms by any client and
+ * updates the rooms displayed as the changes arrive, so the table stays up to
+ * date without searching again.
+ * 
  * @author rsmall
  */
 class MainWindow extends JFrame {
@@ -36,6 +41,35 @@ class MainWindow extends JFrame {
 	/** Implementation to use when performing database manipulations. */
 	private final HotelServices services;
 
+	/** Applies the changes made to the rooms to the table. */
+	private final HotelRoomListener roomUpdater = new HotelRoomListener() {
+
+		@Override
+		public void hotelRoomChanged(final HotelRoomEvent event) {
+			SwingUtilities.invokeLater(new Runnable() {
+
+				@Override
+				public void run() {
+					model.updateHotelRoom(event);
+				}
+			});
+		}
+
+		@Override
+		public void hotelRoomEventsMissed() {
+			SwingUtilities.invokeLater(new Runnable() {
+
+				@Override
+				public void run() {
+					doSearch();
+				}
+			});
+		}
+	};
+
+	/** Indicates the table is being kept up to date by {@code roomUpdater}. */
+	private boolean isListening;
+
 	/**
 	 * Constructs a new {@code MainWindow} using the {@code HotelServices}
 	 * provided to search and book HotelRooms.
@@ -46,6 +80,22 @@ class MainWindow extends JFrame {
 	public MainWindow(final HotelServices services) {
 		this.services = services;
 		initComponents();
+		listenForChanges();
+	}
+
+	/**
+	 * Starts applying the changes made to the rooms to the table. Should that
+	 * not be possible, the table is refreshed by searching again after each
+	 * booking instead.
+	 */
+	private void listenForChanges() {
+		try {
+			services.addHotelRoomListener(roomUpdater);
+			isListening = true;
+
+		} catch (final ServicesException ex) {
+			isListening = false;
+		}
 	}
 
 	/**
@@ -167,6 +217,12 @@ class MainWindow extends JFrame {
 				} catch (final ServicesException ex) {
 					displayMessage(ex.getMessage());
 				}
+
+				try {
+					services.removeHotelRoomListener(roomUpdater);
+				} catch (final ServicesException ex) {
+					/* The window is going away regardless. */
+				}
 				super.windowClosing(e);
 			}
 		});
@@ -262,6 +318,7 @@ class MainWindow extends JFrame {
 
 			@Override
 			public void actionPerformed(final ActionEvent e) {
+				boolean isBooked = false;
 				try {
 					final int index = jTableHotelRooms.getSelectedRow();
 
@@ -290,6 +347,7 @@ class MainWindow extends JFrame {
 					/* If an ID was provided, book the room. */
 					if (customerId != null) {
 						services.bookRoom(room, customerId);
+						isBooked = true;
 					}
 
 				} catch (final Exception ex) {
@@ -297,13 +355,18 @@ class MainWindow extends JFrame {
 				}
 
 				/*
-				 * This search will update the table, potentially displaying the
-				 * customer ID regardless if it was booked by this client or
-				 * another client. Without this, the user may see a message
-				 * indicating that the room is booked, but the table won't
-				 * reflect this.
+				 * While listening, the booking reaches the table as a change,
+				 * just like the bookings of every other client. Otherwise, or
+				 * should the booking have failed, perhaps because a change was
+				 * missed while the connection was lost, this search will
+				 * update the table, potentially displaying the customer ID
+				 * regardless if it was booked by this client or another
+				 * client. Without this, the user may see a message indicating
+				 * that the room is booked, but the table won't reflect this.
 				 */
-				doSearch();
+				if (!isListening || !isBooked) {
+					doSearch();
+				}
 			}
 		});
 		gridBagConstraints = new GridBagConstraints();
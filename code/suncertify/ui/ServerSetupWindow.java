@@ -6,6 +6,10 @@ package suncertify.ui;
 
 import static suncertify.urlybird.Configurations.Configuration.DATABASE_PATH;
 import static suncertify.urlybird.Configurations.Configuration.SERVER_PORT;
+import static suncertify.urlybird.Configurations.Configuration.SERVER_QUEUE_LIMIT;
+import static suncertify.urlybird.Configurations.Configuration.SERVER_TARGET_QUEUE_TIME;
+import static suncertify.urlybird.Configurations.Configuration.SERVER_THREAD_MODEL;
+import static suncertify.urlybird.Configurations.Configuration.SERVER_WORKER_THREADS;
 
 import java.awt.*;
 import java.awt.event.ActionEvent;
@@ -17,14 +21,17 @@ import javax.swing.*;
 
 import suncertify.service.ServicesException;
 import suncertify.service.socket.HotelServer;
+import suncertify.service.socket.HotelServer.ThreadModel;
 import suncertify.service.socket.Server;
+import suncertify.service.socket.WorkloadLimits;
 import suncertify.urlybird.Configurations;
 
 /**
- * Allows a user to customize the database path and port number the server is
- * listening on by providing a graphical user interface. The server will be
- * started upon successful setup. If setup fails, a message will be presented to
- * the user to indicate the problem and the user will be allowed to modify the
+ * Allows a user to customize the database path, the port number the server is
+ * listening on and how the server assigns threads to the client connections
+ * by providing a graphical user interface. The server will be started upon
+ * successful setup. If setup fails, a message will be presented to the user
+ * to indicate the problem and the user will be allowed to modify the
  * configurations.
  * 
  * @author rsmall
@@ -38,6 +45,14 @@ public class ServerSetupWindow extends JFrame {
 	/** Port number that the client can use to connect to the server. */
 	private final JTextField jTextFieldServerPort = new JTextField();
 
+	/**
+	 * How the server assigns threads to the client connections. The raw type
+	 * is used since {@code JComboBox} is not generic in Java 6.
+	 */
+	@SuppressWarnings("unchecked")
+	private final JComboBox jComboBoxThreadModel = new JComboBox(
+			ThreadModel.values());
+
 	/** Allows the user to browse for the database file. */
 	private final JButton jButtonBrowse = new JButton("Browse...");
 
@@ -76,6 +91,7 @@ public class ServerSetupWindow extends JFrame {
 	private void setRunning(final boolean running) {
 		jTextFieldDatabasePath.setEnabled(!running);
 		jTextFieldServerPort.setEnabled(!running);
+		jComboBoxThreadModel.setEnabled(!running);
 		jButtonBrowse.setEnabled(!running);
 		jButtonStartServer.setEnabled(!running);
 		jButtonStopServer.setEnabled(running);
@@ -94,9 +110,11 @@ public class ServerSetupWindow extends JFrame {
 		try {
 			final String databasePath = jTextFieldDatabasePath.getText();
 			final String serverPort = jTextFieldServerPort.getText();
+			final Object threadModel = jComboBoxThreadModel.getSelectedItem();
 
 			configurations.set(DATABASE_PATH, databasePath);
 			configurations.set(SERVER_PORT, serverPort);
+			configurations.set(SERVER_THREAD_MODEL, threadModel.toString());
 			configurations.save();
 
 		} catch (final IOException ex) {
@@ -104,6 +122,50 @@ public class ServerSetupWindow extends JFrame {
 		}
 	}
 
+	/**
+	 * Returns the {@code ThreadModel} saved in the configurations, or
+	 * {@link ThreadModel#SELECTOR SELECTOR} if the saved value is not
+	 * recognized.
+	 * 
+	 * @return The saved {@code ThreadModel}.
+	 */
+	private ThreadModel getSavedThreadModel() {
+		try {
+			return ThreadModel.valueOf(configurations.get(SERVER_THREAD_MODEL));
+
+		} catch (final IllegalArgumentException ex) {
+			return ThreadModel.SELECTOR;
+		}
+	}
+
+	/**
+	 * Returns the {@code WorkloadLimits} saved in the configurations. These
+	 * can only be changed by editing the properties file.
+	 * 
+	 * @return The saved {@code WorkloadLimits}.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the saved limits are not valid numbers or are out of
+	 *             range.
+	 */
+	private WorkloadLimits getSavedWorkloadLimits() {
+		try {
+			final int workerCount = Integer.parseInt(configurations
+					.get(SERVER_WORKER_THREADS));
+			final int queueLimit = Integer.parseInt(configurations
+					.get(SERVER_QUEUE_LIMIT));
+			final long targetQueueTime = Long.parseLong(configurations
+					.get(SERVER_TARGET_QUEUE_TIME));
+
+			return new WorkloadLimits(workerCount, queueLimit,
+					targetQueueTime);
+
+		} catch (final NumberFormatException ex) {
+			throw new IllegalArgumentException(
+					"Server workload limits in the properties file are invalid.");
+		}
+	}
+
 	/**
 	 * Prompts the user with a message.
 	 * 
@@ -120,7 +182,8 @@ public class ServerSetupWindow extends JFrame {
 	 * <p>
 	 * The end result is essentially two text fields on top of one another with
 	 * a label to their left. The top field is for the path to the database and
-	 * the bottom field is for the port number. To the right of the database
+	 * the bottom field is for the port number. Below them is a list for
+	 * choosing how the server assigns threads. To the right of the database
 	 * field is a button that will prompt the user to search for the database
 	 * file. Upon finding the file, the field will be populated with the path.
 	 * The two fields will automatically be populated with the IP address and
@@ -193,7 +256,7 @@ public class ServerSetupWindow extends JFrame {
 		gridBagConstraints = new GridBagConstraints();
 		gridBagConstraints.gridx = 0;
 		gridBagConstraints.gridy = 3;
-		gridBagConstraints.insets = new Insets(5, 53, 15, 0);
+		gridBagConstraints.insets = new Insets(5, 53, 0, 0);
 		jPanelConfigurations.add(jLabelServerPort, gridBagConstraints);
 
 		final String serverPort = configurations.get(SERVER_PORT);
@@ -203,9 +266,24 @@ public class ServerSetupWindow extends JFrame {
 		gridBagConstraints.gridy = 3;
 		gridBagConstraints.gridheight = 2;
 		gridBagConstraints.ipadx = 53;
-		gridBagConstraints.insets = new Insets(5, 5, 15, 15);
+		gridBagConstraints.insets = new Insets(5, 5, 0, 15);
 		jPanelConfigurations.add(jTextFieldServerPort, gridBagConstraints);
 
+		final JLabel jLabelThreadModel = new JLabel("Thread Model:");
+		gridBagConstraints = new GridBagConstraints();
+		gridBagConstraints.gridx = 0;
+		gridBagConstraints.gridy = 5;
+		gridBagConstraints.insets = new Insets(5, 40, 15, 0);
+		jPanelConfigurations.add(jLabelThreadModel, gridBagConstraints);
+
+		jComboBoxThreadModel.setSelectedItem(getSavedThreadModel());
+		gridBagConstraints = new GridBagConstraints();
+		gridBagConstraints.gridx = 1;
+		gridBagConstraints.gridy = 5;
+		gridBagConstraints.anchor = GridBagConstraints.WEST;
+		gridBagConstraints.insets = new Insets(5, 5, 15, 15);
+		jPanelConfigurations.add(jComboBoxThreadModel, gridBagConstraints);
+
 		final JPanel jPanelControls = new JPanel();
 		jPanelControls.setLayout(new FlowLayout());
 		add(jPanelControls, BorderLayout.SOUTH);
@@ -231,7 +309,13 @@ public class ServerSetupWindow extends JFrame {
 					final String portString = jTextFieldServerPort.getText();
 					final int port = Integer.parseInt(portString);
 
-					server = new HotelServer(database, port);
+					final ThreadModel threadModel =
+							(ThreadModel) jComboBoxThreadModel.getSelectedItem();
+
+					final WorkloadLimits limits = getSavedWorkloadLimits();
+
+					server = new HotelServer(database, port, threadModel,
+							limits);
 					server.start();
 
 					/*
@@ -50,7 +50,23 @@ public class Configurations {
 		SERVER_IP_ADDRESS("localhost"),
 
 		/** Port number that the server is listening on for client connections */
-		SERVER_PORT("1142");
+		SERVER_PORT("1142"),
+
+		/** How the server assigns threads to the client connections. */
+		SERVER_THREAD_MODEL("SELECTOR"),
+
+		/** Number of requests the server executes at the same time. */
+		SERVER_WORKER_THREADS(String.valueOf(2 * Runtime.getRuntime()
+				.availableProcessors())),
+
+		/** Number of requests that may wait to be executed by the server. */
+		SERVER_QUEUE_LIMIT("1000"),
+
+		/**
+		 * Milliseconds a request may wait to be executed by the server before
+		 * it is refused; 0 to let requests wait for as long as it takes.
+		 */
+		SERVER_TARGET_QUEUE_TIME("0");
 
 		/** Default value for the property. */
 		private final String defaultValue;